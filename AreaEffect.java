@@ -0,0 +1,105 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This enum lists what an area spell  *//
+//*              can do to the rooms it covers, such *//
+//*              as freezing their traps and         *//
+//*              enemies. Each effect changes the    *//
+//*              room flags of up to 64 rooms at     *//
+//*              once.                               *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+
+/**
+ * Something that happens to every room in an {@link AreaShape}, applied with
+ * {@link Dungeon#applyArea}. Each effect works on one 64-bit word of a chunk's flag
+ * columns at a time: it works out which of the covered rooms it would change, and then changes them.
+ */
+public enum AreaEffect {
+
+    /**
+     * Freezes the traps and enemies in covered rooms that have them.
+     */
+    FREEZE {
+        @Override
+        long changes(RoomGrid.Chunk chunk, int word, long covered) {
+            return covered & chunk.trapped[word] & ~chunk.frozen[word];
+        }
+
+        @Override
+        void apply(RoomGrid.Chunk chunk, int word, long changes) {
+            chunk.frozen[word] |= changes;
+        }
+
+        @Override
+        long targets(RoomGrid.Chunk chunk, int word, long covered) {
+            return covered & chunk.trapped[word]; // Frozen already or not.
+        }
+    },
+
+    /**
+     * Thaws every frozen covered room.
+     */
+    THAW {
+        @Override
+        long changes(RoomGrid.Chunk chunk, int word, long covered) {
+            return covered & chunk.frozen[word];
+        }
+
+        @Override
+        void apply(RoomGrid.Chunk chunk, int word, long changes) {
+            chunk.frozen[word] &= ~changes;
+        }
+    },
+
+    /**
+     * Clears the traps and enemies out of covered rooms.
+     */
+    DISARM {
+        @Override
+        long changes(RoomGrid.Chunk chunk, int word, long covered) {
+            return covered & chunk.trapped[word];
+        }
+
+        @Override
+        void apply(RoomGrid.Chunk chunk, int word, long changes) {
+            chunk.trapped[word] &= ~changes;
+        }
+    };
+
+    /**
+     * Works out which rooms of one flag word the effect would change.
+     *
+     * @param chunk   The chunk, which may be shared and must not be written to.
+     * @param word    Which word of the chunk's flag columns.
+     * @param covered The rooms of that word the shape covers.
+     * @return The rooms that would change.
+     */
+    abstract long changes(RoomGrid.Chunk chunk, int word, long covered);
+
+    /**
+     * Changes rooms of one flag word.
+     *
+     * @param chunk   This session's own copy of the chunk.
+     * @param word    Which word of the chunk's flag columns.
+     * @param changes The rooms to change, as given by {@link #changes}.
+     */
+    abstract void apply(RoomGrid.Chunk chunk, int word, long changes);
+
+    /**
+     * Works out which rooms of one flag word the effect acts on, counting rooms it leaves alone
+     * because they are already the way it would make them. Unless an effect says otherwise, these
+     * are just the rooms it changes.
+     *
+     * @param chunk   The chunk, which may be shared and must not be written to.
+     * @param word    Which word of the chunk's flag columns.
+     * @param covered The rooms of that word the shape covers.
+     * @return The rooms acted on.
+     */
+    long targets(RoomGrid.Chunk chunk, int word, long covered) {
+        return changes(chunk, word, covered);
+    }
+}
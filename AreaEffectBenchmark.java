@@ -0,0 +1,52 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This class measures area spells on  *//
+//*              a big cave level: how long a radius *//
+//*              freeze takes against the number of  *//
+//*              rooms it covers.                    *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+import java.util.SplittableRandom;
+
+/**
+ * Casts alternating radius freezes and thaws through {@link Dungeon#applyArea} at random spots.
+ */
+final class AreaEffectBenchmark {
+
+    private AreaEffectBenchmark() {
+    }
+
+    /**
+     * Measures a radius freeze on a big cave level against the number of rooms it covers.
+     * Arguments: the level size (default 4096), the radius (default 50) and the number of casts (default 10000).
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+        int radius = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int casts = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+
+        WorldTemplate world = WorldTemplate.generate(1, size, new CaveGenerator(), 1);
+        Dungeon dungeon = new Dungeon(world);
+        dungeon.setOutput(DiscardSink.INSTANCE);
+        dungeon.initialize();
+        AreaShape shape = AreaShape.radius(radius);
+        SplittableRandom random = new SplittableRandom(1);
+
+        long covered = 0, changed = 0;
+        long start = System.nanoTime();
+        for (int cast = 0; cast < casts; cast++) {
+            int x = random.nextInt(size), y = random.nextInt(size);
+            covered += AreaShape.count(shape, dungeon.getLevelTiles(1), x, y);
+            changed += dungeon.applyArea(1, x, y, shape, cast % 2 == 0 ? AreaEffect.FREEZE : AreaEffect.THAW);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d radius-%d casts on a %dx%d level in %.2f s: %.1f µs per cast, %d rooms covered and %d changed per cast%n",
+                casts, radius, size, size, seconds, seconds * 1e6 / casts, covered / casts, changed / casts);
+    }
+}
@@ -0,0 +1,243 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This interface is the shape of an   *//
+//*              area spell: the rooms next to the   *//
+//*              player, every room within a radius, *//
+//*              a line or a cone in one direction,  *//
+//*              or every room the spell can reach   *//
+//*              without passing through a wall. A   *//
+//*              shape lists its rooms a row at a    *//
+//*              time, so a big area can be changed  *//
+//*              many rooms at once.                 *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+
+/**
+ * The set of rooms an area effect covers around a point, on a level of any size.
+ * <p>
+ * A shape reports its rooms as spans: runs of neighbouring rooms in one row, already cut off at the
+ * edges of the level. {@link RoomGrid} turns each span into a few bit masks over its flag columns,
+ * so applying an effect costs time in proportion to the rows covered, not the whole level, and no
+ * {@link Room} objects are made. Spans never overlap.
+ */
+public interface AreaShape {
+
+    /**
+     * Receives the spans of a shape.
+     */
+    @FunctionalInterface
+    interface Spans {
+        /**
+         * Takes one span of rooms.
+         *
+         * @param x     The row.
+         * @param fromY The first column, at least 0.
+         * @param toY   The last column, at most size - 1, and at least fromY.
+         */
+        void span(int x, int fromY, int toY);
+    }
+
+    /**
+     * The four directions a line or cone can point in.
+     */
+    enum Direction {
+        NORTH(-1, 0),
+        EAST(0, 1),
+        SOUTH(1, 0),
+        WEST(0, -1);
+
+        private final int dx, dy; // One step in this direction, as a change of row and column.
+
+        Direction(int dx, int dy) {
+            this.dx = dx;
+            this.dy = dy;
+        }
+    }
+
+    /**
+     * Lists the rooms the shape covers when centred on a room.
+     *
+     * @param tiles The level's layout, for its size and walls.
+     * @param x     The row of the centre.
+     * @param y     The column of the centre.
+     * @param spans Receives the covered rooms, a row at a time.
+     */
+    void cover(LevelTiles tiles, int x, int y, Spans spans);
+
+    /**
+     * The four rooms next to the centre (above, below, left and right), as the classic Freeze Spell reaches.
+     *
+     * @return The shape.
+     */
+    static AreaShape adjacent() {
+        return (tiles, x, y, spans) -> {
+            int last = tiles.getSize() - 1;
+            if (x > 0) spans.span(x - 1, y, y); // The room above.
+            if (y > 0) spans.span(x, y - 1, y - 1); // The room to the left.
+            if (y < last) spans.span(x, y + 1, y + 1); // The room to the right.
+            if (x < last) spans.span(x + 1, y, y); // The room below.
+        };
+    }
+
+    /**
+     * Every room within a distance of the centre (a disc), centre included.
+     *
+     * @param radius How far the area reaches, in rooms.
+     * @return The shape.
+     * @throws IllegalArgumentException if the radius is negative
+     */
+    static AreaShape radius(int radius) {
+        if (radius < 0) {
+            throw new IllegalArgumentException("Invalid radius: " + radius);
+        }
+        // The half-width of each row of the disc, worked out once for the shape.
+        int[] halfWidths = new int[radius + 1];
+        for (int dx = 0; dx <= radius; dx++) {
+            halfWidths[dx] = (int) Math.floor(Math.sqrt((double) radius * radius - (double) dx * dx));
+        }
+        return (tiles, x, y, spans) -> {
+            int size = tiles.getSize();
+            for (int dx = -radius; dx <= radius; dx++) {
+                int half = halfWidths[Math.abs(dx)];
+                span(spans, size, x + dx, y - half, y + half);
+            }
+        };
+    }
+
+    /**
+     * A straight line of rooms leading away from the centre, centre not included.
+     *
+     * @param direction Which way the line points.
+     * @param length    How many rooms long it is.
+     * @return The shape.
+     * @throws IllegalArgumentException if the length is negative
+     */
+    static AreaShape line(Direction direction, int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Invalid length: " + length);
+        }
+        return (tiles, x, y, spans) -> {
+            int size = tiles.getSize();
+            if (direction.dx == 0) {
+                // Along the row: one span.
+                span(spans, size, x, direction.dy > 0 ? y + 1 : y - length, direction.dy > 0 ? y + length : y - 1);
+            } else {
+                // Down a column: one room per row.
+                for (int step = 1; step <= length; step++) {
+                    span(spans, size, x + step * direction.dx, y, y);
+                }
+            }
+        };
+    }
+
+    /**
+     * A quarter-circle cone of rooms widening away from the centre (each step out is one room wider on
+     * both sides), centre not included.
+     *
+     * @param direction Which way the cone points.
+     * @param length    How many rooms deep it is.
+     * @return The shape.
+     * @throws IllegalArgumentException if the length is negative
+     */
+    static AreaShape cone(Direction direction, int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Invalid length: " + length);
+        }
+        return (tiles, x, y, spans) -> {
+            int size = tiles.getSize();
+            if (direction.dx != 0) {
+                // Pointing up or down: row number step holds the rooms within step columns of the centre.
+                for (int step = 1; step <= length; step++) {
+                    span(spans, size, x + step * direction.dx, y - step, y + step);
+                }
+            } else {
+                // Pointing left or right: each row holds the rooms at least as far out as the row is from the centre.
+                for (int dx = -length; dx <= length; dx++) {
+                    int near = Math.max(1, Math.abs(dx));
+                    if (direction.dy > 0) {
+                        span(spans, size, x + dx, y + near, y + length);
+                    } else {
+                        span(spans, size, x + dx, y - length, y - near);
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Every room reachable from the centre in a number of steps (up, down, left or right) without
+     * passing through a wall, centre included. Nothing spreads into or past a wall.
+     *
+     * @param steps How many steps the effect spreads.
+     * @return The shape.
+     * @throws IllegalArgumentException if the number of steps is negative
+     */
+    static AreaShape floodFill(int steps) {
+        if (steps < 0) {
+            throw new IllegalArgumentException("Invalid number of steps: " + steps);
+        }
+        Direction[] directions = Direction.values();
+        return (tiles, x, y, spans) -> {
+            if (tiles.get(x, y) == Dungeon.WALL) return;
+            int size = tiles.getSize();
+
+            // Only the box the fill can reach (steps each way, cut off at the edges) is tracked,
+            // so the work depends on the steps, not the level size.
+            int top = Math.max(0, x - steps), left = Math.max(0, y - steps);
+            int height = Math.min(size - 1, x + steps) - top + 1, width = Math.min(size - 1, y + steps) - left + 1;
+            long[] seen = new long[(height * width + 63) / 64];
+            int[] queue = new int[height * width];
+            int head = 0, tail = 0;
+            queue[tail++] = x * size + y;
+            int first = (x - top) * width + (y - left); // The centre's place in the box.
+            seen[first >> 6] |= 1L << first;
+
+            // Breadth first, one ring of steps at a time.
+            for (int ring = 0; ring <= steps && head < tail; ring++) {
+                int ringEnd = tail;
+                while (head < ringEnd) {
+                    int cell = queue[head++];
+                    int cx = cell / size, cy = cell % size;
+                    spans.span(cx, cy, cy);
+                    if (ring == steps) continue;
+                    for (Direction direction : directions) {
+                        int nx = cx + direction.dx, ny = cy + direction.dy;
+                        if (nx < 0 || nx >= size || ny < 0 || ny >= size || tiles.get(nx, ny) == Dungeon.WALL) continue;
+                        int local = (nx - top) * width + (ny - left);
+                        if ((seen[local >> 6] & (1L << local)) != 0) continue;
+                        seen[local >> 6] |= 1L << local;
+                        queue[tail++] = nx * size + ny;
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Passes on the part of a span that lies on the level, if any.
+     */
+    private static void span(Spans spans, int size, int x, int fromY, int toY) {
+        if (x < 0 || x >= size) return;
+        int from = Math.max(0, fromY), to = Math.min(size - 1, toY);
+        if (from <= to) spans.span(x, from, to);
+    }
+
+    /**
+     * Counts the rooms a shape covers, for reports and benchmarks.
+     *
+     * @param shape The shape.
+     * @param tiles The level's layout.
+     * @param x     The row of the centre.
+     * @param y     The column of the centre.
+     * @return How many rooms it covers.
+     */
+    static int count(AreaShape shape, LevelTiles tiles, int x, int y) {
+        int[] rooms = new int[1];
+        shape.cover(tiles, x, y, (row, fromY, toY) -> rooms[0] += toY - fromY + 1);
+        return rooms[0];
+    }
+}
@@ -0,0 +1,42 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This interface is how a simulated   *//
+//*              player decides what to do. Each     *//
+//*              turn it gets the game's state and   *//
+//*              makes one move, like a real player  *//
+//*              typing one command.                 *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+import java.util.SplittableRandom;
+
+/**
+ * Plays the game in place of a person, for simulations.
+ * One policy is shared by every game in a batch, across threads, so it must not keep state of its own;
+ * anything random should come from the stream it is given.
+ */
+public interface BotPolicy {
+
+    /**
+     * Takes one turn, such as moving, picking up an item or using one.
+     *
+     * @param dungeon The dungeon being played.
+     * @param player  The simulated player.
+     * @param random  This game's random stream for the bot's choices.
+     */
+    void takeTurn(Dungeon dungeon, Player player, SplittableRandom random);
+
+    /**
+     * Answers a question the game asks part way through a turn, such as
+     * "Would you like to use the Freeze Spell? (yes/no)".
+     *
+     * @param player The simulated player.
+     * @return The answer, as the player would type it.
+     */
+    default String answer(Player player) {
+        return "yes";
+    }
+}
@@ -18,96 +18,121 @@ package dungeongame;
 //* Date: 08/12/2024                                 *//
 //****************************************************//
 
-import java.util.Random;
-import java.util.Scanner;
+import java.util.SplittableRandom;
 
 // The Box class represents a special item that can contain random objects like potions
 public class Box extends Item {
 
-    // A list of possible items that could be inside the box
-    private final String[] contents = {"Sleeping Potion", "X-Ray Potion"};
+    // What could be inside the box, by their number in the item registry: either potion, equally likely
+    static final LootTable CLASSIC_CONTENTS = LootTable.uniform(ItemRegistry.SLEEPING_POTION, ItemRegistry.X_RAY_POTION);
 
     // The item currently inside the box (chosen randomly)
-    private String content;
+    private final ItemDefinition content;
 
-    // Constructor: Sets up the box with a name and something random inside it
-    public Box() {
-        super("Box"); // Call the Item class constructor and set the name to "Box"
-        this.content = randomContent(); // Pick a random item to place in the box
+    // Constructor: Sets up the box with a name and something random inside it,
+    // using a random stream from the game's GameRandom so the box is the same every run with the same seed
+    public Box(SplittableRandom random) {
+        this(random, CLASSIC_CONTENTS);
     }
 
-    // Randomly selects an item from the contents array
-    private String randomContent() {
-        Random random = new Random(); // Create a Random object
-        return contents[random.nextInt(contents.length)]; // Pick and return a random item
+    // Constructor: Sets up the box with something rolled from its own loot table inside it
+    public Box(SplittableRandom random, LootTable contents) {
+        super("Box"); // Call the Item class constructor and set the name to "Box"
+        if (contents.canRollNothing()) {
+            throw new IllegalArgumentException("A box's loot table must always give an item");
+        }
+        this.content = ItemRegistry.get(contents.roll(random)); // Roll the table for the item to place in the box
     }
 
     // Lets other parts of the program see what is inside the box
-    public String getContent() {
+    public ItemDefinition getContent() {
         return content;
     }
 
-    // This is what happens if a player tries to use the box without opening it
-    @Override
-    public void use(Player player) {
-        System.out.println("You need a Spanner to open this box."); // Message for the player
+    // This is what happens if a player tries to use the box without opening it (a Box's effect in the item registry)
+    static void needsTool(Player player, Item box) {
+        OutputSink output = player.getOutput(); // Messages go to this player's output.
+        ItemDefinition tool = ItemRegistry.get(box.getDefinition().getRequiredTool());
+        output.printf("You need a %s to open this box.%n", tool.getName()); // Message for the player
     }
 
     // Opens the box and interacts with the item inside
     public void open(Player player, Dungeon dungeon) {
-        System.out.println("Opening the box...");
+        OutputSink output = player.getOutput(); // Messages go to this player's output.
+        Prompter prompter = player.getPrompter(); // Asks the player questions and carries on when they answer.
+        output.println("Opening the box...");
 
         // Check if the item inside is a potion
-        if (getContent().equalsIgnoreCase("Sleeping Potion") || getContent().equalsIgnoreCase("X-Ray Potion")) {
-            System.out.println("The box contains a mystery potion. It could be good or evil.");
-            System.out.println("Would you like to drink the potion? (yes/no)");
+        if (content.getKind() == ItemDefinition.Kind.POTION) {
+            output.println("The box contains a mystery potion. It could be good or evil.");
+            output.println("Would you like to drink the potion? (yes/no)");
 
             // Ask the player if they want to drink the potion
-            Scanner scanner = new Scanner(System.in);
-            String response = scanner.nextLine().toLowerCase(); // Get and process the player's input
-
-            // If the player chooses to drink the potion
-            if (response.equals("yes")) {
-                if (getContent().equalsIgnoreCase("Sleeping Potion")) { // If the potion is a Sleeping Potion
-                    // Check if the player has an Alarm Clock
-                    boolean hasAlarmClock = player.hasTool("Alarm Clock");
-
-                    if (hasAlarmClock) { // If the player has an Alarm Clock
-                        System.out.println("The Sleeping Potion put you to sleep. Do you want to use the Alarm Clock to wake up? (yes/no)");
-                        String alarmResponse = scanner.nextLine().toLowerCase();
-
-                        if (alarmResponse.equals("yes")) { // If the player uses the Alarm Clock
-                            System.out.println("The Alarm Clock rings loudly, waking you up! You are saved from losing 10 power points.");
-                            player.removeItem("Alarm Clock"); // Remove the Alarm Clock from inventory
-                        } else { // If the player does not use the Alarm Clock
-                            System.out.println("Oh no! The Sleeping Potion put you to sleep. You chose not to use the Alarm Clock, so you lose 10 power points.");
-                            player.setPowerPoints(Math.max(0, player.getPowerPoints() - 10)); // Deduct 10 power points (but not below 0)
-                        }
-                    } else { // If the player does not have an Alarm Clock
-                        System.out.println("Oh no! The Sleeping Potion put you to sleep. You did not have an Alarm Clock, so you lose 10 power points.");
-                        player.setPowerPoints(Math.max(0, player.getPowerPoints() - 10)); // Deduct 10 power points (but not below 0)
-                    }
-                } else if (getContent().equalsIgnoreCase("X-Ray Potion")) { // If the potion is an X-Ray Potion
-                    System.out.println("You drank the X-Ray Potion! Now you can see the entire map of the current level.");
-                    player.revealRoomMap(dungeon); // Show the entire dungeon map
+            prompter.ask(answer -> {
+                String response = answer.toLowerCase(); // Process the player's input
+
+                // If the player chooses to drink the potion, the potion's effect comes from its definition
+                if (response.equals("yes")) {
+                    content.getEffect().use(player, this);
+                } else { // If the player chooses not to drink the potion
+                    output.println("You chose not to drink the potion.");
                 }
-            } else { // If the player chooses not to drink the potion
-                System.out.println("You chose not to drink the potion.");
-            }
+            });
         } else { // If the item inside is not a potion
-            System.out.println("The box contains: " + getContent());
-            // Add the item to the player's inventory
-            player.addItem(new Item(getContent()) {
-                @Override
-                public void use(Player player) {
-                    System.out.println("You used: " + getContent()); // Print a message when the item is used
+            output.printf("The box contains: %s%n", content.getName());
+            // Add the item to the player's inventory; what it does when used comes from its definition
+            player.addItem(new Item(content));
+        }
+
+        // Remove the box from the player's inventory once it has been opened (after any questions are answered)
+        prompter.then(() -> {
+            player.removeItem(this);
+            output.println("The Box has been opened and removed from your inventory.");
+        });
+    }
+
+    // The Sleeping Potion's effect when drunk
+    static void drinkSleepingPotion(Player player, Item box) {
+        OutputSink output = player.getOutput(); // Messages go to this player's output.
+        Prompter prompter = player.getPrompter(); // Asks the player questions and carries on when they answer.
+
+        // Check if the player has an Alarm Clock
+        boolean hasAlarmClock = player.hasItem(ItemRegistry.ALARM_CLOCK);
+
+        if (hasAlarmClock) { // If the player has an Alarm Clock
+            output.println("The Sleeping Potion put you to sleep. Do you want to use the Alarm Clock to wake up? (yes/no)");
+            prompter.ask(alarmAnswer -> {
+                String alarmResponse = alarmAnswer.toLowerCase();
+
+                if (alarmResponse.equals("yes")) { // If the player uses the Alarm Clock
+                    output.println("The Alarm Clock rings loudly, waking you up! You are saved from losing 10 power points.");
+                    player.removeItem(ItemRegistry.ALARM_CLOCK); // Remove the Alarm Clock from inventory
+                } else { // If the player does not use the Alarm Clock
+                    output.println("Oh no! The Sleeping Potion put you to sleep. You chose not to use the Alarm Clock, so you lose 10 power points.");
+                    player.setPowerPoints(Math.max(0, player.getPowerPoints() - 10)); // Deduct 10 power points (but not below 0)
+                    fallAsleep(player);
                 }
             });
+        } else { // If the player does not have an Alarm Clock
+            output.println("Oh no! The Sleeping Potion put you to sleep. You did not have an Alarm Clock, so you lose 10 power points.");
+            player.setPowerPoints(Math.max(0, player.getPowerPoints() - 10)); // Deduct 10 power points (but not below 0)
+            fallAsleep(player);
+        }
+    }
+
+    // Sends the player to sleep for the next few turns, if they are in a dungeon
+    private static void fallAsleep(Player player) {
+        Dungeon dungeon = player.getDungeon();
+        if (dungeon != null) {
+            player.getOutput().printf("You will sleep through the next %s turns.%n", Dungeon.SLEEP_TURNS);
+            dungeon.putPlayerToSleep(Dungeon.SLEEP_TURNS);
         }
+    }
 
-        // Remove the box from the player's inventory after it has been opened
-        player.removeItem(this);
-        System.out.println("The Box has been opened and removed from your inventory.");
+    // The X-Ray Potion's effect when drunk
+    static void drinkXRayPotion(Player player, Item box) {
+        player.getOutput().println("You drank the X-Ray Potion! Now you can see the entire map of the current level.");
+        player.revealRoomMap(player.getDungeon()); // Show the entire dungeon map
     }
 }
 
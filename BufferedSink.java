@@ -0,0 +1,81 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This class collects one session's   *//
+//*              output in memory, so it can be sent *//
+//*              on (for example over the network)   *//
+//*              in one piece after each command.    *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An output sink that keeps everything written to it until it is drained.
+ * Each session should have its own; a BufferedSink is not safe to share between threads.
+ */
+public class BufferedSink extends ConsoleSink {
+
+    private final ByteArrayOutputStream bytes; // The output collected so far.
+
+    /**
+     * Creates an empty buffer.
+     */
+    public BufferedSink() {
+        this(new ByteArrayOutputStream());
+    }
+
+    private BufferedSink(ByteArrayOutputStream bytes) {
+        super(new PrintStream(bytes, false));
+        this.bytes = bytes;
+    }
+
+    /**
+     * Gets how much output is waiting.
+     *
+     * @return The number of bytes collected since the last drain.
+     */
+    public int size() {
+        return bytes.size();
+    }
+
+    /**
+     * Sends everything collected so far to a stream and empties the buffer.
+     *
+     * @param out the stream to send the output to
+     * @throws IOException if the stream can't be written
+     */
+    public void drainTo(OutputStream out) throws IOException {
+        bytes.writeTo(out);
+        out.flush();
+        bytes.reset();
+    }
+
+    /**
+     * Takes everything collected so far as bytes ready to write to a channel, and empties the buffer.
+     *
+     * @return A buffer holding the collected output, positioned at its start.
+     */
+    public ByteBuffer drainBuffer() {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        bytes.reset();
+        return buffer;
+    }
+
+    /**
+     * Takes everything collected so far as text and empties the buffer.
+     *
+     * @return The collected output.
+     */
+    public String drain() {
+        String text = bytes.toString();
+        bytes.reset();
+        return text;
+    }
+}
@@ -0,0 +1,79 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This class generates natural cave   *//
+//*              levels using a cellular automaton.  *//
+//*              The level starts as random noise    *//
+//*              and is smoothed a few times, where  *//
+//*              a tile becomes wall if most of its  *//
+//*              neighbours are walls.               *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+import java.util.SplittableRandom;
+
+/**
+ * Carves an open cave level with a cellular automaton.
+ * Caves may have pockets that are cut off, but the entrance and exit are always joined by the base class.
+ */
+public class CaveGenerator extends LevelGenerator {
+
+    private static final int WALL_CHANCE = 45 * 65536 / 100; // Chance (out of 65536) that a tile starts as wall.
+    private static final int SMOOTHING_PASSES = 4; // How many times the automaton runs.
+    private static final int WALL_THRESHOLD = 5; // A tile becomes wall if this many of its 3x3 block are walls.
+
+    @Override
+    protected void carve(char[][] tiles, SplittableRandom random) {
+        int size = tiles.length;
+
+        // Work on bytes (1 = wall, 0 = floor) so counting walls is just adding.
+        byte[][] current = new byte[size][size];
+        byte[][] next = new byte[size][size];
+        // Each random long is cut into four 16-bit rolls, so the noise costs a quarter of the draws.
+        for (int x = 0; x < size; x++) {
+            long bits = 0;
+            for (int y = 0; y < size; y++) {
+                if ((y & 3) == 0) bits = random.nextLong();
+                current[x][y] = (byte) ((bits & 0xFFFF) < WALL_CHANCE ? 1 : 0);
+                bits >>>= 16;
+            }
+        }
+
+        // Column sums of the three rows around the current row, reused while sliding along the row.
+        int[] columns = new int[size + 2];
+        for (int pass = 0; pass < SMOOTHING_PASSES; pass++) {
+            for (int x = 0; x < size; x++) {
+                // Anything outside the level counts as wall, so the edges fill in.
+                columns[0] = 3;
+                columns[size + 1] = 3;
+                for (int y = 0; y < size; y++) {
+                    int above = x > 0 ? current[x - 1][y] : 1;
+                    int below = x < size - 1 ? current[x + 1][y] : 1;
+                    columns[y + 1] = above + current[x][y] + below;
+                }
+
+                // Slide a 3-column window along the row to count the walls in each 3x3 block.
+                int walls = columns[0] + columns[1];
+                for (int y = 0; y < size; y++) {
+                    walls += columns[y + 2];
+                    next[x][y] = (byte) (walls >= WALL_THRESHOLD ? 1 : 0);
+                    walls -= columns[y];
+                }
+            }
+
+            // Swap the buffers for the next pass.
+            byte[][] swap = current;
+            current = next;
+            next = swap;
+        }
+
+        // Copy the floor tiles back into the level.
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                if (current[x][y] == 0) tiles[x][y] = Dungeon.EMPTY;
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This class is a set of cells on a   *//
+//*              level (numbered x * size + y) that  *//
+//*              can add, remove, check and pick a   *//
+//*              random member in constant time. It  *//
+//*              keeps the members packed in one     *//
+//*              array and remembers where each cell *//
+//*              sits in it.                         *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * A sparse set of cell numbers with O(1) insert, remove, membership and uniform random sampling.
+ */
+class CellIndex {
+
+    private int[] cells = new int[16]; // The members, packed at the front of the array.
+    private final int[] positions; // For each cell, its slot in cells plus one, or 0 if it isn't a member.
+    private int count; // How many cells are in the set.
+
+    /**
+     * Creates an empty set for cells numbered 0 to capacity - 1.
+     *
+     * @param capacity how many cells the level has
+     */
+    CellIndex(int capacity) {
+        this.positions = new int[capacity];
+    }
+
+    boolean contains(int cell) {
+        return positions[cell] != 0;
+    }
+
+    int size() {
+        return count;
+    }
+
+    /**
+     * Adds a cell to the set if it isn't already there.
+     *
+     * @param cell The cell to add.
+     */
+    void add(int cell) {
+        if (positions[cell] != 0) return;
+
+        // Grow the packed array when it is full.
+        if (count == cells.length) {
+            cells = Arrays.copyOf(cells, Math.min(positions.length, count * 2));
+        }
+        cells[count++] = cell;
+        positions[cell] = count;
+    }
+
+    /**
+     * Removes a cell from the set if it is there.
+     * The last member is moved into the gap, so nothing has to shift.
+     *
+     * @param cell The cell to remove.
+     */
+    void remove(int cell) {
+        int slot = positions[cell] - 1;
+        if (slot < 0) return;
+
+        int last = cells[--count];
+        cells[slot] = last;
+        positions[last] = slot + 1;
+        positions[cell] = 0;
+    }
+
+    /**
+     * Picks a member uniformly at random.
+     *
+     * @param random The random stream to draw from.
+     * @return A random cell from the set, or -1 if the set is empty.
+     */
+    int sample(SplittableRandom random) {
+        return count == 0 ? -1 : cells[random.nextInt(count)];
+    }
+}
@@ -0,0 +1,440 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This class writes down every line   *//
+//*              the players of one event loop type, *//
+//*              in order, in a file that only ever  *//
+//*              grows. Lines from many players are  *//
+//*              saved to disk together, so saving   *//
+//*              doesn't slow the game down. After a *//
+//*              crash the file is read back to put  *//
+//*              every game back where it was.       *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only write-ahead journal of the commands played by one shard of sessions.
+ * <p>
+ * Every record is framed as {@code int length | int crc32 | body}, where the body is
+ * {@code byte type | varlong session | varint sequence | payload}. Each session numbers its records
+ * from 0: a START record (payload: the world seed), then a LINE record for every line its game
+ * accepted, any number of SNAPSHOT records (payload: a {@link SessionSnapshot} of the game as it
+ * was before the next line) and finally an END record once the game is over.
+ * <p>
+ * Appending only copies the record into memory and returns where it ends. A single syncer thread
+ * writes everything appended so far and forces it to disk in one go, so sessions that type at the
+ * same moment share one fsync (group commit). Callers hold back a reply until
+ * {@link #isDurable(long)} says the command behind it has reached the disk.
+ */
+public final class CommandJournal implements AutoCloseable {
+
+    static final byte START = 1; // A new game. Payload: varlong world seed.
+    static final byte LINE = 2; // A line the game accepted. Payload: the line in UTF-8.
+    static final byte SNAPSHOT = 3; // The whole game. Payload: a session snapshot.
+    static final byte END = 4; // The game is over. No payload.
+
+    private static final int HEADER_BYTES = 8; // The length and checksum in front of every body.
+    private static final int MAX_BODY_BYTES = 16 * 1024 * 1024; // Anything longer is a damaged length.
+
+    private final FileChannel channel; // The journal file, only ever appended to.
+    private final Runnable onDurable; // Called by the syncer after each fsync.
+    private final Thread syncer; // Writes and forces batches of records.
+    private final Object lock = new Object(); // Guards everything below except durable.
+    private final CRC32 crc = new CRC32(); // Checksums record bodies as they are appended.
+    private ByteBuffer pending = ByteBuffer.allocate(64 * 1024); // Records appended but not yet written.
+    private ByteBuffer spare = ByteBuffer.allocate(64 * 1024); // Swapped in while the syncer writes the other buffer.
+    private long appended; // How many bytes have been appended since the journal was opened.
+    private volatile long durable; // How many of those bytes are safely on disk.
+    private IOException failure; // Why the syncer stopped, or null while it is working.
+    private boolean closed;
+
+    /**
+     * Creates a new journal file and starts its syncer thread.
+     *
+     * @param path      the file to create, which must not exist yet
+     * @param onDurable called from the syncer thread each time more records reach the disk
+     *                  (and once more if writing fails), for instance to wake an event loop
+     * @throws IOException if the file can't be created
+     */
+    public CommandJournal(Path path, Runnable onDurable) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        this.onDurable = onDurable;
+        this.syncer = new Thread(this::syncLoop, "journal-syncer-" + path.getFileName());
+        syncer.setDaemon(true);
+        syncer.start();
+    }
+
+    /**
+     * Appends the first record of a session.
+     *
+     * @param session the session number
+     * @param seed    the seed of the world the session plays
+     * @return Where the record ends; pass it to {@link #isDurable(long)}.
+     */
+    public long appendStart(long session, long seed) {
+        synchronized (lock) {
+            int start = begin(START, session, 0, 10);
+            SessionSnapshot.putVarlong(pending, seed);
+            return finish(start);
+        }
+    }
+
+    /**
+     * Appends a line the session's game has accepted.
+     *
+     * @param session  the session number
+     * @param sequence the record's number within the session
+     * @param line     the line as the player typed it
+     * @return Where the record ends.
+     */
+    public long appendLine(long session, int sequence, String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        synchronized (lock) {
+            int start = begin(LINE, session, sequence, bytes.length);
+            pending.put(bytes);
+            return finish(start);
+        }
+    }
+
+    /**
+     * Appends a snapshot of the session's game. Recovery starts from the last one it finds.
+     *
+     * @param session  the session number
+     * @param sequence the record's number within the session
+     * @param snapshot the snapshot, from its position to its limit; the position is left unchanged
+     * @return Where the record ends.
+     */
+    public long appendSnapshot(long session, int sequence, ByteBuffer snapshot) {
+        synchronized (lock) {
+            int start = begin(SNAPSHOT, session, sequence, snapshot.remaining());
+            pending.put(snapshot.duplicate());
+            return finish(start);
+        }
+    }
+
+    /**
+     * Appends the last record of a session whose game is over, so recovery leaves it alone.
+     *
+     * @param session  the session number
+     * @param sequence the record's number within the session
+     * @return Where the record ends.
+     */
+    public long appendEnd(long session, int sequence) {
+        synchronized (lock) {
+            return finish(begin(END, session, sequence, 0));
+        }
+    }
+
+    /**
+     * Starts a record in the pending buffer, making room for it first. Must hold the lock.
+     *
+     * @return Where the record starts in the pending buffer.
+     */
+    private int begin(byte type, long session, int sequence, int payloadBytes) {
+        if (failure != null) {
+            throw new IllegalStateException("The journal can't be written", failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("The journal is closed");
+        }
+        int needed = HEADER_BYTES + 1 + 10 + 5 + payloadBytes;
+        if (pending.remaining() < needed) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + needed));
+            pending.flip();
+            bigger.put(pending);
+            pending = bigger;
+        }
+        int start = pending.position();
+        pending.position(start + HEADER_BYTES);
+        pending.put(type);
+        SessionSnapshot.putVarlong(pending, session);
+        SessionSnapshot.putVarint(pending, sequence);
+        return start;
+    }
+
+    /**
+     * Fills in a record's length and checksum and hands it to the syncer. Must hold the lock.
+     *
+     * @return Where the record ends in the journal.
+     */
+    private long finish(int start) {
+        int end = pending.position();
+        crc.reset();
+        crc.update(pending.duplicate().position(start + HEADER_BYTES).limit(end));
+        pending.putInt(start, end - start - HEADER_BYTES);
+        pending.putInt(start + 4, (int) crc.getValue());
+        appended += end - start;
+        lock.notifyAll(); // Wake the syncer if it is idle.
+        return appended;
+    }
+
+    /**
+     * Checks whether everything up to a point in the journal is safely on disk.
+     *
+     * @param position a position returned by one of the append methods
+     * @return {@code true} once the record ending there has been forced to disk.
+     * @throws IllegalStateException if the journal could not be written
+     */
+    public boolean isDurable(long position) {
+        if (durable >= position) {
+            return true;
+        }
+        synchronized (lock) {
+            if (failure != null) {
+                throw new IllegalStateException("The journal can't be written", failure);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Waits until everything appended so far is safely on disk.
+     *
+     * @throws IOException if the journal could not be written
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void awaitDurable() throws IOException, InterruptedException {
+        synchronized (lock) {
+            while (durable < appended && failure == null) {
+                lock.wait();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * The syncer thread: writes whatever has been appended, forces it to disk, and tells the owner.
+     * Everything appended while one batch is being forced goes out together in the next.
+     */
+    private void syncLoop() {
+        try {
+            while (true) {
+                ByteBuffer batch;
+                long target;
+                synchronized (lock) {
+                    while (pending.position() == 0 && !closed) {
+                        lock.wait();
+                    }
+                    if (pending.position() == 0) {
+                        return; // Closed, and everything has been written.
+                    }
+                    batch = pending;
+                    pending = spare;
+                    target = appended;
+                }
+
+                batch.flip();
+                while (batch.hasRemaining()) {
+                    channel.write(batch);
+                }
+                channel.force(false);
+
+                synchronized (lock) {
+                    spare = batch.clear();
+                    durable = target;
+                    lock.notifyAll();
+                }
+                onDurable.run();
+            }
+        } catch (IOException e) {
+            synchronized (lock) {
+                failure = e;
+                lock.notifyAll();
+            }
+            onDurable.run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes out everything appended so far and closes the file.
+     *
+     * @throws IOException if the file can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            syncer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    /**
+     * What recovery found of one unfinished session: the state to start from and the lines to play after it.
+     */
+    static final class SessionLog {
+        private final long session;
+        private long seed; // The world seed from the START record.
+        private byte[] snapshot; // The last snapshot, or null to start a new game.
+        private final List<String> lines = new ArrayList<>(); // Lines accepted after that.
+        private int nextSequence; // The number the session's next record gets.
+
+        private SessionLog(long session) {
+            this.session = session;
+        }
+
+        long getSession() {
+            return session;
+        }
+
+        long getSeed() {
+            return seed;
+        }
+
+        byte[] getSnapshot() {
+            return snapshot;
+        }
+
+        List<String> getLines() {
+            return lines;
+        }
+
+        int getNextSequence() {
+            return nextSequence;
+        }
+
+        /**
+         * Writes this session's state into another journal, keeping its record numbers, so the files it came from can be deleted.
+         *
+         * @return Where the last record ends.
+         */
+        long copyTo(CommandJournal journal) {
+            long end = journal.appendStart(session, seed);
+            int sequence = nextSequence - lines.size();
+            if (snapshot != null) {
+                end = journal.appendSnapshot(session, sequence - 1, ByteBuffer.wrap(snapshot));
+            }
+            for (String line : lines) {
+                end = journal.appendLine(session, sequence++, line);
+            }
+            return end;
+        }
+    }
+
+    /**
+     * One record read back from a journal file.
+     */
+    private static final class Entry {
+        final long session;
+        final int sequence;
+        final byte type;
+        final byte[] payload;
+
+        Entry(long session, int sequence, byte type, byte[] payload) {
+            this.session = session;
+            this.sequence = sequence;
+            this.type = type;
+            this.payload = payload;
+        }
+    }
+
+    /**
+     * Reads journal files back after a crash and works out where every unfinished session had got to.
+     * <p>
+     * A file is read up to its first damaged record (a write torn by the crash, or a checksum that
+     * doesn't match); anything after that never reached the disk in one piece and is dropped. Each
+     * session's records are then put in order, with duplicates from an interrupted compaction
+     * removed, and folded into its last snapshot and the lines after it. A line is only replayed if
+     * every record before it is there too; a snapshot stands on its own, so a gap may come before one.
+     *
+     * @param files the journal files, in any order
+     * @return The unfinished sessions by number. Sessions that ended, or whose START record is missing, are left out.
+     * @throws IOException if a file can't be read
+     */
+    static Map<Long, SessionLog> recover(List<Path> files) throws IOException {
+        Map<Long, List<Entry>> bySession = new HashMap<>();
+        for (Path file : files) {
+            ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file));
+            CRC32 crc = new CRC32();
+            while (in.remaining() >= HEADER_BYTES) {
+                int length = in.getInt();
+                int checksum = in.getInt();
+                if (length < 0 || length > MAX_BODY_BYTES || length > in.remaining()) {
+                    break; // Torn at the end of the file.
+                }
+                ByteBuffer body = in.slice(in.position(), length);
+                crc.reset();
+                crc.update(body.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    break; // Damaged; nothing after it can be trusted.
+                }
+                in.position(in.position() + length);
+
+                byte type = body.get();
+                long session = SessionSnapshot.getVarlong(body);
+                int sequence = SessionSnapshot.getVarint(body);
+                byte[] payload = new byte[body.remaining()];
+                body.get(payload);
+                bySession.computeIfAbsent(session, s -> new ArrayList<>()).add(new Entry(session, sequence, type, payload));
+            }
+        }
+
+        Map<Long, SessionLog> sessions = new HashMap<>();
+        for (List<Entry> entries : bySession.values()) {
+            entries.sort((a, b) -> Integer.compare(a.sequence, b.sequence));
+            SessionLog log = fold(entries);
+            if (log != null) {
+                sessions.put(log.session, log);
+            }
+        }
+        return sessions;
+    }
+
+    /**
+     * Folds one session's records, already in order, into where its game had got to.
+     *
+     * @return The session's log, or null if the game ended or never properly started.
+     */
+    private static SessionLog fold(List<Entry> entries) {
+        Entry first = entries.get(0);
+        if (first.type != START || first.sequence != 0) {
+            return null;
+        }
+        SessionLog log = new SessionLog(first.session);
+        log.seed = SessionSnapshot.getVarlong(ByteBuffer.wrap(first.payload));
+        int previous = 0;
+        for (Entry entry : entries.subList(1, entries.size())) {
+            if (entry.sequence == previous) {
+                continue; // The same record, written again by a compaction.
+            }
+            if (entry.type == END) {
+                return null;
+            }
+            if (entry.type == SNAPSHOT) {
+                log.snapshot = entry.payload;
+                log.lines.clear();
+            } else if (entry.type == LINE && entry.sequence == previous + 1) {
+                log.lines.add(new String(entry.payload, StandardCharsets.UTF_8));
+            } else {
+                break; // A line is missing, so nothing after it can be replayed.
+            }
+            previous = entry.sequence;
+        }
+        log.nextSequence = previous + 1;
+        return log;
+    }
+}
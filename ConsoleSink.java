@@ -0,0 +1,57 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This class sends the game's output  *//
+//*              to a print stream, normally the     *//
+//*              console (System.out).               *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+import java.io.PrintStream;
+
+/**
+ * An output sink that writes straight to a print stream.
+ */
+public class ConsoleSink implements OutputSink {
+
+    private final PrintStream out; // Where the output goes.
+
+    /**
+     * Creates a sink that writes to the console.
+     */
+    public ConsoleSink() {
+        this(System.out);
+    }
+
+    /**
+     * Creates a sink that writes to a print stream.
+     *
+     * @param out the stream to write to
+     */
+    public ConsoleSink(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void print(String text) {
+        out.print(text);
+    }
+
+    @Override
+    public void println(String text) {
+        out.println(text);
+    }
+
+    @Override
+    public void printf(String format, Object... args) {
+        out.printf(format, args);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+        out.write(bytes, offset, length);
+        out.flush();
+    }
+}
@@ -0,0 +1,76 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This class reads the player's input *//
+//*              from a stream, normally the         *//
+//*              keyboard (System.in). Every prompt  *//
+//*              shares the same reader, so nothing  *//
+//*              the player types ahead is lost.     *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.util.NoSuchElementException;
+
+/**
+ * An input source that reads lines from a stream, blocking until each one arrives.
+ */
+public class ConsoleSource implements InputSource {
+
+    private static ConsoleSource system; // The shared reader of System.in, made when first needed.
+
+    private final BufferedReader reader; // Reads the stream a line at a time.
+    private String pending; // A line read by hasNextLine() but not yet returned.
+    private boolean ended; // Whether the stream has run out.
+
+    /**
+     * Creates a source that reads from a stream.
+     *
+     * @param in the stream to read from
+     */
+    public ConsoleSource(InputStream in) {
+        this.reader = new BufferedReader(new InputStreamReader(in));
+    }
+
+    /**
+     * Gets the source that reads the keyboard.
+     * There is only one, because two readers of System.in would each take input the other needs.
+     *
+     * @return The shared keyboard source.
+     */
+    public static synchronized ConsoleSource system() {
+        if (system == null) {
+            system = new ConsoleSource(System.in);
+        }
+        return system;
+    }
+
+    @Override
+    public synchronized boolean hasNextLine() {
+        if (pending == null && !ended) {
+            try {
+                pending = reader.readLine();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            ended = pending == null;
+        }
+        return pending != null;
+    }
+
+    @Override
+    public synchronized String nextLine() {
+        if (!hasNextLine()) {
+            throw new NoSuchElementException("No more input");
+        }
+        String line = pending;
+        pending = null;
+        return line;
+    }
+}
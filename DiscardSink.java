@@ -0,0 +1,52 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This class throws away everything   *//
+//*              the game says. It is used when no   *//
+//*              one is watching, such as in batch   *//
+//*              simulations, and never formats a    *//
+//*              message or draws the map.           *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+
+/**
+ * An output sink that discards all output without formatting it.
+ */
+public final class DiscardSink implements OutputSink {
+
+    /**
+     * The only instance. It holds no state, so every headless game can share it.
+     */
+    public static final DiscardSink INSTANCE = new DiscardSink();
+
+    private DiscardSink() {
+    }
+
+    @Override
+    public void print(String text) {
+    }
+
+    @Override
+    public void println(String text) {
+    }
+
+    @Override
+    public void println() {
+    }
+
+    @Override
+    public void printf(String format, Object... args) {
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+    }
+
+    @Override
+    public boolean isDiscarding() {
+        return true;
+    }
+}
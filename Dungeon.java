@@ -18,25 +18,45 @@ package dungeongame;
 //* Date: 24/11/2024                                 *//
 //****************************************************//
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Random;
-import java.util.Scanner;
+import java.util.SplittableRandom;
 public class Dungeon {
     /**
-     * A dictionary that keeps track of the dungeon levels. Each level is a 2D grid of rooms.
+     * A dictionary that keeps track of the dungeon levels. Each level is a grid of rooms built in chunks as they are explored.
      */
-    private final Map<Integer, Room[][]> levels = new HashMap<>();
+    private final Map<Integer, RoomGrid> levels = new HashMap<>();
 
     /**
-     * A 2D grid showing which parts of the dungeon the player has explored.
+     * What the player has seen, visited and marked on each level, made when they first reach it.
+     * Each level keeps its own fog, so moving to a new level doesn't forget the old ones.
      */
-    private final char[][] exploredMap;
+    private final FogOfWar[] fog;
 
     /**
-     * A 3D grid showing how the whole dungeon is laid out across all its levels.
+     * Draws the player's map into a reusable buffer and writes it out in one call.
      */
-    private final char[][][] dungeons;
+    private MapRenderer mapRenderer;
+
+    /**
+     * Where the dungeon's messages are sent. The console unless changed.
+     */
+    private OutputSink output = new ConsoleSink();
+
+    /**
+     * The world this dungeon starts from. It is shared with every other game of the same world,
+     * and this dungeon only keeps what its own player changes.
+     */
+    private final WorldTemplate template;
+
+    /**
+     * The tile layout of every level, showing how the whole dungeon is laid out.
+     * These are the template's tiles until this game changes one.
+     */
+    private final LevelTiles[] dungeons;
 
     /**
      * The total number of levels in the dungeon.
@@ -49,11 +69,33 @@ public class Dungeon {
     private final int size;
 
     // Symbols that show the different kinds of things you might find in a room.
-    private static final char WALL = 'W'; // A wall you can’t walk through
-    private static final char EMPTY = ' '; // An empty room
-    private static final char ENTRANCE = 'E'; // Where you enter the dungeon
-    private static final char EXIT = 'X'; // Where you leave the dungeon
-    private static final char TREASURE = 'T'; // Treasure to collect
+    static final char WALL = 'W'; // A wall you can’t walk through
+    static final char EMPTY = ' '; // An empty room
+    static final char ENTRANCE = 'E'; // Where you enter the dungeon
+    static final char EXIT = 'X'; // Where you leave the dungeon
+    static final char TREASURE = 'T'; // Treasure to collect
+
+    // How many power points falling into a trap costs.
+    static final int TRAP_DAMAGE = 5;
+
+    // How many turns a Freeze Spell keeps rooms frozen, and how many turns a Sleeping Potion's sleep lasts.
+    static final int FREEZE_TURNS = 10;
+    static final int SLEEP_TURNS = 2;
+
+    // The kinds of timed effect.
+    private static final int THAW = 1; // Target: the level and cell of a frozen room.
+    private static final int WAKE = 2; // Target: unused.
+    private static final int POISON = 3; // Target: the damage per turn and the turns left.
+
+    // The items rooms can hold, by item registry number, in the order of each game's item pool.
+    // The level templates store a room's item as its place in this list.
+    static final int[] POOL_ITEMS = {
+            ItemRegistry.TELEPORTATION_SPELL, ItemRegistry.FREEZE_SPELL, ItemRegistry.HAMMER, ItemRegistry.SPANNER,
+            ItemRegistry.ALARM_CLOCK, ItemRegistry.CAKE, ItemRegistry.SANDWICH, ItemRegistry.BOX
+    };
+
+    // The classic loot for a room that gets an item: any item of the pool, all equally likely.
+    static final LootTable CLASSIC_ROOM_LOOT = LootTable.uniform(POOL_ITEMS);
 
     /**
      * A dictionary that gives descriptions for what’s in different rooms.
@@ -61,25 +103,140 @@ public class Dungeon {
     private final Map<String, String> roomContents = new HashMap<>();
 
 
+    /**
+     * The random service for this game. Every random choice the dungeon makes comes from one of its streams.
+     */
+    private final GameRandom random;
+
+    /**
+     * How many times the player has teleported. Each teleport draws from its own stream keyed by this
+     * count, so a game restored from a snapshot lands in the same places as the original.
+     */
+    private int teleports;
+
+    /**
+     * The random stream used by {@link #revealRandomItem()}.
+     */
+    private final SplittableRandom revealRandom;
+
+    /**
+     * Answers path questions about the levels, such as how far the exit is. Made when first asked for.
+     */
+    private PathFinder pathFinder;
+
+    /**
+     * The items that can be found in rooms. Rooms share these, as they always have.
+     */
+    private Item[] itemPool;
+
+    /**
+     * Effects that wear off after a number of turns (frozen rooms, sleep, poison), keyed on the game's turn.
+     */
+    private final TurnWheel timedEffects = new TurnWheel();
+    private final TurnWheel.Expiry timerExpiry = this::onTimer;
+
+    /**
+     * The thaw timer of each room frozen for a while, by level and cell (level << 32 | x * size + y).
+     */
+    private final Map<Long, Integer> thawTimers = new HashMap<>();
+
+    // The player's sleep and poison timers, or TurnWheel.NONE.
+    private int sleepTimer = TurnWheel.NONE;
+    private int poisonTimer = TurnWheel.NONE;
+
+    // What the timers that fired this turn did, for telling the player.
+    private boolean wokeUp;
+    private int poisonDamage;
+
     /**
      * Builds a Dungeon with the given number of levels and the size for each level.
      * Sets up the explored map and plans out how the different levels of the dungeon will look.
+     * The classic game (3 levels of 5x5) uses the hand-made layouts; any other shape is
+     * generated as a maze from a random seed.
      *
      * @param levelCount the total number of levels in the dungeon
      * @param size       how big each level is (e.g., 5x5)
      */
 
     public Dungeon(int levelCount, int size) {
-        // Set how many levels there are and how big each level will be.
-        this.levelCount = levelCount;
-        this.size = size;
+        this(levelCount, size, levelCount == 3 && size == 5 ? null : new MazeGenerator(), System.nanoTime());
+    }
+
+    /**
+     * Builds a Dungeon whose levels are made by a level generator from a seed.
+     * Each level is generated on its own core, and the same seed always gives the same dungeon.
+     *
+     * @param levelCount the total number of levels in the dungeon
+     * @param size       how big each level is (size x size)
+     * @param generator  the generator that lays out each level, or null for the classic 3-level layouts
+     * @param seed       the master seed that decides every level's layout and contents
+     */
+    public Dungeon(int levelCount, int size, LevelGenerator generator, long seed) {
+        this(WorldTemplate.generate(levelCount, size, generator, seed));
+    }
 
-        // Make a map to track what parts of the dungeon the player has explored.
-        this.exploredMap = new char[size][size]; // Tracks what the player has seen so far.
-        initializeExploredMap(); // Fill the explored map with default values.
+    /**
+     * Builds a Dungeon from a binary level file.
+     * The file's tile planes stay mapped in memory and are only read as the player reaches them,
+     * so even a huge world opens straight away.
+     *
+     * @param levelFile the opened level file
+     */
+    public Dungeon(LevelFile levelFile) {
+        this(WorldTemplate.load(levelFile));
+    }
 
-        // Set up the dungeon layouts for each level using a 3D grid.
-        this.dungeons = new char[][][]{
+    /**
+     * Builds a Dungeon that starts from a shared world.
+     * Any number of dungeons can be made from the same template: each reads the template's levels
+     * directly and only copies a chunk of rooms (or a level's tiles) once its own player changes it.
+     *
+     * @param template the world to start from
+     */
+    public Dungeon(WorldTemplate template) {
+        // Take the shape and seed of the dungeon from the template.
+        this.template = template;
+        this.levelCount = template.getLevelCount();
+        this.size = template.getSize();
+        this.random = template.getRandom();
+        this.revealRandom = random.stream(GameRandom.REVEAL, 0);
+
+        // The fog of each level is made when the player first gets there.
+        this.fog = new FogOfWar[levelCount];
+        this.mapRenderer = new MapRenderer(size, false);
+
+        // Start from the template's tiles; a level is only copied if this game changes it.
+        this.dungeons = new LevelTiles[levelCount];
+        for (int lvl = 0; lvl < levelCount; lvl++) {
+            dungeons[lvl] = template.getLevel(lvl + 1).getTiles();
+        }
+    }
+
+    /**
+     * Saves the dungeon's layout, entrances and Mad Scientists to a binary level file.
+     *
+     * @param path the file to write
+     * @throws IOException If the file can't be written.
+     */
+    public void save(Path path) throws IOException {
+        // Each level's entity table holds its Mad Scientist, if one has been placed.
+        int[][] entrances = new int[levelCount][];
+        int[][] entities = new int[levelCount][];
+        for (int lvl = 0; lvl < levelCount; lvl++) {
+            entrances[lvl] = template.getLevel(lvl + 1).getEntrance();
+            int cell = template.getLevel(lvl + 1).getScientistCell();
+            entities[lvl] = cell < 0 ? new int[0] : new int[]{cell / size, cell % size, LevelFile.MAD_SCIENTIST};
+        }
+        LevelFile.write(path, random.getSeed(), dungeons, entrances, entities);
+    }
+
+    /**
+     * Builds the three hand-made 5x5 levels of the classic game.
+     *
+     * @return A 3D grid with the layout of each classic level.
+     */
+    static char[][][] classicLayouts() {
+        return new char[][][]{
                 { // Level 1: Simple layout with walls, an entrance, and an exit.
                         {WALL, EMPTY, EMPTY, EXIT, EMPTY},
                         {WALL, EMPTY, EMPTY, EMPTY, EMPTY},
@@ -104,139 +261,404 @@ public class Dungeon {
         };
     }
 
+    /**
+     * Finds the first tile with the given symbol in a level.
+     *
+     * @param level  the level grid to search
+     * @param symbol the tile symbol to look for
+     * @return The position of the tile as [x, y].
+     * @throws IllegalStateException If the level has no such tile.
+     */
+    static int[] findTile(LevelTiles level, char symbol) {
+        for (int i = 0; i < level.getSize(); i++) {
+            for (int j = 0; j < level.getSize(); j++) {
+                if (level.get(i, j) == symbol) {
+                    return new int[]{i, j};
+                }
+            }
+        }
+        throw new IllegalStateException("Level has no '" + symbol + "' tile");
+    }
+
 
     /**
-     * Initialises the dungeon by creating a grid of rooms for each level and populating them with default descriptions.
-     * Also populates the dungeon with items after all rooms are created.
+     * Initialises the dungeon by creating a grid of rooms for each level.
+     * The grids start out as views of the world template's rooms and only copy a chunk
+     * the first time this game changes something in it.
      */
     public void initialize() {
+        // Make this game's own items; the template's rooms refer to them by number.
+        populateItems();
+
         // Go through each level in the dungeon one by one.
         for (int lvl = 0; lvl < levelCount; lvl++) {
-            // Make a 2D grid of rooms for this level. It's like a map for the level.
-            Room[][] level = new Room[size][size];
-
-            // Fill the grid with rooms.
-            for (int i = 0; i < size; i++) {
-                for (int j = 0; j < size; j++) {
-                    // Make each room and give it a default description.
-                    level[i][j] = new Room("");
-                }
-            }
+            final int levelNumber = lvl + 1;
+            LevelTemplate level = template.getLevel(levelNumber);
 
             // Save this level's grid into the dungeon's list of levels.
             // Each level has a number starting from 1.
-            levels.put(lvl + 1, level);
-        }
+            levels.put(levelNumber, new RoomGrid(level, itemPool,
+                    (x, y) -> new MadScientist(random.forEntity(levelNumber, (long) x * size + y))));
 
-        // Once all the rooms are ready, put items into the dungeon.
-        populateItems();
-    }
-
-    /**
-     * Sets up the explored map so all tiles start as unexplored.
-     * This is done when building the dungeon before the game begins.
-     */
-    private void initializeExploredMap() {
-        // Go through each row in the map.
-        for (int i = 0; i < size; i++) {
-            // Go through each column in the current row.
-            for (int j = 0; j < size; j++) {
-                // Mark this tile as unexplored by putting '?' in it.
-                exploredMap[i][j] = '?';
+            int cell = level.getScientistCell();
+            if (cell >= 0) {
+                output.printf("Mad Scientist added to Level %s at (%s, %s)%n", levelNumber, cell / size, cell % size);
             }
         }
     }
 
     /**
      * Fills the dungeon with a set of items that players can find.
-     * These items will be placed randomly during the game.
+     * Where each item, enemy, trap and Mad Scientist goes is decided by the world template
+     * when a chunk of rooms is first explored.
      */
     private void populateItems() {
-        Random random = new Random();
-
-        // List of items to be added to the dungeon
-        Item[] items = {
-                new Spell("Teleportation Spell", this),
-                new Spell("Freeze Spell", this),
+        // List of items to be added to the dungeon, in the order of POOL_ITEMS
+        itemPool = new Item[]{
+                new Spell("Teleportation Spell"),
+                new Spell("Freeze Spell"),
                 new Tool("Hammer"),
                 new Tool("Spanner"),
                 new Tool("Alarm Clock"),
                 new Food("Cake"),
                 new Food("Sandwich"),
-                new Box()
+                new Box(random.stream(GameRandom.BOX, 0))
         };
+    }
 
-        // Loop through all levels in the dungeon, starting from level 1 up to the total number of levels
-        for (int lvl = 1; lvl <= levelCount; lvl++) {
-            // Get the 2D array of rooms for the current level from the levels collection
-            Room[][] levelRooms = levels.get(lvl);
+    /**
+     * Finds an item's place in the item pool.
+     *
+     * @param item The item's registry number.
+     * @return Its place in {@link #POOL_ITEMS}, or -1 if rooms can't hold it.
+     */
+    static int poolSlot(int item) {
+        for (int slot = 0; slot < POOL_ITEMS.length; slot++) {
+            if (POOL_ITEMS[slot] == item) return slot;
+        }
+        return -1;
+    }
 
-            boolean madScientistPlaced = false; // Track if a Mad Scientist is placed for this level
+    /**
+     * Gets the number of levels in the dungeon.
+     *
+     * @return The total number of levels.
+     */
+    public int getLevelCount() {
+        return levelCount;
+    }
 
-            // Loop through the rows of the levelRooms grid
-            for (int i = 0; i < size; i++) {
-                // Loop through the columns of the current row
-                for (int j = 0; j < size; j++) {
-                    // Get the specific room at position (i, j) in the grid
-                    Room room = levelRooms[i][j];
+    /**
+     * Gets the random service that every random choice in this game comes from.
+     *
+     * @return The game's random service.
+     */
+    public GameRandom getRandom() {
+        return random;
+    }
 
-                    // Randomly decide if the room gets an item
-                    if (random.nextBoolean() && room.isEmpty()) {
-                        int itemIndex = random.nextInt(items.length);
-                        room.addItem(items[itemIndex]);
-                    }
+    /**
+     * Gets the size of the dungeon levels.
+     * Each level is assumed to have square dimensions (same number of rows and columns).
+     *
+     * @return The size of one side of the dungeon level.
+     */
+    public int getSize() {
+        // Give back the size of the dungeon.
+        return this.size;
+    }
 
-                    // Place a Mad Scientist in one room per level
-                    if (!madScientistPlaced && random.nextInt(10) == 0 && room.isEmpty()) {
-                        room.setMadScientist(new MadScientist());
-                        madScientistPlaced = true; // Mark that the Mad Scientist has been placed
-                        System.out.println("Mad Scientist added to Level " + lvl + " at (" + i + ", " + j + ")");
-                    }
+    /**
+     * Retrieves the tile layout of one level of the dungeon.
+     *
+     * @param level The dungeon level (starts from 1).
+     * @return The level's tiles, showing walls, the entrance, the exit and any treasure.
+     */
+    public LevelTiles getLevelTiles(int level) {
+        return dungeons[level - 1]; // Return the tile plane for this level
+    }
 
-                    // Randomly decide if the room gets enemies or traps (12.5% chance)
-                    if (random.nextInt(8) == 0 && room.isEmpty()) {
-                        room.setHasEnemiesOrTraps(true);
-                    }
-                }
+    /**
+     * Applies an area effect, such as freezing, to every room a shape covers around a room.
+     * The rooms are changed in bulk through the level's flag bitsets; no rooms are visited one by one.
+     *
+     * @param level  The dungeon level (starts from 1).
+     * @param x      The row of the centre.
+     * @param y      The column of the centre.
+     * @param shape  Which rooms around the centre are covered.
+     * @param effect What happens to them.
+     * @return How many rooms changed.
+     * @throws IllegalArgumentException If the level or position is outside valid limits.
+     */
+    public int applyArea(int level, int x, int y, AreaShape shape, AreaEffect effect) {
+        return applyArea(level, x, y, shape, effect, null);
+    }
+
+    /**
+     * Freezes the traps and enemies in every room a shape covers around a room, for a number of turns.
+     * Each covered room with traps or enemies gets its own thaw timer; one that was already frozen
+     * has its timer restarted, so it stays frozen for the full number of turns from now.
+     *
+     * @param level The dungeon level (starts from 1).
+     * @param x     The row of the centre.
+     * @param y     The column of the centre.
+     * @param shape Which rooms around the centre are covered.
+     * @param turns How many turns the rooms stay frozen.
+     * @return How many rooms froze that weren't frozen already.
+     * @throws IllegalArgumentException If the level or position is outside valid limits, or turns is less than 1.
+     */
+    public int freezeArea(int level, int x, int y, AreaShape shape, int turns) {
+        if (turns < 1) {
+            throw new IllegalArgumentException("Invalid number of turns: " + turns);
+        }
+        return applyArea(level, x, y, shape, AreaEffect.FREEZE, (row, column) -> {
+            long key = (long) level << 32 | ((long) row * size + column);
+            Integer earlier = thawTimers.put(key, timedEffects.schedule(turns, THAW, key));
+            if (earlier != null) {
+                timedEffects.cancel(earlier);
             }
+        });
+    }
 
-            // If no Mad Scientist was placed after looping through all rooms, place one in a random empty room
-            if (!madScientistPlaced) {
-                while (true) {
-                    int randomX = random.nextInt(size);
-                    int randomY = random.nextInt(size);
-                    Room room = levelRooms[randomX][randomY];
-                    if (room.isEmpty()) {
-                        room.setMadScientist(new MadScientist());
-                        System.out.println("Mad Scientist (fallback) added to Level " + lvl + " at (" + randomX + ", " + randomY + ")");
-                        break;
-                    }
+    private int applyArea(int level, int x, int y, AreaShape shape, AreaEffect effect, RoomGrid.TargetedRooms targeted) {
+        if (level < 1 || level > levelCount) {
+            throw new IllegalArgumentException("Invalid level: " + level);
+        }
+        if (x < 0 || x >= size || y < 0 || y >= size) {
+            throw new IllegalArgumentException("Invalid position: (" + x + ", " + y + ")");
+        }
+        RoomGrid grid = levels.get(level);
+        int[] changed = new int[1];
+        shape.cover(getLevelTiles(level), x, y, (row, fromY, toY) -> changed[0] += grid.applyToSpan(effect, row, fromY, toY, targeted));
+        return changed[0];
+    }
+
+    // --- Timed effects ---
+
+    /**
+     * Gets how many turns have been played.
+     *
+     * @return The current turn.
+     */
+    public long getTurn() {
+        return timedEffects.getTurn();
+    }
+
+    /**
+     * Puts the player to sleep: their next commands are skipped until they wake up.
+     * Falling asleep again while asleep restarts the sleep.
+     *
+     * @param turns How many turns the player sleeps through.
+     */
+    public void putPlayerToSleep(int turns) {
+        timedEffects.cancel(sleepTimer);
+        // The turn the player fell asleep in is over when the wheel next moves, so they wake one turn later than that.
+        sleepTimer = timedEffects.schedule(turns + 1, WAKE, 0);
+    }
+
+    /**
+     * Tells whether the player is asleep and so can't act this turn.
+     *
+     * @return true until the player's sleep wears off.
+     */
+    public boolean isPlayerAsleep() {
+        return sleepTimer != TurnWheel.NONE; // Asleep until the wake timer fires.
+    }
+
+    /**
+     * Poisons the player: they lose some power points at the end of each of the next few turns.
+     * A new poison replaces any poison already working.
+     *
+     * @param damage How many power points each turn costs.
+     * @param turns  How many turns the poison lasts.
+     */
+    public void poisonPlayer(int damage, int turns) {
+        if (damage < 0 || turns < 1) {
+            throw new IllegalArgumentException("Invalid poison: " + damage + " for " + turns + " turns");
+        }
+        timedEffects.cancel(poisonTimer);
+        poisonTimer = timedEffects.schedule(1, POISON, (long) damage << 32 | turns);
+    }
+
+    /**
+     * Ends a turn: moves the game's clock on and carries out every timed effect due, such as thawing
+     * rooms, waking the player or a tick of poison. Only the effects due this turn are looked at.
+     *
+     * @param player The player, who may wake up or be poisoned.
+     */
+    public void advanceTurn(Player player) {
+        wokeUp = false;
+        poisonDamage = 0;
+        timedEffects.advance(timerExpiry);
+
+        // Tell the player in a fixed order, whatever order the timers fired in.
+        if (wokeUp) {
+            output.println("You wake up.");
+        }
+        if (poisonDamage > 0) {
+            output.printf("The poison burns! Losing %s power points.%n", poisonDamage);
+            deductPowerPoints(player, poisonDamage);
+        }
+    }
+
+    /**
+     * Carries out one timed effect as it comes due.
+     */
+    private void onTimer(int kind, long target) {
+        switch (kind) {
+            case THAW: {
+                // The target is the level and cell of the room.
+                thawTimers.remove(target);
+                long cell = target & 0xFFFFFFFFL;
+                levels.get((int) (target >>> 32)).setFrozen((int) (cell / size), (int) (cell % size), false);
+                break;
+            }
+            case WAKE:
+                sleepTimer = TurnWheel.NONE;
+                wokeUp = true;
+                break;
+            case POISON: {
+                // The target is the damage per turn and the turns left.
+                poisonTimer = TurnWheel.NONE;
+                int damage = (int) (target >>> 32);
+                int turnsLeft = (int) target;
+                poisonDamage += damage;
+                if (turnsLeft > 1) {
+                    poisonTimer = timedEffects.schedule(1, POISON, (long) damage << 32 | (turnsLeft - 1));
                 }
+                break;
             }
+            default:
+                throw new IllegalStateException("Unknown timed effect: " + kind);
         }
     }
 
     /**
-     * Gets the size of the dungeon levels.
-     * Each level is assumed to have square dimensions (same number of rows and columns).
+     * Writes the turn and every waiting timed effect to a session snapshot.
      *
-     * @return The size of one side of the dungeon level.
+     * @param out where to write
      */
-    public int getSize() {
-        // Give back the size of the dungeon.
-        return this.size;
+    void writeTimedEffects(ByteBuffer out) {
+        SessionSnapshot.putVarlong(out, timedEffects.getTurn());
+        SessionSnapshot.putVarint(out, timedEffects.size());
+        timedEffects.forEach((handle, turnsLeft, kind, target) -> {
+            SessionSnapshot.putVarlong(out, turnsLeft);
+            SessionSnapshot.putVarint(out, kind);
+            SessionSnapshot.putVarlong(out, target);
+        });
+    }
+
+    /**
+     * Reads what {@link #writeTimedEffects} wrote into a freshly made dungeon.
+     *
+     * @param in where to read from
+     */
+    void readTimedEffects(ByteBuffer in) {
+        timedEffects.setTurn(SessionSnapshot.getVarlong(in));
+        int count = SessionSnapshot.getVarint(in);
+        for (int i = 0; i < count; i++) {
+            long turnsLeft = SessionSnapshot.getVarlong(in);
+            int kind = SessionSnapshot.getVarint(in);
+            long target = SessionSnapshot.getVarlong(in);
+            int handle = timedEffects.schedule(turnsLeft, kind, target);
+            switch (kind) {
+                case THAW -> thawTimers.put(target, handle);
+                case WAKE -> sleepTimer = handle;
+                case POISON -> poisonTimer = handle;
+                default -> throw new IllegalArgumentException("Unknown timed effect in snapshot: " + kind);
+            }
+        }
     }
 
     /**
-     * Retrieves the 3D array representing the dungeons.
+     * Gets where the player starts on a level.
      *
-     * @return A 3D array of characters representing the dungeon structure.
+     * @param level The dungeon level (starts from 1).
+     * @return A copy of the entrance position as [x, y].
      */
-    public char[][][] getDungeons() {
-        return dungeons; // Return the 3D char array containing dungeon data
+    public int[] getEntrance(int level) {
+        return template.getLevel(level).getEntrance();
     }
 
 
+    /**
+     * Changes a tile of a level, keeping the level's indexes of walkable and free rooms up to date.
+     *
+     * @param level  The dungeon level (starts from 1).
+     * @param x      The row of the tile.
+     * @param y      The column of the tile.
+     * @param symbol The new tile symbol, such as {@code 'W'} for a wall.
+     */
+    public void setTile(int level, int x, int y, char symbol) {
+        char oldSymbol = dungeons[level - 1].get(x, y);
+        RoomGrid grid = levels.get(level);
+        grid.setTile(x, y, symbol);
+        dungeons[level - 1] = grid.getTiles(); // The level's own copy, the first time one of its tiles changes.
+
+        // Repair the cached distances around the changed tile rather than throwing them away.
+        if (pathFinder != null) {
+            pathFinder.tileChanged(level, x, y, oldSymbol);
+        }
+    }
+
+    /**
+     * Gets the path finder for this dungeon, creating it the first time.
+     *
+     * @return The dungeon's path finder.
+     */
+    public PathFinder getPathFinder() {
+        if (pathFinder == null) {
+            pathFinder = new PathFinder(this);
+        }
+        return pathFinder;
+    }
+
+    /**
+     * Gets the world this dungeon started from.
+     *
+     * @return The shared world template.
+     */
+    WorldTemplate getTemplate() {
+        return template;
+    }
+
+    /**
+     * Gets how many times the player has teleported, which decides where the next teleport goes.
+     *
+     * @return The number of teleports so far.
+     */
+    int getTeleports() {
+        return teleports;
+    }
+
+    /**
+     * Sets how many times the player has teleported, when restoring a game.
+     *
+     * @param teleports The number of teleports so far.
+     */
+    void setTeleports(int teleports) {
+        this.teleports = teleports;
+    }
+
+    /**
+     * Gets the items rooms can hold, in the order the world template numbers them.
+     *
+     * @return The dungeon's item pool. Callers must not change it.
+     */
+    Item[] getItemPool() {
+        return itemPool;
+    }
+
+    /**
+     * Gets the room store for a level, for code that scans many rooms at once.
+     *
+     * @param level The dungeon level (starts from 1).
+     * @return The level's room grid.
+     */
+    RoomGrid getRoomGrid(int level) {
+        return levels.get(level);
+    }
+
     /**
      * Finds the room in a specific level and position of the dungeon.
      *
@@ -261,10 +683,10 @@ public class Dungeon {
         }
 
         // Get the grid of rooms for the specified level.
-        Room[][] levelRooms = levels.get(level);
+        RoomGrid levelRooms = levels.get(level);
 
-        // Return the room located at the x and y coordinates.
-        return levelRooms[x][y];
+        // Return the room located at the x and y coordinates, building it if this is the first visit.
+        return levelRooms.getRoom(x, y);
     }
 
     /**
@@ -273,29 +695,104 @@ public class Dungeon {
      * @param player The player whose position will be marked on the map.
      */
     public void displayMap(Player player) {
-        // Get the player's current position as coordinates [x, y].
-        int[] position = player.getPosition();
-        int x = position[0]; // The row where the player is.
-        int y = position[1]; // The column where the player is.
-
-        // Go through each row of the map.
-        for (int i = 0; i < size; i++) {
-            // Go through each column in the current row.
-            for (int j = 0; j < size; j++) {
-                if (i == x && j == y) {
-                    // Show the player's position with the symbol "∆".
-                    System.out.print("∆ ");
-                } else {
-                    // Show the explored map tile for this spot.
-                    System.out.print(exploredMap[i][j] + " ");
-                }
-            }
-            // Finish this row and go to the next line.
-            System.out.println("|");
+        // Don't draw a map no one will see.
+        if (output.isDiscarding()) return;
+
+        // The renderer builds the whole frame first and writes it out in one go.
+        mapRenderer.render(this, player, output);
+    }
+
+    /**
+     * Gets where the dungeon's messages are sent.
+     *
+     * @return The dungeon's output sink.
+     */
+    public OutputSink getOutput() {
+        return output;
+    }
+
+    /**
+     * Changes where the dungeon's messages are sent.
+     * A {@link DiscardSink} makes the dungeon skip all of its text and map drawing.
+     *
+     * @param output The new output sink.
+     */
+    public void setOutput(OutputSink output) {
+        this.output = output;
+    }
+
+    /**
+     * Changes how the map is drawn, for example to a renderer that only sends the tiles that changed.
+     *
+     * @param mapRenderer The renderer to draw the map with.
+     */
+    public void setMapRenderer(MapRenderer mapRenderer) {
+        this.mapRenderer = mapRenderer;
+    }
+
+    /**
+     * Works out how a tile should appear on the player's map.
+     * Marked rooms show '*', visited rooms show '.', seen tiles show their symbol,
+     * and everything else (including seen empty rooms) stays hidden as '?'.
+     *
+     * @param level    The dungeon level (starts from 1).
+     * @param levelFog The fog of that level.
+     * @param x        The row of the tile.
+     * @param y        The column of the tile.
+     * @return The symbol to draw.
+     */
+    char mapSymbol(int level, FogOfWar levelFog, int x, int y) {
+        int cell = x * size + y;
+        if (levelFog.isMarked(cell)) return '*';
+        if (levelFog.isVisited(cell)) return '.';
+        if (levelFog.isSeen(cell)) {
+            char symbol = dungeons[level - 1].get(x, y);
+            return symbol == EMPTY ? '?' : symbol;
         }
+        return '?';
+    }
+
+    /**
+     * Gets what the player has seen, visited and marked on a level, making it the first time the level is reached.
+     *
+     * @param level The dungeon level (starts from 1).
+     * @return The fog of that level.
+     */
+    FogOfWar getFog(int level) {
+        if (fog[level - 1] == null) {
+            fog[level - 1] = new FogOfWar(size);
+        }
+        return fog[level - 1];
+    }
 
-        // Print a line at the bottom for neatness.
-        System.out.println("-----------");
+    /**
+     * Gets what the player has seen on a level without making it.
+     *
+     * @param level The dungeon level (starts from 1).
+     * @return The fog of that level, or null if the player hasn't been there.
+     */
+    FogOfWar peekFog(int level) {
+        return fog[level - 1];
+    }
+
+    /**
+     * Marks the player's current room on their map, or clears the mark if it is already there.
+     *
+     * @param player The player marking their room.
+     */
+    public void markRoom(Player player) {
+        int[] position = player.getPosition();
+        boolean marked = getFog(player.getLevel()).toggleMark(position[0] * size + position[1]);
+        output.println(marked ? "You marked this room on your map." : "You cleared the mark from this room.");
+    }
+
+    /**
+     * Shows the player every tile of a level on their map, as when they read a map of it.
+     *
+     * @param level The dungeon level (starts from 1).
+     */
+    public void revealLevel(int level) {
+        getFog(level).seeAll();
     }
 
     /**
@@ -311,7 +808,7 @@ public class Dungeon {
         Room currentRoom = getRoom(level + 1, position); // Get the room the player is in.
 
         // Check what type of room it is.
-        char roomType = dungeons[level][position[0]][position[1]];
+        char roomType = dungeons[level].get(position[0], position[1]);
 
         // Check if the room interaction has already been completed.
         if (currentRoom.hasInteracted()) {
@@ -321,44 +818,49 @@ public class Dungeon {
         // Handle special room types.
         switch (roomType) {
             case EXIT:
-                System.out.println("You found the exit to the next level!");
+                output.println("You found the exit to the next level!");
                 levelUp(player); // Move the player to the next level.
                 return;
 
             case TREASURE:
-                System.out.println("Congratulations! You found the treasure and won the game!");
-                System.exit(0); // End the game.
+                output.println("Congratulations! You found the treasure and won the game!");
+                player.setWon(true); // The game is over; whoever is running it decides what happens next.
                 return;
 
             default:
 
                 if (currentRoom.hasMadScientist()) {
-                    System.out.println("You encounter a Mad Scientist!");
+                    output.println("You encounter a Mad Scientist!");
                     currentRoom.getMadScientist().interact(player); // Delegate the interaction to the Mad Scientist class
                 }
 
-                // Check if there are enemies or traps.
-                if (currentRoom.hasEnemiesOrTraps()) {
-                    System.out.println("There are enemies or traps here!");
-                    if (player.hasTool("Hammer")) {
-                        System.out.println("You avoided the danger using your Hammer!");
-                        // Remove the Hammer from the player's inventory after use.
-                        player.removeItem("Hammer");
-                        //System.out.println("The Hammer has been used and removed from your inventory.");
-
-                    } else {
-                        deductPowerPoints(player, 5); // Lose power points for falling into a trap.
-                        System.out.println("You fell into a trap! Losing 5 power points.");
+                // The rest of the room happens once any question from the Mad Scientist has been answered.
+                player.getPrompter().then(() -> {
+                    // Check if there are enemies or traps.
+                    if (currentRoom.hasEnemiesOrTraps()) {
+                        output.println("There are enemies or traps here!");
+                        if (currentRoom.isFrozen()) {
+                            output.println("They are frozen solid, so you pass by safely.");
+                        } else if (player.hasItem(ItemRegistry.HAMMER)) {
+                            output.println("You avoided the danger using your Hammer!");
+                            // Remove the Hammer from the player's inventory after use.
+                            player.removeItem(ItemRegistry.HAMMER);
+                            //output.println("The Hammer has been used and removed from your inventory.");
+
+                        } else {
+                            deductPowerPoints(player, TRAP_DAMAGE); // Lose power points for falling into a trap.
+                            output.printf("You fell into a trap! Losing %s power points.%n", TRAP_DAMAGE);
+                        }
                     }
-                }
 
-                // If the room is safe.
-                if (!currentRoom.hasEnemiesOrTraps() && !currentRoom.hasMadScientist()) {
-                    System.out.println("The room seems safe.");
-                }
+                    // If the room is safe.
+                    if (!currentRoom.hasEnemiesOrTraps() && !currentRoom.hasMadScientist()) {
+                        output.println("The room seems safe.");
+                    }
 
-                // Mark the room as interacted to stop the program for re initialising the mad scientist.
-                currentRoom.setInteracted(true);
+                    // Mark the room as interacted to stop the program for re initialising the mad scientist.
+                    currentRoom.setInteracted(true);
+                });
         }
     }
 
@@ -376,7 +878,7 @@ public class Dungeon {
         player.setPowerPoints(Math.max(0, currentPoints - amount));
 
         // Show the player's updated power points.
-        System.out.println("Your power points are now: " + player.getPowerPoints());
+        output.printf("Your power points are now: %s%n", player.getPowerPoints());
     }
 
     /**
@@ -391,32 +893,19 @@ public class Dungeon {
 
         // Check if the player has finished all levels.
         if (newLevel > levelCount) {
-            System.out.println("You have completed all levels. You won!");
-            System.exit(0); // End the game if all levels are done.
+            output.println("You have completed all levels. You won!");
+            player.setWon(true); // End the game if all levels are done.
+            return;
         }
 
         // Inform the player about advancing to the new level.
-        System.out.println("You have advanced to Level " + newLevel + "!");
+        output.printf("You have advanced to Level %s!%n", newLevel);
 
         // Update the player's level to the new one.
         player.setLevel(newLevel);
 
-        // Reset the map for the new level so it's unexplored again.
-        initializeExploredMap();
-
-        // Decide the player's starting position for the new level.
-        int[] newPosition;
-        switch (newLevel) {
-            case 2:
-                newPosition = new int[]{4, 3}; // Set the starting spot for Level 2.
-                break;
-            case 3:
-                newPosition = new int[]{4, 0}; // Set the starting spot for Level 3.
-                break;
-            default:
-                // If something unexpected happens, show an error.
-                throw new IllegalStateException("Unexpected level: " + newLevel);
-        }
+        // The player starts the new level at its entrance.
+        int[] newPosition = getEntrance(newLevel);
 
         // Update the player's position to the chosen starting spot.
         player.setPosition(newPosition[0], newPosition[1]);
@@ -456,27 +945,19 @@ public class Dungeon {
                 break;
             default:
                 // If the direction isn't valid, show an error message.
-                System.out.println("Invalid direction!");
+                output.println("Invalid direction!");
                 return false; // The move didn't work.
         }
 
         // Check if the new position is within the map's boundaries and not a wall.
-        if (x >= 0 && x < size && y >= 0 && y < size && dungeons[player.getLevel() - 1][x][y] != WALL) {
+        if (x >= 0 && x < size && y >= 0 && y < size && dungeons[player.getLevel() - 1].get(x, y) != WALL) {
             // Get the player's old position before the move.
             int[] previousPosition = player.getPosition();
-            int prevX = previousPosition[0];
-            int prevY = previousPosition[1];
 
             // Mark the previous room as unvisited before moving to the new room.
             Room previousRoom = getRoom(player.getLevel(), previousPosition);
             previousRoom.setInteracted(false);
 
-            // If the player's old spot is marked as their position ('∆'),
-            // change it to '.' to show the tile has been explored.
-            if (exploredMap[prevX][prevY] == '∆') {
-                exploredMap[prevX][prevY] = '.'; // Mark as explored.
-            }
-
             // Update the player's position to the new spot.
             player.setPosition(x, y);
 
@@ -484,17 +965,16 @@ public class Dungeon {
             updateMap(player);
 
             // Let the player know the move was successful and show the updated map.
-            System.out.println("You moved " + direction + ".");
+            output.printf("You moved %s.%n", direction);
             displayMap(player); // Show the map.
             return true; // The move worked.
         } else {
             // If the move is invalid (out of bounds or a wall).
-            System.out.println("  --x--      OOPS!!!      --x--     ");
-            System.out.println("You hit a wall or boundary. Hit Enter to try a different direction.");
+            output.println("  --x--      OOPS!!!      --x--     ");
+            output.println("You hit a wall or boundary. Hit Enter to try a different direction.");
 
             // Wait for the player to press Enter to continue.
-            Scanner scanner = new Scanner(System.in);
-            scanner.nextLine(); // Pause until Enter is pressed.
+            player.getPrompter().ask(line -> { }); // Pause until Enter is pressed.
             return false; // The move didn't work.
         }
     }
@@ -506,36 +986,45 @@ public class Dungeon {
      * @param player The player to be teleported.
      */
     public void teleportPlayer(Player player) {
-        Random random = new Random();
-
         // Get the player's current position and level.
         int x = player.getPosition()[0]; // Current row position (X-coordinate).
         int y = player.getPosition()[1]; // Current column position (Y-coordinate).
         int level = player.getLevel() - 1; // Convert level to 0-based index.
 
         // Debugging: Show the player's position before teleportation.
-        System.out.println("Current position before teleporting: " + x + ", " + y);
+        output.printf("Current position before teleporting: %s, %s%n", x, y);
+
+        // If the player is standing on the only open tile, there is nowhere to go.
+        RoomGrid grid = levels.get(level + 1);
+        if (grid.countWalkableCells() < 2) {
+            output.println("The spell fizzles. There is nowhere else to go on this level.");
+            return;
+        }
 
-        // Find a random position that's not a wall and not the same as the current position.
+        // Pick a random position from the level's walkable cells that isn't the current position.
+        // At least half of the picks are somewhere new, so this takes very few tries.
+        SplittableRandom teleportRandom = random.stream(GameRandom.TELEPORT, teleports++);
+        int cell;
         do {
-            x = random.nextInt(size); // Pick a random row.
-            y = random.nextInt(size); // Pick a random column.
+            cell = grid.randomWalkableCell(teleportRandom);
+            x = cell / size; // The chosen row.
+            y = cell % size; // The chosen column.
 
             // Debugging: Show the position being checked for teleportation.
-            System.out.println("Debug: Trying position (" + x + ", " + y + ")");
-        } while (dungeons[level][x][y] == WALL || (x == player.getPosition()[0] && y == player.getPosition()[1]));
+            output.printf("Debug: Trying position (%s, %s)%n", x, y);
+        } while (x == player.getPosition()[0] && y == player.getPosition()[1]);
 
         // Set the player's new position to the chosen coordinates.
         player.setPosition(x, y);
 
         // Debugging: Show the player's position after teleportation.
-        System.out.println("New position after teleporting: " + x + ", " + y);
+        output.printf("New position after teleporting: %s, %s%n", x, y);
 
         // Update the map to show the player's new position.
         updateMap(player);
 
         // Let the player know they've been teleported.
-        System.out.println("You teleported to a new location.");
+        output.println("You teleported to a new location.");
 
         // Show the updated map with the new position.
         displayMap(player);
@@ -572,7 +1061,7 @@ public class Dungeon {
         String[] items = {"Potion", "Teleportation Spell", "Freeze Spell"};
 
         // Randomly pick one item from the list and return it.
-        return items[new Random().nextInt(items.length)];
+        return items[revealRandom.nextInt(items.length)];
     }
 
     /**
@@ -583,79 +1072,39 @@ public class Dungeon {
      */
     public void lookAround(Player player) {
         // Inform the player about the action.
-        System.out.println("Looking around...");
-
-        // Get the player's current level, adjusted for 0-based indexing.
-        int level = player.getLevel() - 1;
+        output.println("Looking around...");
 
         // Get the player's current position as [x, y].
         int[] position = player.getPosition();
         int x = position[0]; // Row index of the player's position.
         int y = position[1]; // Column index of the player's position.
+        FogOfWar levelFog = getFog(player.getLevel());
 
-        // Update the map to reveal the tile where the player is standing.
-        updateMap(level, x, y);
+        // Reveal the player's row from the tile on the left to the tile on the right in one go,
+        // keeping within the map boundaries.
+        levelFog.seeRange(x * size + Math.max(y - 1, 0), x * size + Math.min(y + 1, size - 1) + 1);
 
-        // Check and reveal the surrounding tiles, ensuring they are within the map boundaries.
-        if (x > 0) updateMap(level, x - 1, y); // Reveal the tile above (forward).
-        if (x < size - 1) updateMap(level, x + 1, y); // Reveal the tile below (backward).
-        if (y > 0) updateMap(level, x, y - 1); // Reveal the tile to the left.
-        if (y < size - 1) updateMap(level, x, y + 1); // Reveal the tile to the right.
+        // Reveal the tiles above (forward) and below (backward) if they are on the map.
+        if (x > 0) levelFog.see((x - 1) * size + y);
+        if (x < size - 1) levelFog.see((x + 1) * size + y);
 
         // Show the updated map with the newly revealed areas.
         displayMap(player);
     }
 
     /**
-     * Updates the explored map for a specific tile at the given level and position.
-     * Ensures the tile is within bounds and updates only if it hasn't been explored yet.
-     *
-     * @param level The dungeon level being updated.
-     * @param x     The row index of the tile to update.
-     * @param y     The column index of the tile to update.
-     */
-    private void updateMap(int level, int x, int y) {
-        // Check if the given coordinates are inside the map boundaries.
-        if (x < 0 || x >= size || y < 0 || y >= size) {
-            return; // If the coordinates are out of bounds, stop here.
-        }
-
-        // Only update the tile if it hasn't been explored yet (marked as '?').
-        if (exploredMap[x][y] == '?') {
-            // Get the tile's symbol from the dungeon map at the given level and position.
-            char symbol = dungeons[level][x][y];
-
-            // If the tile is EMPTY, keep it as '?'; otherwise, use the actual symbol.
-            exploredMap[x][y] = (symbol == EMPTY) ? '?' : symbol;
-        }
-    }
-
-    /**
-     * Updates the explored map to show the player's current position and resets their previous position.
+     * Records the player's current room as visited on their map.
      *
      * @param player The player whose position is being updated on the map.
      */
     private void updateMap(Player player) {
-        // Get the current dungeon level, adjusting for 0-based indexing.
-        int level = player.getLevel() - 1;
-
         // Get the player's current position as row (X) and column (Y) coordinates.
         int x = player.getPosition()[0]; // Current row index.
         int y = player.getPosition()[1]; // Current column index.
 
-        // Mark the player's current position on the map with the '∆' symbol.
-        exploredMap[x][y] = '∆';
-
-        // If the player has a recorded previous position, reset that tile.
-        if (player.getPreviousPosition() != null) {
-            int prevX = player.getPreviousPosition()[0]; // Previous row index.
-            int prevY = player.getPreviousPosition()[1]; // Previous column index.
-
-            // If the previous position still shows the player's symbol, mark it as explored ('.').
-            if (exploredMap[prevX][prevY] == '∆') {
-                exploredMap[prevX][prevY] = '.'; // Indicate the tile has been explored.
-            }
-        }
+        // The room the player stands in is now visited. The player's symbol is drawn over it
+        // until they leave, after which it shows as explored ('.').
+        getFog(player.getLevel()).visit(x * size + y);
 
         // Save the player's current position as their new previous position.
         player.setPreviousPosition(new int[]{x, y});
@@ -0,0 +1,621 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This class hosts many players on a  *//
+//*              few threads. Each thread runs an    *//
+//*              event loop that watches its share   *//
+//*              of the connections with a selector, *//
+//*              and hands each line a player types  *//
+//*              to that player's game, which runs   *//
+//*              until its next question and then    *//
+//*              steps aside for the next player.    *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * A TCP game server that multiplexes every session onto a small, fixed set of event-loop threads.
+ * <p>
+ * Unlike {@link GameServer}, no thread waits for an idle player: a session is just its game objects,
+ * a mailbox of lines the player has typed and any output still to be sent. Each game is started with
+ * {@link LaunchGame#begin()} and carried on one line at a time through the player's {@link Prompter},
+ * so a question asked in the middle of a turn (such as the Mad Scientist's) is a continuation waiting
+ * in the session rather than a blocked thread. A session always stays on the loop that accepted it,
+ * so its game is only ever touched by one thread.
+ * <p>
+ * Given a journal directory, each loop also keeps a {@link CommandJournal} of every line its games
+ * accept, including answers to questions asked in the middle of a turn, plus a snapshot every
+ * {@value #SNAPSHOT_EVERY} lines. A reply is only sent once the line behind it is on disk, and the
+ * loop's journal forces the lines of all its sessions to disk together. When the server starts, it
+ * rebuilds every unfinished game from its last snapshot and the lines after it, and a player carries
+ * on by typing {@code resume <number>} as the first line of a new connection.
+ */
+public class EventLoopServer implements AutoCloseable {
+
+    private static final int READ_BUFFER_BYTES = 64 * 1024; // Each loop reads every socket through one buffer.
+    private static final int SNAPSHOT_EVERY = 32; // How many journaled lines between a session's snapshots.
+    private static final int MAX_LINE_BYTES = 4096; // The longest line a player may type; anything longer closes the connection.
+    private static final Pattern JOURNAL_FILE = Pattern.compile("journal-(\\d+)-(\\d+)\\.log"); // Generation and loop.
+    private static final Pattern RESUME = Pattern.compile("\\s*resume\\s+(\\d+)\\s*", Pattern.CASE_INSENSITIVE);
+
+    private final ServerSocketChannel serverChannel; // Accepts new connections.
+    private final EventLoop[] loops; // The threads that run every session.
+    private final WorldTemplate world; // The world every session plays, or null for a new world each.
+    private final AtomicLong nextSessionId = new AtomicLong(1); // The number the next session gets.
+    private final Map<Long, Session> recovered = new ConcurrentHashMap<>(); // Games rebuilt from the journal, waiting for their player.
+    private int nextLoop; // Which loop gets the next connection.
+
+    /**
+     * Creates a server listening on a port of this machine.
+     *
+     * @param port  the port to listen on, or 0 to pick any free port
+     * @param loops how many event-loop threads to run, normally one per core
+     * @throws IOException if the port can't be opened
+     */
+    public EventLoopServer(int port, int loops) throws IOException {
+        this(port, loops, null);
+    }
+
+    /**
+     * Creates a server where every session plays the same world.
+     * Each session then only stores the rooms its player changes.
+     *
+     * @param port  the port to listen on, or 0 to pick any free port
+     * @param loops how many event-loop threads to run, normally one per core
+     * @param world the world every session plays, or null to give each session a new world
+     * @throws IOException if the port can't be opened
+     */
+    public EventLoopServer(int port, int loops, WorldTemplate world) throws IOException {
+        this(port, loops, world, null);
+    }
+
+    /**
+     * Creates a server that journals every session's commands and rebuilds unfinished games after a restart.
+     *
+     * @param port             the port to listen on, or 0 to pick any free port
+     * @param loops            how many event-loop threads to run, normally one per core; each gets its own journal
+     * @param world            the world every session plays, or null to give each session a new world
+     * @param journalDirectory where the journals live, or null not to journal at all
+     * @throws IOException if the port can't be opened or the journals can't be read or written
+     */
+    public EventLoopServer(int port, int loops, WorldTemplate world, Path journalDirectory) throws IOException {
+        if (loops <= 0) {
+            throw new IllegalArgumentException("At least one event loop is needed, not " + loops);
+        }
+        this.world = world;
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port), 1024);
+        serverChannel.configureBlocking(false);
+
+        // Read what the last run left behind before its journal files are replaced.
+        List<Path> oldJournals = List.of();
+        Map<Long, CommandJournal.SessionLog> logs = Map.of();
+        long generation = 0;
+        if (journalDirectory != null) {
+            Files.createDirectories(journalDirectory);
+            oldJournals = journalFiles(journalDirectory);
+            for (Path file : oldJournals) {
+                Matcher matcher = JOURNAL_FILE.matcher(file.getFileName().toString());
+                matcher.matches();
+                generation = Math.max(generation, Long.parseLong(matcher.group(1)));
+            }
+            generation++;
+            logs = CommandJournal.recover(oldJournals);
+        }
+
+        this.loops = new EventLoop[loops];
+        for (int i = 0; i < loops; i++) {
+            this.loops[i] = new EventLoop(i, journalDirectory == null ? null
+                    : journalDirectory.resolve("journal-" + generation + "-" + i + ".log"));
+        }
+        if (journalDirectory != null) {
+            recover(logs, oldJournals, journalDirectory);
+        }
+        // The first loop also accepts new connections.
+        serverChannel.register(this.loops[0].selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * Rebuilds every unfinished game the journals describe, then copies what they need into this run's
+     * journals and deletes the old files, so the journals only ever hold games that are still going.
+     */
+    private void recover(Map<Long, CommandJournal.SessionLog> logs, List<Path> oldJournals, Path journalDirectory) throws IOException {
+        long highest = 0;
+        int loop = 0;
+        for (CommandJournal.SessionLog log : logs.values()) {
+            highest = Math.max(highest, log.getSession());
+            Session session;
+            try {
+                session = Session.recover(log, worldFor(log.getSeed()));
+            } catch (RuntimeException e) {
+                continue; // The game can't be rebuilt (for instance, the world has changed); leave it behind.
+            }
+            if (session.game.isFinished()) {
+                continue;
+            }
+            log.copyTo(loops[loop++ % loops.length].journal);
+            recovered.put(log.getSession(), session);
+        }
+        nextSessionId.set(highest + 1);
+
+        // Only delete the old journals once their games are safely in the new ones.
+        try {
+            for (EventLoop eventLoop : loops) {
+                eventLoop.journal.awaitDurable();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while saving recovered games");
+        }
+        syncDirectory(journalDirectory);
+        for (Path file : oldJournals) {
+            Files.delete(file);
+        }
+        syncDirectory(journalDirectory);
+    }
+
+    /**
+     * Gets the world a journaled game was played in: the shared world if it has the same seed, or else a new classic world.
+     */
+    private WorldTemplate worldFor(long seed) {
+        return world != null && world.getSeed() == seed ? world : WorldTemplate.classic(seed);
+    }
+
+    /**
+     * Lists the journal files in a directory.
+     */
+    private static List<Path> journalFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> JOURNAL_FILE.matcher(file.getFileName().toString()).matches()).toList();
+        }
+    }
+
+    /**
+     * Forces a directory's list of files to disk, so created and deleted journals survive a crash.
+     */
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Not every platform can sync a directory; the files themselves are still forced.
+        }
+    }
+
+    /**
+     * Gets the port the server is listening on.
+     *
+     * @return The port number.
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Starts every event loop.
+     */
+    public void start() {
+        for (EventLoop loop : loops) {
+            loop.thread.start();
+        }
+    }
+
+    /**
+     * Stops the event loops and closes every connection.
+     *
+     * @throws IOException if the server channel can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        serverChannel.close();
+        for (EventLoop loop : loops) {
+            loop.running = false;
+            loop.selector.wakeup();
+        }
+    }
+
+    /**
+     * Accepts every waiting connection and hands each one to the next loop in turn.
+     */
+    private void acceptAll() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true); // Replies are small; send them straight away.
+            EventLoop loop = loops[nextLoop];
+            nextLoop = (nextLoop + 1) % loops.length;
+            loop.newChannels.add(channel);
+            loop.selector.wakeup();
+        }
+    }
+
+    /**
+     * One event-loop thread and the sessions it owns.
+     */
+    private final class EventLoop implements Runnable {
+        private final Selector selector; // Watches this loop's connections.
+        private final Queue<SocketChannel> newChannels = new ConcurrentLinkedQueue<>(); // Accepted, not yet registered.
+        private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_BYTES); // Shared by this loop's sessions.
+        private final CommandJournal journal; // This loop's journal, or null when not journaling.
+        private List<SelectionKey> waiting = new ArrayList<>(); // Sessions whose output waits for the journal.
+        private List<SelectionKey> stillWaiting = new ArrayList<>(); // Swapped with waiting on each pass.
+        private final Thread thread;
+        private volatile boolean running = true;
+
+        EventLoop(int index, Path journalFile) throws IOException {
+            this.selector = Selector.open();
+            // The journal wakes the loop each time more lines reach the disk, so held output can go out.
+            this.journal = journalFile == null ? null : new CommandJournal(journalFile, selector::wakeup);
+            this.thread = new Thread(this, "game-event-loop-" + index);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select();
+                    registerNewChannels();
+                    flushDurable();
+                    for (SelectionKey key : selector.selectedKeys()) {
+                        handle(key);
+                    }
+                    selector.selectedKeys().clear();
+                }
+            } catch (IOException e) {
+                // The selector failed; this loop can't carry on.
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    closeQuietly(key);
+                }
+                try {
+                    selector.close();
+                    if (journal != null) {
+                        journal.close();
+                    }
+                } catch (IOException e) {
+                    // Closing anyway.
+                }
+            }
+        }
+
+        /**
+         * Starts a session for every connection handed to this loop since it last looked.
+         */
+        private void registerNewChannels() {
+            SocketChannel channel;
+            while ((channel = newChannels.poll()) != null) {
+                try {
+                    SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                    long id = nextSessionId.getAndIncrement();
+                    Session session = new Session(id, world != null ? world : WorldTemplate.classic(System.nanoTime()), null);
+                    session.attach(channel, journal);
+                    key.attach(session);
+                    if (journal != null) {
+                        session.output.println("This is game " + id + ". If the server restarts, connect and type \"resume " + id + "\" to carry on.");
+                    }
+                    session.start(); // Play up to the first question.
+                    session.flush(key);
+                } catch (IOException | RuntimeException e) {
+                    try {
+                        channel.close();
+                    } catch (IOException ignored) {
+                        // Closing anyway.
+                    }
+                }
+            }
+        }
+
+        /**
+         * Deals with one ready key: a new connection, a line from a player, or room to send more output.
+         */
+        private void handle(SelectionKey key) {
+            if (!key.isValid()) return;
+            try {
+                if (key.isAcceptable()) {
+                    acceptAll();
+                    return;
+                }
+                Session session = (Session) key.attachment();
+                if (key.isReadable()) {
+                    readBuffer.clear();
+                    int read = session.channel.read(readBuffer);
+                    if (read < 0) {
+                        closeQuietly(key); // The player disconnected.
+                        return;
+                    }
+                    readBuffer.flip();
+                    session.receive(readBuffer);
+                    if (journal != null && !session.isJournaled()) {
+                        session = resumeIfAsked(key, session);
+                    }
+                    session.processMailbox();
+                }
+                flushWhenDurable(key, session);
+            } catch (IOException | RuntimeException e) {
+                // One broken session mustn't stop the others on this loop.
+                closeQuietly(key);
+            }
+        }
+
+        /**
+         * Hands a new connection an unfinished game from before a restart if its first line is "resume" and the game's number.
+         *
+         * @return The session that now owns the connection.
+         */
+        private Session resumeIfAsked(SelectionKey key, Session session) {
+            Matcher matcher = RESUME.matcher(session.mailbox.isEmpty() ? "" : session.mailbox.peek());
+            if (!matcher.matches()) {
+                return session;
+            }
+            session.mailbox.poll();
+            Session resumed = null;
+            try {
+                resumed = recovered.remove(Long.parseLong(matcher.group(1)));
+            } catch (NumberFormatException e) {
+                // Too big to be a game number.
+            }
+            if (resumed == null) {
+                session.output.println("There is no unfinished game " + matcher.group(1) + " to carry on.");
+                return session;
+            }
+            // The recovered game takes over the connection, and anything else typed so far goes to it.
+            resumed.attach(session.channel, journal);
+            resumed.mailbox.addAll(session.mailbox);
+            resumed.partialLine.writeBytes(session.partialLine.toByteArray());
+            key.attach(resumed);
+            return resumed;
+        }
+
+        /**
+         * Sends a session's output once the journal holds every line behind it, or else holds it back until then.
+         */
+        private void flushWhenDurable(SelectionKey key, Session session) throws IOException {
+            if (session.journal != null && !session.journal.isDurable(session.awaitedPosition)) {
+                if (!session.waitingForDisk) {
+                    session.waitingForDisk = true;
+                    waiting.add(key);
+                }
+                return;
+            }
+            session.flush(key);
+        }
+
+        /**
+         * Sends the held output of every session whose lines have reached the disk since the loop last looked.
+         */
+        private void flushDurable() {
+            if (waiting.isEmpty()) return;
+            List<SelectionKey> keys = waiting;
+            waiting = stillWaiting;
+            for (SelectionKey key : keys) {
+                Session session = (Session) key.attachment();
+                session.waitingForDisk = false;
+                if (!key.isValid()) continue;
+                try {
+                    flushWhenDurable(key, session);
+                } catch (IOException | RuntimeException e) {
+                    closeQuietly(key);
+                }
+            }
+            keys.clear();
+            stillWaiting = keys;
+        }
+    }
+
+    private static void closeQuietly(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            // Closing anyway.
+        }
+    }
+
+    /**
+     * One player's connection and game.
+     */
+    private static final class Session {
+        private final long id; // The session's number, which the player types to resume it.
+        private final WorldTemplate world;
+        private final boolean restored; // Whether the game was restored from a snapshot.
+        private final BufferedSink output = new BufferedSink(); // What the game has said and not yet sent.
+        private final LaunchGame game;
+        private final ArrayDeque<String> mailbox = new ArrayDeque<>(); // Whole lines typed but not yet played.
+        private final ByteArrayOutputStream partialLine = new ByteArrayOutputStream(); // A line still being typed.
+        private SocketChannel channel; // The player's connection, or null for a recovered game nobody has resumed yet.
+        private ByteBuffer pendingWrite; // Output the socket hasn't taken yet, or null.
+        private CommandJournal journal; // The journal of the loop running the session, or null.
+        private int sequence; // The number of the session's next journal record; 0 until its START record.
+        private int linesSinceSnapshot; // Lines journaled since the last snapshot.
+        private boolean ended; // Whether the END record has been journaled.
+        private long awaitedPosition; // Where the session's last journal record ends.
+        private boolean waitingForDisk; // Whether the session is in its loop's waiting list.
+
+        /**
+         * Creates a session's game, either new or restored from a snapshot.
+         *
+         * @param snapshot a snapshot of the game to restore, or null for a new game
+         */
+        Session(long id, WorldTemplate world, byte[] snapshot) {
+            this.id = id;
+            this.world = world;
+            this.restored = snapshot != null;
+            // The game never reads input itself here; every line arrives through answer().
+            InputSource noInput = new ScriptSource();
+            this.game = snapshot == null ? new LaunchGame(output, noInput, world)
+                    : new LaunchGame(output, noInput, SessionSnapshot.read(ByteBuffer.wrap(snapshot), world, output));
+        }
+
+        /**
+         * Rebuilds a game from the journal: restores its last snapshot (or starts it afresh) and plays the lines after it.
+         * Only what the last line made the game say is kept, to show the player where they are.
+         */
+        static Session recover(CommandJournal.SessionLog log, WorldTemplate world) {
+            Session session = new Session(log.getSession(), world, log.getSnapshot());
+            session.start();
+            for (String line : log.getLines()) {
+                if (session.game.isFinished()) break;
+                session.output.drain();
+                session.game.answer(line);
+            }
+            session.sequence = log.getNextSequence();
+            session.linesSinceSnapshot = log.getLines().size();
+            return session;
+        }
+
+        /**
+         * Plays the game up to its first question.
+         */
+        void start() {
+            if (restored) {
+                game.resume();
+            } else {
+                game.begin();
+            }
+        }
+
+        /**
+         * Connects the session to a player and to the journal of the loop that now runs it.
+         */
+        void attach(SocketChannel channel, CommandJournal journal) {
+            this.channel = channel;
+            this.journal = journal;
+        }
+
+        /**
+         * Checks whether anything has been journaled for this session yet.
+         */
+        boolean isJournaled() {
+            return sequence > 0;
+        }
+
+        /**
+         * Splits the bytes just read into lines and puts each whole line in the mailbox.
+         *
+         * @throws IOException if a line runs past {@link #MAX_LINE_BYTES} without ending, so the connection should be closed
+         */
+        void receive(ByteBuffer bytes) throws IOException {
+            while (bytes.hasRemaining()) {
+                byte b = bytes.get();
+                if (b == '\n') {
+                    String line = partialLine.toString(Charset.defaultCharset());
+                    partialLine.reset();
+                    // Telnet ends lines with "\r\n".
+                    mailbox.add(line.endsWith("\r") ? line.substring(0, line.length() - 1) : line);
+                } else if (partialLine.size() < MAX_LINE_BYTES) {
+                    partialLine.write(b);
+                } else {
+                    // A client that never ends its line mustn't fill memory on a loop other sessions share.
+                    throw new IOException("Line longer than " + MAX_LINE_BYTES + " bytes");
+                }
+            }
+        }
+
+        /**
+         * Plays every line in the mailbox, in order, until the game ends.
+         * Each line is journaled before it is played; a snapshot is journaled now and then between turns.
+         */
+        void processMailbox() {
+            while (!mailbox.isEmpty() && !game.isFinished()) {
+                String line = mailbox.poll();
+                if (journal != null) {
+                    if (sequence == 0) {
+                        journal.appendStart(id, world.getSeed());
+                        sequence = 1;
+                    }
+                    awaitedPosition = journal.appendLine(id, sequence++, line);
+                    linesSinceSnapshot++;
+                }
+                game.answer(line);
+            }
+
+            if (journal == null || sequence == 0 || ended) {
+                return;
+            }
+            if (game.isFinished()) {
+                awaitedPosition = journal.appendEnd(id, sequence++);
+                ended = true;
+            } else if (linesSinceSnapshot >= SNAPSHOT_EVERY && game.isAwaitingCommand()) {
+                awaitedPosition = journal.appendSnapshot(id, sequence++, game.snapshot());
+                linesSinceSnapshot = 0;
+            }
+        }
+
+        /**
+         * Sends as much waiting output as the socket will take, and watches for room to send the rest.
+         * Once the game is over and everything has been sent, the connection is closed.
+         */
+        void flush(SelectionKey key) throws IOException {
+            if (output.size() > 0) {
+                ByteBuffer fresh = output.drainBuffer();
+                if (pendingWrite == null) {
+                    pendingWrite = fresh;
+                } else {
+                    ByteBuffer combined = ByteBuffer.allocate(pendingWrite.remaining() + fresh.remaining());
+                    combined.put(pendingWrite).put(fresh).flip();
+                    pendingWrite = combined;
+                }
+            }
+
+            if (pendingWrite != null) {
+                channel.write(pendingWrite);
+                if (pendingWrite.hasRemaining()) {
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+                pendingWrite = null;
+                key.interestOps(SelectionKey.OP_READ);
+            }
+
+            if (game.isFinished()) {
+                closeQuietly(key);
+            }
+        }
+    }
+
+    /**
+     * Runs the server until the process is stopped.
+     * Arguments: the port to listen on (default 4000), the number of event loops (default one per core)
+     * a seed for one classic world every session shares (or "-" for a new world each) and, optionally,
+     * a directory to journal every game in.
+     *
+     * @param args the command-line arguments
+     * @throws IOException if the port can't be opened
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 4000;
+        int loops = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        WorldTemplate world = args.length > 2 && !args[2].equals("-") ? WorldTemplate.classic(Long.parseLong(args[2])) : null;
+        Path journalDirectory = args.length > 3 ? Paths.get(args[3]) : null;
+        EventLoopServer server = new EventLoopServer(port, loops, world, journalDirectory);
+        server.start();
+        System.out.println("The Dungeon Game is listening on port " + server.getPort() + " with " + loops + " event loops");
+    }
+}
@@ -0,0 +1,167 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This class remembers what the       *//
+//*              player knows about one level: which *//
+//*              tiles they have seen, which rooms   *//
+//*              they have walked through and which  *//
+//*              rooms they have marked. Each fact   *//
+//*              is one bit per tile, so a level's   *//
+//*              memory is tiny and is kept when the *//
+//*              player moves on to the next level.  *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The fog of war for one level, as three bitsets over its cells (numbered x * size + y).
+ * Bits are packed 64 to a long, so revealing a run of cells fills whole words at a time.
+ */
+final class FogOfWar {
+
+    private final int cells; // How many cells the level has.
+    private final long[] seen; // Tiles the player has looked at or been shown.
+    private final long[] visited; // Rooms the player has stood in.
+    private final long[] marked; // Rooms the player has marked for themselves.
+
+    /**
+     * Creates the fog for a level where nothing has been seen yet.
+     *
+     * @param size how big the level is (size x size)
+     */
+    FogOfWar(int size) {
+        this.cells = size * size;
+        int words = (cells + 63) >>> 6;
+        this.seen = new long[words];
+        this.visited = new long[words];
+        this.marked = new long[words];
+    }
+
+    boolean isSeen(int cell) {
+        return (seen[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    boolean isVisited(int cell) {
+        return (visited[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    boolean isMarked(int cell) {
+        return (marked[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Records that the player has seen a tile.
+     *
+     * @param cell The tile that was seen.
+     */
+    void see(int cell) {
+        seen[cell >>> 6] |= 1L << cell;
+    }
+
+    /**
+     * Records that the player has stood in a room. A room they stood in has also been seen.
+     *
+     * @param cell The room that was visited.
+     */
+    void visit(int cell) {
+        seen[cell >>> 6] |= 1L << cell;
+        visited[cell >>> 6] |= 1L << cell;
+    }
+
+    /**
+     * Marks a room, or clears the mark if it is already there.
+     *
+     * @param cell The room to mark.
+     * @return true if the room is now marked, false if the mark was cleared.
+     */
+    boolean toggleMark(int cell) {
+        marked[cell >>> 6] ^= 1L << cell;
+        return isMarked(cell);
+    }
+
+    /**
+     * Records that the player has seen a run of tiles, such as part of a row.
+     * Whole words in the middle of the run are filled in one step each.
+     *
+     * @param from The first tile of the run.
+     * @param to   The tile just after the run.
+     */
+    void seeRange(int from, int to) {
+        if (from >= to) return;
+
+        int first = from >>> 6;
+        int last = (to - 1) >>> 6;
+        long firstMask = -1L << from; // Bits from 'from' to the end of its word.
+        long lastMask = -1L >>> -to; // Bits from the start of the last word up to 'to - 1'.
+
+        if (first == last) {
+            seen[first] |= firstMask & lastMask;
+            return;
+        }
+        seen[first] |= firstMask;
+        Arrays.fill(seen, first + 1, last, -1L);
+        seen[last] |= lastMask;
+    }
+
+    /**
+     * Records that the player has seen every tile of the level, as when they read its map.
+     */
+    void seeAll() {
+        seeRange(0, cells);
+    }
+
+    /**
+     * Writes the fog to a session snapshot. Only the words with something in them are written,
+     * each as the gap since the last one followed by its bits.
+     *
+     * @param out Where to write.
+     */
+    void writeTo(ByteBuffer out) {
+        writeBits(seen, out);
+        writeBits(visited, out);
+        writeBits(marked, out);
+    }
+
+    /**
+     * Reads fog written by {@link #writeTo} into this (empty) fog.
+     *
+     * @param in Where to read from.
+     * @throws IllegalArgumentException if the snapshot was taken on a bigger level.
+     */
+    void readFrom(ByteBuffer in) {
+        readBits(seen, in);
+        readBits(visited, in);
+        readBits(marked, in);
+    }
+
+    private static void writeBits(long[] bits, ByteBuffer out) {
+        int count = 0;
+        for (long word : bits) {
+            if (word != 0) count++;
+        }
+        SessionSnapshot.putVarint(out, count);
+        int previous = -1;
+        for (int i = 0; i < bits.length; i++) {
+            if (bits[i] == 0) continue;
+            SessionSnapshot.putVarint(out, i - previous - 1);
+            SessionSnapshot.putVarlong(out, bits[i]);
+            previous = i;
+        }
+    }
+
+    private static void readBits(long[] bits, ByteBuffer in) {
+        int count = SessionSnapshot.getVarint(in);
+        int index = -1;
+        for (int i = 0; i < count; i++) {
+            index += SessionSnapshot.getVarint(in) + 1;
+            if (index >= bits.length) {
+                throw new IllegalArgumentException("The snapshot's map doesn't fit this level");
+            }
+            bits[index] = SessionSnapshot.getVarlong(in);
+        }
+    }
+}
@@ -17,28 +17,21 @@ public class Food extends Item {
         super(name); // Call the `Item` superclass constructor to initialize the item's name.
     }
 
-    // Override the `use` method to specify what happens when the player eats this food.
-    @Override
-    public void use(Player player) {
+    // The effect of eating any food (using it goes through its definition in the item registry).
+    static void eat(Player player, Item food) {
+        OutputSink output = player.getOutput(); // Messages go to this player's output.
         // Notify the player that they are eating the food.
-        System.out.println("Eating: " + getName());
+        output.printf("Eating: %s%n", food.getName());
 
-        // Variable to store how many power points the food restores.
-        int restoredPoints = 0;
-
-        // Check the name of the food to decide how many power points it restores.
-        if (getName().equalsIgnoreCase("Cake")) {
-            restoredPoints = 10; // Cake restores 10 power points.
-        } else if (getName().equalsIgnoreCase("Sandwich")) {
-            restoredPoints = 15; // Sandwich restores 15 power points.
-        }
+        // Look up how many power points the food restores in its definition (Cake 10, Sandwich 15).
+        int restoredPoints = food.getDefinition().getFoodValue();
 
         // Call the setPowerPoints method from the instantiate player object to add the restored points to the player's current power points.
         // Ensure the total does not go above the maximum limit of 100.
         player.setPowerPoints(Math.min(player.getPowerPoints() + restoredPoints, 100));
 
         // Tell the player how many points were restored and their current total power points.
-        System.out.println("Restored " + restoredPoints + " power points. Current Power Points: " + player.getPowerPoints());
+        output.printf("Restored %s power points. Current Power Points: %s%n", restoredPoints, player.getPowerPoints());
     }
 }
 
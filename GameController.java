@@ -13,7 +13,6 @@ package dungeongame;
 //*                                                  *//
 //* Date: 24/11/2024                                 *//
 //****************************************************//
-import java.util.Scanner;
 
 /**
  * The GameController class handles the interactions between the player and the dungeon.
@@ -32,9 +31,29 @@ public class GameController {
     private final Player player;
 
     /**
-     * A Scanner object to read input from the player during the game.
+     * Where the game's messages to the player are sent.
      */
-    private final Scanner scanner = new Scanner(System.in);
+    private final OutputSink output;
+
+    /**
+     * Where the player's commands are read from during the game.
+     */
+    private final InputSource input;
+
+    /**
+     * Asks the player questions and carries the game on when they answer.
+     */
+    private final Prompter prompter;
+
+    /**
+     * Whether the game has ended.
+     */
+    private boolean finished;
+
+    /**
+     * Whether the game is waiting for the player's next command, between turns.
+     */
+    private boolean awaitingCommand;
 
     /**
      * Creates a new GameController to manage the game with the instances of the dungeon and player.
@@ -45,95 +64,213 @@ public class GameController {
     public GameController(Dungeon dungeon, Player player) {
         this.dungeon = dungeon; // Assign the dungeon instance to the controller.
         this.player = player;   // Assign the player instance to the controller.
+        this.output = player.getOutput(); // Talk to the player through their own output.
+        this.input = player.getInput(); // Read the player's commands from their own input.
+        this.prompter = player.getPrompter();
     }
 
 
     /**
      * Starts the main game loop where the player can interact with the dungeon.
      * Continuously updates the game state, displays information, and processes player commands.
+     * Answers are read from the player's input until the game ends or the input runs out.
      */
     public void start() {
-        while (true) {
-            // Get the room the player is currently in based on their level and position.
-            Room currentRoom = dungeon.getRoom(player.getLevel(), player.getPosition());
-
-            // Show the current dungeon map with the player's location highlighted.
-            System.out.println("\n\t\tCurrent Map:");
-            dungeon.displayMap(player);
-
-            // Display the player's current power points and level for reference.
-            System.out.println("\nPower Points: " + player.getPowerPoints() + " | Level: " + player.getLevel());
-
-            // Show the current room's description and its contents.
-            currentRoom.describeContents();
-            //System.out.println("\nCurrent Room: " + currentRoom.getDescription());
-            System.out.println("Contents: " + currentRoom.describeContents());
-
-            // Allow the player to interact with the room's features (e.g., treasures, enemies).
-            dungeon.interactWithRoom(player);
-
-            // Show a prompt for available actions the player can take.
-            System.out.println("What do you want to do? (Move, Look Around, Pick Up, Use Item, Drop, Exit)");
-            System.out.print("> "); // Prompt symbol for input.
-
-            // Read the player's input and process it in lowercase for consistency.
-            String command = scanner.nextLine().toLowerCase();
-
-            // Handle the player's command based on their input.
-            switch (command) {
-                case "move":
-                    // Move the player to another room.
-                    handleMove();
-                    break;
-
-                case "look around":
-                    // Let the player examine their surroundings.
-                    dungeon.lookAround(player);
-                    break;
-
-                case "pick up":
-                    // Pick up an item from the current room.
-                    player.pickItem(currentRoom);
-                    break;
-
-                case "use item":
-                    // Show the player's inventory and let them use an item.
-                    // uses the showInventory method from the player class
-                    player.showInventory();
-                    System.out.println("Which item would you like to use? (Type the name or 'exit')");
-                    String itemName = scanner.nextLine();
+        begin();
+
+        // Feed the player's answers to the game one at a time.
+        if (!prompter.drive(input)) {
+            // The player's input ran out, such as at the end of a script.
+            output.println("Thanks for playing!");
+            finished = true;
+        }
+    }
+
+    /**
+     * Starts the game without waiting for input.
+     * The game plays up to its first question and then returns; each answer passed to the
+     * player's {@link Prompter} carries it on to the next one. This lets one thread run many games.
+     */
+    public void begin() {
+        playTurn();
+    }
+
+    /**
+     * Carries on a game restored from a snapshot: shows where the player is and asks for their next command.
+     * The room isn't played again, because the player had already dealt with it when the snapshot was taken.
+     */
+    public void resume() {
+        askForCommand(showStatus());
+    }
+
+    /**
+     * Checks whether the game is between turns, waiting for a command. This is when a snapshot can be taken.
+     *
+     * @return {@code true} while the command prompt is waiting for an answer.
+     */
+    public boolean isAwaitingCommand() {
+        return awaitingCommand;
+    }
+
+    /**
+     * Checks whether the game has ended (won, lost or quit).
+     *
+     * @return {@code true} once the game is over.
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Plays one turn: show where the player is, let the room act on them, then ask for a command.
+     */
+    private void playTurn() {
+        Room currentRoom = showStatus();
+
+        // Allow the player to interact with the room's features (e.g., treasures, enemies).
+        dungeon.interactWithRoom(player);
+
+        // Once the room has finished with the player (it may have asked them something), ask for a command.
+        prompter.then(() -> {
+            // Stop if that room won the game.
+            if (player.hasWon()) {
+                finished = true;
+                return;
+            }
+            askForCommand(currentRoom);
+        });
+    }
+
+    /**
+     * Shows the map, the player's power points and level, and what is in their room.
+     *
+     * @return The room the player is in.
+     */
+    private Room showStatus() {
+        // Get the room the player is currently in based on their level and position.
+        Room currentRoom = dungeon.getRoom(player.getLevel(), player.getPosition());
+
+        // Show the current dungeon map with the player's location highlighted.
+        output.println("\n\t\tCurrent Map:");
+        dungeon.displayMap(player);
+
+        // Display the player's current power points and level for reference.
+        output.printf("\nPower Points: %s | Level: %s%n", player.getPowerPoints(), player.getLevel());
+
+        // Show the current room's description and its contents, unless no one will read them (as in a replay).
+        if (!output.isDiscarding()) {
+            //output.printf("\nCurrent Room: %s%n", currentRoom.getDescription());
+            output.printf("Contents: %s%n", currentRoom.describeContents());
+        }
+        return currentRoom;
+    }
+
+    /**
+     * Asks the player what to do next and carries out their answer.
+     *
+     * @param currentRoom The room the player is in.
+     */
+    private void askForCommand(Room currentRoom) {
+        // Show a prompt for available actions the player can take.
+        output.println("What do you want to do? (Move, Look Around, Mark, Pick Up, Use Item, Drop, Exit)");
+        output.print("> "); // Prompt symbol for input.
+
+        // Process the player's input in lowercase for consistency.
+        awaitingCommand = true;
+        prompter.ask(command -> {
+            awaitingCommand = false;
+            handleCommand(command.toLowerCase(), currentRoom);
+        });
+    }
+
+    /**
+     * Carries out one command, then starts the next turn unless the game is over.
+     *
+     * @param command     The command the player typed, in lowercase.
+     * @param currentRoom The room the player was in when they typed it.
+     */
+    private void handleCommand(String command, Room currentRoom) {
+        // A sleeping player can only quit; anything else just lets the turn pass.
+        if (dungeon.isPlayerAsleep() && !command.equals("exit")) {
+            output.println("You are fast asleep and can't do anything this turn.");
+            command = "sleep";
+        }
+
+        // Handle the player's command based on their input.
+        switch (command) {
+            case "sleep":
+                // The player sleeps through the turn.
+                break;
+
+            case "move":
+                // Move the player to another room.
+                handleMove();
+                break;
+
+            case "look around":
+                // Let the player examine their surroundings.
+                dungeon.lookAround(player);
+                break;
+
+            case "mark":
+                // Mark or unmark the current room on the player's map.
+                dungeon.markRoom(player);
+                break;
+
+            case "pick up":
+                // Pick up an item from the current room.
+                player.pickItem(currentRoom);
+                break;
+
+            case "use item":
+                // Show the player's inventory and let them use an item.
+                // uses the showInventory method from the player class
+                player.showInventory();
+                output.println("Which item would you like to use? (Type the name or 'exit')");
+                prompter.ask(itemName -> {
                     if (!itemName.equalsIgnoreCase("exit")) {
                         player.useItem(itemName);
                     }
-                    break;
+                });
+                break;
 
-                case "drop":
-                    // Drop an item into the current room.
-                    player.dropItem(currentRoom);
-                    break;
+            case "drop":
+                // Drop an item into the current room.
+                player.dropItem(currentRoom);
+                break;
 
-                case "exit":
-                    // End the game with a thank-you message.
-                    System.out.println("Thanks for playing!");
-                    return;
+            case "exit":
+                // End the game with a thank-you message.
+                output.println("Thanks for playing!");
+                finished = true;
+                return;
 
-                default:
-                    // Inform the player if their input is invalid.
-                    System.out.println("Invalid command. Try again.");
-            }
+            default:
+                // Inform the player if their input is invalid.
+                output.println("Invalid command. Try again.");
+        }
+
+        // When the command is completely done (including any questions it asked), check how the game stands.
+        prompter.then(() -> {
+            // End the turn: timed effects that are due wear off or take hold.
+            dungeon.advanceTurn(player);
 
             // Check if the player has run out of power points.
             if (player.getPowerPoints() <= 0) {
-                System.out.println("Game Over! You ran out of power points.");
+                output.println("Game Over! You ran out of power points.");
+                finished = true;
                 return;
             }
 
             // Check if the player has entered the treasure room.
             if (currentRoom.isTreasureRoom()) {
-                System.out.println("\nCongratulations! You found the legendary treasure and won the game!");
+                output.println("\nCongratulations! You found the legendary treasure and won the game!");
+                finished = true;
                 return;
             }
-        }
+
+            playTurn();
+        });
     }
 
     /**
@@ -142,16 +279,18 @@ public class GameController {
      */
     private void handleMove() {
         // Ask the player which direction they want to move.
-        System.out.println("Which direction? (forward, back, right, left)");
-        System.out.print("> "); // Prompt symbol for input.
+        output.println("Which direction? (forward, back, right, left)");
+        output.print("> "); // Prompt symbol for input.
 
-        // Read the player's chosen direction and ensure it's in lowercase using Java's toLowerCase method.
-        String direction = scanner.nextLine().toLowerCase();
+        // Wait for the player's chosen direction and ensure it's in lowercase using Java's toLowerCase method.
+        prompter.ask(answer -> {
+            String direction = answer.toLowerCase();
 
-        // Try to move the player in the chosen direction.
-        // If the move is invalid, the dungeon.movePlayer method will notify the player.
-        if (!dungeon.movePlayer(player, direction)) {
-        }
+            // Try to move the player in the chosen direction.
+            // If the move is invalid, the dungeon.movePlayer method will notify the player.
+            if (!dungeon.movePlayer(player, direction)) {
+            }
+        });
     }
 
     /**
@@ -160,7 +299,7 @@ public class GameController {
      */
     private void handleTeleport() {
         // Let the player know the teleportation spell is being activated.
-        System.out.println("Using teleportation spell...");
+        output.println("Using teleportation spell...");
 
         // Randomly teleport the player within the dungeon.
         //call the teleportPlayer method from the dungeon class.
@@ -168,7 +307,7 @@ public class GameController {
 
         // Code used for testing the the teleportPlayer method works.
         // Debugging: Show the player's new position after teleportation for confirmation.
-        System.out.println("Debug: Player position after teleport: (" + player.getPosition()[0] + ", " + player.getPosition()[1] + ")");
+        output.printf("Debug: Player position after teleport: (%s, %s)%n", player.getPosition()[0], player.getPosition()[1]);
     }
 }
 
@@ -0,0 +1,95 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This class is the single source of  *//
+//*              randomness for a game. It takes one *//
+//*              master seed and hands out separate  *//
+//*              random streams for each level,      *//
+//*              chunk and character, so a whole run *//
+//*              can be repeated exactly from its    *//
+//*              seed, even across many threads.     *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+import java.util.SplittableRandom;
+
+/**
+ * Hands out seeded, independent random streams derived from one master seed.
+ * Each stream is named by a kind and a key, so the numbers it gives never depend on
+ * which other streams were made first or on which thread uses them.
+ */
+public final class GameRandom {
+
+    // The kinds of stream the game uses. Each kind keeps its own family of keys.
+    static final int LAYOUT = 1; // Key: level. Lays out the level's tiles.
+    static final int CHUNK = 2; // Key: level and chunk. Fills a chunk of rooms.
+    static final int SCIENTIST = 3; // Key: level. Picks where the Mad Scientist lives.
+    static final int ENTITY = 4; // Key: level and cell. Drives a character or item in a room.
+    static final int TELEPORT = 5; // Key: how many teleports came before. Picks a teleport destination.
+    static final int REVEAL = 6; // Key: 0. Picks items for revealRandomItem.
+    static final int BOX = 7; // Key: 0. Fills the dungeon's Box.
+    static final int BOT = 8; // Key: 0. Drives a simulated player's choices.
+
+    private final long seed; // The master seed every stream comes from.
+
+    /**
+     * Creates the random service for a game.
+     *
+     * @param seed the master seed
+     */
+    public GameRandom(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @return The master seed.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Works out the seed of a stream from the master seed, the stream's kind and its key.
+     *
+     * @param kind the kind of stream, such as {@link #LAYOUT}
+     * @param key  which stream of that kind (e.g. the level number)
+     * @return The seed for that stream.
+     */
+    public long seedFor(int kind, long key) {
+        return mix(mix(seed + kind * 0x9E3779B97F4A7C15L) + key);
+    }
+
+    /**
+     * Makes the random stream with a given kind and key.
+     * Asking again for the same kind and key gives a new stream with the same numbers.
+     *
+     * @param kind the kind of stream, such as {@link #TELEPORT}
+     * @param key  which stream of that kind
+     * @return A new random stream.
+     */
+    public SplittableRandom stream(int kind, long key) {
+        return new SplittableRandom(seedFor(kind, key));
+    }
+
+    /**
+     * Makes the random stream for something at a cell of a level, such as a Mad Scientist.
+     *
+     * @param level the dungeon level (starts from 1)
+     * @param cell  the cell on that level (x * size + y)
+     * @return A new random stream for that entity.
+     */
+    public SplittableRandom forEntity(int level, long cell) {
+        return stream(ENTITY, ((long) level << 40) ^ cell);
+    }
+
+    /**
+     * Scrambles a number so that nearby inputs give unrelated outputs (the SplitMix64 finaliser).
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,233 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This class plays a recorded game    *//
+//*              again from its world seed and the   *//
+//*              lines the player typed. Everything  *//
+//*              the game would have said is skipped *//
+//*              until the turn being looked for, so *//
+//*              a long game can be caught up in a   *//
+//*              moment to reproduce a bug, check    *//
+//*              what happened or let someone watch. *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Rebuilds a game at any turn from its world and the lines its player typed.
+ * <p>
+ * Every random choice a game makes comes from a {@link GameRandom} stream keyed by the world seed
+ * and by what is being decided (a chunk's contents, the Box, a Mad Scientist, the n-th teleport),
+ * never from the clock or from how many draws came before elsewhere, so the same seed and the same
+ * lines always give the same game. A replay plays the lines through a normal {@link LaunchGame}
+ * whose output goes through a {@link RelaySink}: it discards everything (the map isn't even drawn)
+ * until the last turn before the one asked for, then shows that turn. After catching up, the game
+ * can be carried on with {@link #step()} or directly through {@link #getGame()}.
+ * <p>
+ * A turn is one command answered at the command prompt, together with any questions it asks
+ * (such as which way to move). Turn 0 is the first command prompt, just after the welcome.
+ */
+public final class GameReplay {
+
+    private final List<String> lines; // The recorded lines, including the first "yes" and every answer to a question.
+    private final RelaySink output; // Discards output until the replay catches up.
+    private final LaunchGame game;
+    private int linesPlayed; // How many recorded lines have been played.
+    private int turn; // How many commands have been answered at the command prompt.
+
+    /**
+     * Starts replaying a recorded game. The game is set up and welcomes the player, silently.
+     *
+     * @param world the world the game was played in
+     * @param lines every line the player typed, in order; it must not change while the replay runs
+     */
+    public GameReplay(WorldTemplate world, List<String> lines) {
+        this.lines = lines;
+        this.output = new RelaySink(DiscardSink.INSTANCE);
+        // The game never reads input itself; every line is passed to answer().
+        this.game = new LaunchGame(output, new ScriptSource(), world);
+        game.begin();
+    }
+
+    /**
+     * Plays the recorded lines until a turn is reached, showing only the last turn before it.
+     * Stops early if the recording runs out or the game ends. From then on, output goes to the given sink.
+     *
+     * @param target the turn to stop at; the game is then waiting for that turn's command
+     * @param shown  where the last turn's output (and everything after it) goes
+     * @return The turn reached.
+     * @throws IllegalArgumentException if the target turn has already been played
+     */
+    public int fastForward(int target, OutputSink shown) {
+        if (target < turn) {
+            throw new IllegalArgumentException("Turn " + target + " has already been played; start a new replay to go back");
+        }
+        while (!(turn >= target && game.isAwaitingCommand()) && hasNext()) {
+            // Start showing output once the next command played would be the last one before the target.
+            if (turn + (game.isAwaitingCommand() ? 1 : 0) >= target) {
+                output.setTarget(shown);
+            }
+            step();
+        }
+        output.setTarget(shown);
+        return turn;
+    }
+
+    /**
+     * Plays the next recorded line.
+     *
+     * @return false if there was nothing left to play.
+     */
+    public boolean step() {
+        if (!hasNext()) {
+            return false;
+        }
+        if (game.isAwaitingCommand()) {
+            turn++;
+        }
+        game.answer(lines.get(linesPlayed++));
+        return true;
+    }
+
+    /**
+     * Checks whether there is a recorded line left and the game can still take it.
+     *
+     * @return true if {@link #step()} would play a line.
+     */
+    public boolean hasNext() {
+        return linesPlayed < lines.size() && !game.isFinished();
+    }
+
+    /**
+     * Gets how many commands have been answered at the command prompt.
+     *
+     * @return The number of turns played.
+     */
+    public int getTurn() {
+        return turn;
+    }
+
+    /**
+     * Gets how many recorded lines have been played.
+     *
+     * @return The number of lines played.
+     */
+    public int getLinesPlayed() {
+        return linesPlayed;
+    }
+
+    /**
+     * Gets the game being replayed, for instance to carry it on with live input after catching up.
+     *
+     * @return The game.
+     */
+    public LaunchGame getGame() {
+        return game;
+    }
+
+    /**
+     * Plays a game with random commands and answers, and records every line.
+     *
+     * @param game     a game started with {@link LaunchGame#begin()}
+     * @param random   where the choices come from
+     * @param maxTurns how many commands to play at most
+     * @return The lines typed, starting with the "yes" that starts the game.
+     */
+    static List<String> record(LaunchGame game, SplittableRandom random, int maxTurns) {
+        final String[] commands = {"move", "move", "move", "move", "look around", "mark", "pick up", "use item", "drop"};
+        final String[] answers = {"forward", "back", "left", "right", "yes", "no", "exit"};
+        List<String> lines = new ArrayList<>();
+        int turns = 0;
+        // Questions that keep asking are cut off along with the turns.
+        while (!game.isFinished() && turns < maxTurns && lines.size() < maxTurns * 4) {
+            String line;
+            if (lines.isEmpty()) {
+                line = "yes";
+            } else if (game.isAwaitingCommand()) {
+                line = commands[random.nextInt(commands.length)];
+                turns++;
+            } else {
+                line = answers[random.nextInt(answers.length)];
+            }
+            lines.add(line);
+            game.answer(line);
+        }
+        return lines;
+    }
+
+    /**
+     * Replays a recorded game, or measures how fast games replay.
+     * <p>
+     * With a seed and a file of recorded lines (one per line), the classic world with that seed is
+     * replayed. If a turn is given, that turn is shown as the player saw it; otherwise the whole
+     * recording is played silently. Either way, how far the replay got is printed at the end.
+     * <p>
+     * With "bench" and optionally a number of games (default 10000), random games are recorded and
+     * then replayed from the start, and each replay is checked to end in exactly the recorded game.
+     *
+     * @param args the command-line arguments
+     * @throws IOException if the file of recorded lines can't be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0 || args[0].equals("bench")) {
+            benchmark(args.length > 1 ? Integer.parseInt(args[1]) : 10000);
+            return;
+        }
+        if (args.length < 2) {
+            throw new IllegalArgumentException("Usage: GameReplay <seed> <recorded lines> [turn] | GameReplay bench [games]");
+        }
+        WorldTemplate world = WorldTemplate.classic(Long.parseLong(args[0]));
+        GameReplay replay = new GameReplay(world, Files.readAllLines(Paths.get(args[1])));
+        if (args.length > 2) {
+            replay.fastForward(Integer.parseInt(args[2]), new ConsoleSink());
+        } else {
+            while (replay.step()) {
+                // Play everything, silently.
+            }
+        }
+        System.out.printf("%nReached turn %d after %d of %d lines%s%n", replay.getTurn(), replay.getLinesPlayed(),
+                replay.lines.size(), replay.getGame().isFinished() ? "; the game is over" : "");
+    }
+
+    private static void benchmark(int games) {
+        List<List<String>> recordings = new ArrayList<>(games);
+        List<ByteBuffer> endings = new ArrayList<>(games);
+        for (int game = 0; game < games; game++) {
+            WorldTemplate world = WorldTemplate.classic(game);
+            LaunchGame played = new LaunchGame(DiscardSink.INSTANCE, new ScriptSource(), world);
+            played.begin();
+            recordings.add(record(played, world.getRandom().stream(GameRandom.BOT, 0), 1000));
+            endings.add(played.isFinished() ? null : played.snapshot());
+        }
+
+        long turns = 0;
+        long start = System.nanoTime();
+        GameReplay[] replays = new GameReplay[games];
+        for (int game = 0; game < games; game++) {
+            replays[game] = new GameReplay(WorldTemplate.classic(game), recordings.get(game));
+            replays[game].fastForward(Integer.MAX_VALUE, DiscardSink.INSTANCE);
+            turns += replays[game].getTurn();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        // Every replay must end in exactly the game that was recorded.
+        for (int game = 0; game < games; game++) {
+            LaunchGame replayed = replays[game].getGame();
+            ByteBuffer ending = replayed.isFinished() ? null : replayed.snapshot();
+            if (ending == null ? endings.get(game) != null : !ending.equals(endings.get(game))) {
+                throw new IllegalStateException("Game " + game + " replayed differently");
+            }
+        }
+        System.out.printf("%d games, %d turns replayed in %.2f s: %.0f turns per second%n",
+                games, turns, seconds, turns / seconds);
+    }
+}
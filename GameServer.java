@@ -0,0 +1,213 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This class hosts many players at    *//
+//*              once over TCP (for example through  *//
+//*              telnet). Every connection is its    *//
+//*              own session with its own dungeon,   *//
+//*              player and game controller, running *//
+//*              on its own thread.                  *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A TCP game server that runs one session per connection, each on its own thread.
+ * <p>
+ * On a JVM with virtual threads (Java 21 and later) every session gets a virtual thread, so a
+ * session waiting for its player's next command doesn't hold on to an operating system thread.
+ * On older JVMs sessions fall back to a pool of ordinary threads.
+ * <p>
+ * Each session has its own {@link Dungeon}, {@link Player} and {@link GameController}. Sessions can
+ * either each play a world of their own, or all play one shared {@link WorldTemplate}, in which case
+ * a session only stores the rooms its player changes. Its output is collected in a {@link BufferedSink} and sent in one write whenever the game waits
+ * for input, and its input is read from the connection through a {@link ConsoleSource}.
+ */
+public class GameServer implements AutoCloseable {
+
+    private final ServerSocket serverSocket; // Accepts new connections.
+    private final ExecutorService sessions; // Runs every session, one thread each.
+    private final WorldTemplate world; // The world every session plays, or null for a new world each.
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet(); // Open connections, closed on shutdown.
+    private Thread acceptor; // Accepts connections until the server is closed.
+
+    /**
+     * Creates a server listening on a port of this machine.
+     *
+     * @param port the port to listen on, or 0 to pick any free port
+     * @throws IOException if the port can't be opened
+     */
+    public GameServer(int port) throws IOException {
+        this(port, null);
+    }
+
+    /**
+     * Creates a server where every session plays the same world.
+     *
+     * @param port  the port to listen on, or 0 to pick any free port
+     * @param world the world every session plays, or null to give each session a new world
+     * @throws IOException if the port can't be opened
+     */
+    public GameServer(int port, WorldTemplate world) throws IOException {
+        this.world = world;
+        this.serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(port), 1024);
+        this.sessions = newSessionExecutor();
+    }
+
+    /**
+     * Makes an executor that runs each task on its own thread: a virtual thread if this JVM has them,
+     * otherwise a pooled platform thread. The virtual-thread executor is looked up by reflection so the
+     * game still builds and runs on Java 17.
+     *
+     * @return The executor.
+     */
+    static ExecutorService newSessionExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * Gets the port the server is listening on.
+     *
+     * @return The port number.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Starts accepting connections in the background.
+     */
+    public synchronized void start() {
+        if (acceptor != null) {
+            throw new IllegalStateException("The server has already been started");
+        }
+        acceptor = new Thread(this::acceptLoop, "game-server-acceptor");
+        acceptor.start();
+    }
+
+    /**
+     * Accepts connections until the server socket is closed, starting a session for each.
+     */
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true); // Replies are small; send them straight away.
+                connections.add(socket);
+                sessions.execute(() -> runSession(socket));
+            } catch (IOException e) {
+                // Thrown when the server socket is closed; the loop condition then ends it.
+            }
+        }
+    }
+
+    /**
+     * Plays one game over a connection, from the welcome message until the player leaves.
+     */
+    private void runSession(Socket socket) {
+        try (socket) {
+            BufferedSink output = new BufferedSink();
+            OutputStream out = socket.getOutputStream();
+            SessionInput input = new SessionInput(new ConsoleSource(socket.getInputStream()), output, out);
+
+            LaunchGame game = world == null ? new LaunchGame(output, input) : new LaunchGame(output, input, world);
+            game.start();
+            input.flush(); // Send the goodbye message.
+        } catch (IOException | UncheckedIOException e) {
+            // The connection broke; the session just ends.
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    /**
+     * Stops accepting connections and closes every open session.
+     *
+     * @throws IOException if the server socket can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket socket : connections) {
+            try {
+                socket.close(); // Wakes the session's thread from its read so it can finish.
+            } catch (IOException e) {
+                // Closing anyway.
+            }
+        }
+        sessions.shutdown();
+    }
+
+    /**
+     * A session's input. Before waiting for the player to type, it sends everything the game has said
+     * since the last prompt, so the player sees the question before it is asked.
+     */
+    private static final class SessionInput implements InputSource {
+        private final ConsoleSource lines; // The player's typed lines.
+        private final BufferedSink output; // What the game has said since the last prompt.
+        private final OutputStream out; // The connection back to the player.
+
+        SessionInput(ConsoleSource lines, BufferedSink output, OutputStream out) {
+            this.lines = lines;
+            this.output = output;
+            this.out = out;
+        }
+
+        void flush() {
+            if (output.size() == 0) return;
+            try {
+                output.drainTo(out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public boolean hasNextLine() {
+            flush();
+            return lines.hasNextLine();
+        }
+
+        @Override
+        public String nextLine() {
+            flush();
+            return lines.nextLine();
+        }
+    }
+
+    /**
+     * Runs the server until the process is stopped.
+     * Arguments: the port to listen on (default 4000) and, optionally, a seed for one classic world
+     * every session shares. Play with "telnet localhost 4000".
+     *
+     * @param args the command-line arguments
+     * @throws IOException if the port can't be opened
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 4000;
+        WorldTemplate world = args.length > 1 ? WorldTemplate.classic(Long.parseLong(args[1])) : null;
+        GameServer server = new GameServer(port, world);
+        server.start();
+        System.out.println("The Dungeon Game is listening on port " + server.getPort());
+    }
+}
@@ -0,0 +1,34 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This class is a simulated player    *//
+//*              that knows the way. It follows the  *//
+//*              shortest path to each level's exit  *//
+//*              or treasure, picking up items and   *//
+//*              eating along the way.               *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+import java.util.SplittableRandom;
+
+/**
+ * A bot that heads straight for the goal using the dungeon's path finder.
+ * It picks up new items and eats when low like {@link RandomWalkBot}, and wanders randomly
+ * only when the goal can't be reached from where it stands.
+ */
+public class GoalSeekingBot implements BotPolicy {
+
+    @Override
+    public void takeTurn(Dungeon dungeon, Player player, SplittableRandom random) {
+        if (RandomWalkBot.pickUpOrEat(dungeon, player)) return;
+
+        int[] position = player.getPosition();
+        String direction = dungeon.getPathFinder().directionToGoal(player.getLevel(), position[0], position[1]);
+        if (direction == null) {
+            direction = RandomWalkBot.DIRECTIONS[random.nextInt(RandomWalkBot.DIRECTIONS.length)];
+        }
+        dungeon.movePlayer(player, direction);
+    }
+}
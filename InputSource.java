@@ -0,0 +1,37 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This interface is where the game    *//
+//*              reads the player's answers from. It *//
+//*              can be the keyboard, a script of    *//
+//*              commands or a queue filled by other *//
+//*              code, so every prompt in the game   *//
+//*              works the same way for each one.    *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+import java.util.NoSuchElementException;
+
+/**
+ * Supplies the player's input one line at a time.
+ * Each session should read from a single source, so no typed-ahead input is lost between prompts.
+ */
+public interface InputSource {
+
+    /**
+     * Checks whether there is another line to read, waiting for one if necessary.
+     *
+     * @return true if {@link #nextLine()} will return a line, false if the input has ended.
+     */
+    boolean hasNextLine();
+
+    /**
+     * Reads the next line, waiting for one if necessary.
+     *
+     * @return The next line, without its line ending.
+     * @throws NoSuchElementException if the input has ended.
+     */
+    String nextLine();
+}
@@ -0,0 +1,421 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This class holds the items a player *//
+//*              carries, in the order they were     *//
+//*              picked up. It keeps them indexed by *//
+//*              name (ignoring case), by item       *//
+//*              number and by kind, so finding,     *//
+//*              counting or removing an item takes  *//
+//*              the same short time no matter how   *//
+//*              much the player carries.            *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A player's items, in insertion order, with O(1) lookup and removal by case-insensitive name,
+ * by {@link ItemRegistry} number and by kind.
+ * <p>
+ * Each item sits in a slot. Slots are linked four ways: in insertion order, with the other items
+ * of the same name (a stack, so duplicates are counted), with the other items of the same
+ * definition number, and with the other items of the same kind. The number lists are plain arrays
+ * indexed by definition number, grown when an item with a newly registered number arrives.
+ * Stacks are found through an open-addressing hash table whose hash and comparison fold case one
+ * character at a time, the same way as {@link String#equalsIgnoreCase}, so a query never has to build
+ * a lower-case copy of the name. Queries allocate nothing. Removing an item given by reference walks
+ * its name's stack, which only ever holds items with the same name.
+ */
+final class Inventory implements Iterable<Item> {
+
+    /**
+     * The kinds of item indexed by {@link #first(ItemDefinition.Kind)}, from each item's definition.
+     */
+    private static final ItemDefinition.Kind[] KINDS = ItemDefinition.Kind.values();
+
+    // Slot columns. A free slot has a null item and links to the next free slot through next.
+    private Item[] items = new Item[8];
+    private int[] next = new int[8], previous = new int[8]; // Insertion order.
+    private int[] nextSameName = new int[8], previousSameName = new int[8];
+    private int[] nextSameKind = new int[8], previousSameKind = new int[8];
+    private int[] nextSameId = new int[8], previousSameId = new int[8];
+    private int head = -1, tail = -1; // The first and last items in insertion order.
+    private int freeSlot = -1; // The first free slot below used, or -1.
+    private int used; // Slots handed out so far; slots from here up have never been used.
+    private int size;
+
+    // Name stacks, by hash. An empty bucket has stackHead -1.
+    private int[] stackHead = filled(16), stackTail = new int[16], stackCount = new int[16];
+    private int stacks; // How many buckets are in use.
+
+    // Kind lists.
+    private final int[] kindHead = filled(KINDS.length), kindTail = filled(KINDS.length);
+
+    // Definition number lists, by number. A number with no items has idHead -1.
+    private int[] idHead = filled(ItemRegistry.size()), idTail = filled(ItemRegistry.size());
+
+    private static int[] filled(int length) {
+        int[] array = new int[length];
+        Arrays.fill(array, -1);
+        return array;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Adds an item after every item already held.
+     *
+     * @param item The item to add.
+     */
+    void add(Item item) {
+        int slot = allocate();
+        items[slot] = item;
+
+        // Insertion order.
+        previous[slot] = tail;
+        next[slot] = -1;
+        if (tail < 0) head = slot; else next[tail] = slot;
+        tail = slot;
+
+        // Its name's stack, made if this is the first item with the name.
+        int bucket = findBucket(item.getName());
+        if (stackHead[bucket] < 0) {
+            stackHead[bucket] = slot;
+            previousSameName[slot] = -1;
+            stackCount[bucket] = 0;
+            stacks++;
+        } else {
+            previousSameName[slot] = stackTail[bucket];
+            nextSameName[stackTail[bucket]] = slot;
+        }
+        nextSameName[slot] = -1;
+        stackTail[bucket] = slot;
+        stackCount[bucket]++;
+
+        // Its kind's list.
+        int kind = kindOf(item);
+        previousSameKind[slot] = kindTail[kind];
+        nextSameKind[slot] = -1;
+        if (kindHead[kind] < 0) kindHead[kind] = slot; else nextSameKind[kindTail[kind]] = slot;
+        kindTail[kind] = slot;
+
+        // Its definition number's list.
+        int id = item.getId();
+        if (id >= idHead.length) {
+            growIds(ItemRegistry.size());
+        }
+        previousSameId[slot] = idTail[id];
+        nextSameId[slot] = -1;
+        if (idHead[id] < 0) idHead[id] = slot; else nextSameId[idTail[id]] = slot;
+        idTail[id] = slot;
+
+        size++;
+        if (stacks * 2 > stackHead.length) {
+            rehash(stackHead.length * 2);
+        }
+    }
+
+    /**
+     * Finds the first item (in the order they were added) with a name, ignoring case.
+     *
+     * @param name The name to look for.
+     * @return The item, or null if none has that name.
+     */
+    Item find(String name) {
+        int slot = stackHead[findBucket(name)];
+        return slot < 0 ? null : items[slot];
+    }
+
+    boolean contains(String name) {
+        return stackHead[findBucket(name)] >= 0;
+    }
+
+    /**
+     * Counts the items with a name, ignoring case.
+     *
+     * @param name The name to look for.
+     * @return How many items have that name.
+     */
+    int count(String name) {
+        int bucket = findBucket(name);
+        return stackHead[bucket] < 0 ? 0 : stackCount[bucket];
+    }
+
+    /**
+     * Finds the first item (in the order they were added) with a definition number.
+     *
+     * @param id The {@link ItemRegistry} number to look for.
+     * @return The item, or null if none has that number.
+     */
+    Item first(int id) {
+        return id >= idHead.length || idHead[id] < 0 ? null : items[idHead[id]];
+    }
+
+    boolean contains(int id) {
+        return id < idHead.length && idHead[id] >= 0;
+    }
+
+    /**
+     * Finds the first item (in the order they were added) of a kind, as its definition gives it.
+     * Items defined as data, which are plain {@link Item}s, are found by their kind too.
+     *
+     * @param kind The kind to look for.
+     * @return The item, or null if none is of that kind.
+     */
+    Item first(ItemDefinition.Kind kind) {
+        int list = kind.ordinal();
+        return kindHead[list] < 0 ? null : items[kindHead[list]];
+    }
+
+    /**
+     * Removes the first item (in the order they were added) with a name, ignoring case.
+     *
+     * @param name The name to look for.
+     * @return The item removed, or null if none has that name.
+     */
+    Item remove(String name) {
+        int bucket = findBucket(name);
+        int slot = stackHead[bucket];
+        if (slot < 0) return null;
+        Item item = items[slot];
+        unlink(slot, bucket);
+        return item;
+    }
+
+    /**
+     * Removes every item with a name, ignoring case.
+     *
+     * @param name The name to look for.
+     * @return How many items were removed.
+     */
+    int removeAll(String name) {
+        int removed = 0;
+        while (remove(name) != null) removed++;
+        return removed;
+    }
+
+    /**
+     * Removes the first item (in the order they were added) with a definition number.
+     *
+     * @param id The {@link ItemRegistry} number to look for.
+     * @return The item removed, or null if none has that number.
+     */
+    Item remove(int id) {
+        Item item = first(id);
+        if (item == null) return null;
+        unlink(idHead[id], findBucket(item.getName()));
+        return item;
+    }
+
+    /**
+     * Removes every item with a definition number.
+     *
+     * @param id The {@link ItemRegistry} number to look for.
+     * @return How many items were removed.
+     */
+    int removeAll(int id) {
+        int removed = 0;
+        while (remove(id) != null) removed++;
+        return removed;
+    }
+
+    /**
+     * Removes one particular item.
+     *
+     * @param item The item to remove.
+     * @return true if the item was held.
+     */
+    boolean remove(Item item) {
+        int bucket = findBucket(item.getName());
+        for (int slot = stackHead[bucket]; slot >= 0; slot = nextSameName[slot]) {
+            if (items[slot] == item) {
+                unlink(slot, bucket);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the first slot in insertion order, for walking the items without an iterator.
+     *
+     * @return The slot, or -1 if the inventory is empty.
+     */
+    int firstSlot() {
+        return head;
+    }
+
+    /**
+     * Gets the slot after another in insertion order.
+     *
+     * @param slot A slot holding an item.
+     * @return The next slot, or -1 after the last item.
+     */
+    int nextSlot(int slot) {
+        return next[slot];
+    }
+
+    Item itemAt(int slot) {
+        return items[slot];
+    }
+
+    @Override
+    public Iterator<Item> iterator() {
+        return new Iterator<>() {
+            private int slot = head;
+
+            @Override
+            public boolean hasNext() {
+                return slot >= 0;
+            }
+
+            @Override
+            public Item next() {
+                if (slot < 0) throw new NoSuchElementException();
+                Item item = items[slot];
+                slot = next[slot];
+                return item;
+            }
+        };
+    }
+
+    /**
+     * Takes a slot out of all four lists and frees it.
+     */
+    private void unlink(int slot, int bucket) {
+        // Insertion order.
+        if (previous[slot] < 0) head = next[slot]; else next[previous[slot]] = next[slot];
+        if (next[slot] < 0) tail = previous[slot]; else previous[next[slot]] = previous[slot];
+
+        // Name stack; the bucket is emptied when its last item goes.
+        if (previousSameName[slot] < 0) stackHead[bucket] = nextSameName[slot]; else nextSameName[previousSameName[slot]] = nextSameName[slot];
+        if (nextSameName[slot] < 0) stackTail[bucket] = previousSameName[slot]; else previousSameName[nextSameName[slot]] = previousSameName[slot];
+        if (--stackCount[bucket] == 0) {
+            deleteBucket(bucket);
+        }
+
+        // Kind list.
+        int kind = kindOf(items[slot]);
+        if (previousSameKind[slot] < 0) kindHead[kind] = nextSameKind[slot]; else nextSameKind[previousSameKind[slot]] = nextSameKind[slot];
+        if (nextSameKind[slot] < 0) kindTail[kind] = previousSameKind[slot]; else previousSameKind[nextSameKind[slot]] = previousSameKind[slot];
+
+        // Definition number list.
+        int id = items[slot].getId();
+        if (previousSameId[slot] < 0) idHead[id] = nextSameId[slot]; else nextSameId[previousSameId[slot]] = nextSameId[slot];
+        if (nextSameId[slot] < 0) idTail[id] = previousSameId[slot]; else previousSameId[nextSameId[slot]] = previousSameId[slot];
+
+        items[slot] = null;
+        next[slot] = freeSlot;
+        freeSlot = slot;
+        size--;
+    }
+
+    /**
+     * Hands out a free slot, growing the slot columns when every slot is in use.
+     */
+    private int allocate() {
+        if (freeSlot >= 0) {
+            int slot = freeSlot;
+            freeSlot = next[slot];
+            return slot;
+        }
+        if (used == items.length) {
+            int capacity = used * 2;
+            items = Arrays.copyOf(items, capacity);
+            next = Arrays.copyOf(next, capacity);
+            previous = Arrays.copyOf(previous, capacity);
+            nextSameName = Arrays.copyOf(nextSameName, capacity);
+            previousSameName = Arrays.copyOf(previousSameName, capacity);
+            nextSameKind = Arrays.copyOf(nextSameKind, capacity);
+            previousSameKind = Arrays.copyOf(previousSameKind, capacity);
+            nextSameId = Arrays.copyOf(nextSameId, capacity);
+            previousSameId = Arrays.copyOf(previousSameId, capacity);
+        }
+        return used++;
+    }
+
+    /**
+     * Finds the bucket holding a name's stack, or the empty bucket where it would go (linear probing).
+     */
+    private int findBucket(String name) {
+        int mask = stackHead.length - 1;
+        int bucket = foldedHash(name) & mask;
+        while (stackHead[bucket] >= 0 && !items[stackHead[bucket]].getName().equalsIgnoreCase(name)) {
+            bucket = (bucket + 1) & mask;
+        }
+        return bucket;
+    }
+
+    /**
+     * Empties a bucket and moves later buckets of the same probe run back, so no lookup ever stops short.
+     */
+    private void deleteBucket(int bucket) {
+        int mask = stackHead.length - 1;
+        int hole = bucket;
+        stackHead[hole] = -1;
+        stacks--;
+        for (int probe = (hole + 1) & mask; stackHead[probe] >= 0; probe = (probe + 1) & mask) {
+            int home = foldedHash(items[stackHead[probe]].getName()) & mask;
+            // Move the bucket into the hole unless its home lies after the hole (cyclically) and at or before it.
+            if (((probe - home) & mask) >= ((probe - hole) & mask)) {
+                stackHead[hole] = stackHead[probe];
+                stackTail[hole] = stackTail[probe];
+                stackCount[hole] = stackCount[probe];
+                stackHead[probe] = -1;
+                hole = probe;
+            }
+        }
+    }
+
+    /**
+     * Makes room for definition numbers registered since the number lists were last sized.
+     */
+    private void growIds(int capacity) {
+        int oldLength = idHead.length;
+        idHead = Arrays.copyOf(idHead, capacity);
+        idTail = Arrays.copyOf(idTail, capacity);
+        Arrays.fill(idHead, oldLength, capacity, -1);
+        Arrays.fill(idTail, oldLength, capacity, -1);
+    }
+
+    private void rehash(int capacity) {
+        int[] oldHead = stackHead, oldTail = stackTail, oldCount = stackCount;
+        stackHead = filled(capacity);
+        stackTail = new int[capacity];
+        stackCount = new int[capacity];
+        for (int i = 0; i < oldHead.length; i++) {
+            if (oldHead[i] < 0) continue;
+            int bucket = findBucket(items[oldHead[i]].getName());
+            stackHead[bucket] = oldHead[i];
+            stackTail[bucket] = oldTail[i];
+            stackCount[bucket] = oldCount[i];
+        }
+    }
+
+    /**
+     * Hashes a name so that names equal ignoring case hash the same, without making a copy.
+     * Each character is folded the way {@link String#equalsIgnoreCase} compares it.
+     */
+    private static int foldedHash(String name) {
+        int hash = 0;
+        for (int i = 0; i < name.length(); i++) {
+            hash = 31 * hash + Character.toLowerCase(Character.toUpperCase(name.charAt(i)));
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int kindOf(Item item) {
+        return item.getDefinition().getKind().ordinal();
+    }
+}
@@ -3,25 +3,34 @@ package dungeongame;
 //* Author:1717859                                   *//
 //* Week:9                                           *//
 //*                                                  *//
-//* Description: This abstract class represents an   *//
-//*              item in the game that can be used   *//
-//*              by the player. It defines a name    *//
-//*              for the item and requires           *//
-//*              implementation of a use() method    *//
-//*              to specify how the item affects     *//
+//* Description: This class represents an item in    *//
+//*              the game that can be used by the    *//
+//*              player. It has a name and the item  *//
+//*              registry's definition for that name,*//
+//*              which says what using it does to    *//
 //*              the player.                         *//
 //*                                                  *//
 //* Date: 24/11/2024                                 *//
 //****************************************************//
-// Define an abstract class `Item` that acts as a template for all game items.
-public abstract class Item {
+// Define a class `Item` that acts as a template for all game items.
+public class Item {
 
     // A private, unchangeable field to store the item's name.
     private final String name;
 
-    // Constructor to set the item's name when it is created.
+    // The item's entry in the item registry, which holds its number and what it does.
+    private final ItemDefinition definition;
+
+    // Constructor to set the item's name when it is created; the name is looked up in the item registry once, here.
     public Item(String name) {
         this.name = name; // Store the name in the `name` field.
+        this.definition = ItemRegistry.lookup(name);
+    }
+
+    // Constructor for an item of a registered definition, named after it.
+    public Item(ItemDefinition definition) {
+        this.name = definition.getName();
+        this.definition = definition;
     }
 
     // A method to get the name of the item.
@@ -29,8 +38,25 @@ public abstract class Item {
         return name; // Return the name of the item.
     }
 
-    // An abstract method that must be defined in subclasses to specify how the item is used.
-    public abstract void use(Player player);
+    // A method to get the item's entry in the item registry.
+    public ItemDefinition getDefinition() {
+        return definition;
+    }
+
+    // A method to get the item's number in the item registry, which the game compares instead of its name.
+    public int getId() {
+        return definition.getId();
+    }
+
+    // Uses the item: its effect is looked up from its definition rather than worked out from its name.
+    public void use(Player player) {
+        definition.getEffect().use(player, this);
+    }
+
+    // The effect of an item with nothing special to do: it just says it was used.
+    static void report(Player player, Item item) {
+        player.getOutput().printf("You used: %s%n", item.getName());
+    }
 }
 
 
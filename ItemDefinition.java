@@ -0,0 +1,94 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This class describes one kind of    *//
+//*              item as data: its number, name,     *//
+//*              what sort of item it is, how much   *//
+//*              power it restores when eaten, which *//
+//*              tool it needs, and what it does     *//
+//*              when used.                          *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+
+/**
+ * One entry of the {@link ItemRegistry}. Every item of the same name shares one definition,
+ * and the definition's number is what the game compares instead of the name.
+ */
+public final class ItemDefinition {
+
+    /**
+     * The sorts of item, each with the effect its items have unless their definition gives another.
+     */
+    public enum Kind {
+        TOOL(Tool::noUse),
+        SPELL(Spell::noEffect),
+        FOOD(Food::eat),
+        BOX(Box::needsTool),
+        POTION(Item::report),
+        OTHER(Item::report);
+
+        private final ItemEffect defaultEffect;
+
+        Kind(ItemEffect defaultEffect) {
+            this.defaultEffect = defaultEffect;
+        }
+    }
+
+    private final int id; // The definition's number in the registry.
+    private final String name;
+    private final Kind kind;
+    private final int foodValue; // Power points restored when eaten.
+    private final int requiredTool; // The number of the tool needed to use the item, or ItemRegistry.NONE.
+    private final ItemEffect effect;
+
+    ItemDefinition(int id, String name, Kind kind, int foodValue, int requiredTool, ItemEffect effect) {
+        this.id = id;
+        this.name = name;
+        this.kind = kind;
+        this.foodValue = foodValue;
+        this.requiredTool = requiredTool;
+        this.effect = effect != null ? effect : kind.defaultEffect;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Gets how many power points the item restores when eaten.
+     *
+     * @return The power points, or 0 for anything that isn't food.
+     */
+    public int getFoodValue() {
+        return foodValue;
+    }
+
+    /**
+     * Gets the tool needed to use the item, such as the Spanner that opens a Box.
+     *
+     * @return The tool's definition number, or {@link ItemRegistry#NONE}.
+     */
+    public int getRequiredTool() {
+        return requiredTool;
+    }
+
+    /**
+     * Gets what the item does when used.
+     *
+     * @return The item's effect.
+     */
+    public ItemEffect getEffect() {
+        return effect;
+    }
+}
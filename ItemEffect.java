@@ -0,0 +1,30 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This interface is what an item does *//
+//*              when the player uses it. Each item  *//
+//*              definition in the item registry has *//
+//*              one, so using an item is a single   *//
+//*              table lookup instead of a chain of  *//
+//*              name checks.                        *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+
+/**
+ * The behaviour of an item, looked up from its {@link ItemDefinition}.
+ * Effects are shared by every game, across threads, so they must not keep state of their own.
+ */
+@FunctionalInterface
+public interface ItemEffect {
+
+    /**
+     * Carries out the item's effect. Any question it asks goes through the player's prompter.
+     *
+     * @param player The player using the item.
+     * @param item   The item being used.
+     */
+    void use(Player player, Item item);
+}
@@ -0,0 +1,143 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This class lists every kind of item *//
+//*              the game knows about and gives each *//
+//*              one a number when the game starts.  *//
+//*              The game looks items up by number,  *//
+//*              so a new item can be added as one   *//
+//*              more line of data instead of one    *//
+//*              more name check in the code.        *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The table of {@link ItemDefinition}s, numbered from 0 in the order they are registered.
+ * <p>
+ * Names are only looked up when an item is made; from then on the game compares definition
+ * numbers and reads food values, tool requirements and effects straight from the definition.
+ * Definitions can be added while games are running: the table is replaced, never changed, so
+ * readers on other threads always see a complete one.
+ */
+public final class ItemRegistry {
+
+    /**
+     * The number used where no tool is needed.
+     */
+    public static final int NONE = -1;
+
+    private static volatile ItemDefinition[] definitions = new ItemDefinition[0]; // By number.
+    private static volatile Map<String, ItemDefinition> byName = Map.of(); // By lower-case name.
+
+    // Items nobody has defined still work; they just say they were used.
+    public static final int UNKNOWN = register("Unknown Item", ItemDefinition.Kind.OTHER, 0, NONE, null);
+
+    // The classic items.
+    public static final int TELEPORTATION_SPELL = register("Teleportation Spell", ItemDefinition.Kind.SPELL, 0, NONE, Spell::teleport);
+    public static final int FREEZE_SPELL = register("Freeze Spell", ItemDefinition.Kind.SPELL, 0, NONE, Spell::freeze);
+    public static final int HAMMER = register("Hammer", ItemDefinition.Kind.TOOL, 0, NONE, Tool::breakTrap);
+    public static final int SPANNER = register("Spanner", ItemDefinition.Kind.TOOL, 0, NONE, Tool::openBox);
+    public static final int ALARM_CLOCK = register("Alarm Clock", ItemDefinition.Kind.TOOL, 0, NONE, Tool::ringAlarm);
+    public static final int CAKE = register("Cake", ItemDefinition.Kind.FOOD, 10, NONE, null);
+    public static final int SANDWICH = register("Sandwich", ItemDefinition.Kind.FOOD, 15, NONE, null);
+    public static final int BOX = register("Box", ItemDefinition.Kind.BOX, 0, SPANNER, null);
+    public static final int SLEEPING_POTION = register("Sleeping Potion", ItemDefinition.Kind.POTION, 0, NONE, Box::drinkSleepingPotion);
+    public static final int X_RAY_POTION = register("X-Ray Potion", ItemDefinition.Kind.POTION, 0, NONE, Box::drinkXRayPotion);
+
+    private ItemRegistry() {
+    }
+
+    /**
+     * Adds an item definition and gives it the next number.
+     *
+     * @param name         the item's name, which must not already be registered (case is ignored)
+     * @param kind         what sort of item it is
+     * @param foodValue    the power points it restores when eaten
+     * @param requiredTool the number of the tool needed to use it, or {@link #NONE}
+     * @param effect       what it does when used, or null for its kind's usual effect
+     * @return The new definition's number.
+     * @throws IllegalArgumentException if the name is taken or the tool isn't registered
+     */
+    public static synchronized int register(String name, ItemDefinition.Kind kind, int foodValue, int requiredTool, ItemEffect effect) {
+        String key = name.toLowerCase(Locale.ROOT);
+        if (byName.containsKey(key)) {
+            throw new IllegalArgumentException("Item already registered: " + name);
+        }
+        if (requiredTool != NONE && (requiredTool < 0 || requiredTool >= definitions.length)) {
+            throw new IllegalArgumentException("Unknown tool " + requiredTool + " for " + name);
+        }
+        int id = definitions.length;
+        ItemDefinition definition = new ItemDefinition(id, name, kind, foodValue, requiredTool, effect);
+
+        ItemDefinition[] grown = Arrays.copyOf(definitions, id + 1);
+        grown[id] = definition;
+        Map<String, ItemDefinition> names = new HashMap<>(byName);
+        names.put(key, definition);
+        // Publish the numbers before the names: anyone who finds the new name can then always get its number.
+        definitions = grown;
+        byName = Map.copyOf(names);
+        return id;
+    }
+
+    /**
+     * Adds an item definition written as one line of data: "name, kind, food value[, required tool]".
+     * For example, "Pie, food, 20" or "Chest, box, 0, Hammer". The item gets its kind's usual effect.
+     *
+     * @param line the definition
+     * @return The new definition's number.
+     * @throws IllegalArgumentException if the line can't be read or names an unknown kind or tool
+     */
+    public static int define(String line) {
+        String[] fields = line.split(",");
+        if (fields.length < 3 || fields.length > 4) {
+            throw new IllegalArgumentException("Expected \"name, kind, food value[, required tool]\": " + line);
+        }
+        ItemDefinition.Kind kind = ItemDefinition.Kind.valueOf(fields[1].trim().toUpperCase(Locale.ROOT));
+        int requiredTool = NONE;
+        if (fields.length == 4) {
+            ItemDefinition tool = byName.get(fields[3].trim().toLowerCase(Locale.ROOT));
+            if (tool == null) {
+                throw new IllegalArgumentException("Unknown tool: " + fields[3].trim());
+            }
+            requiredTool = tool.getId();
+        }
+        return register(fields[0].trim(), kind, Integer.parseInt(fields[2].trim()), requiredTool, null);
+    }
+
+    /**
+     * Gets a definition by number.
+     *
+     * @param id the definition's number
+     * @return The definition.
+     */
+    public static ItemDefinition get(int id) {
+        return definitions[id];
+    }
+
+    /**
+     * Finds the definition for an item name, ignoring case.
+     *
+     * @param name the item's name
+     * @return The definition, or the {@link #UNKNOWN} definition if no item has that name.
+     */
+    public static ItemDefinition lookup(String name) {
+        ItemDefinition definition = byName.get(name.toLowerCase(Locale.ROOT));
+        return definition != null ? definition : definitions[UNKNOWN];
+    }
+
+    /**
+     * Gets how many definitions there are.
+     *
+     * @return The number of definitions; they are numbered from 0 up to this.
+     */
+    public static int size() {
+        return definitions.length;
+    }
+}
@@ -12,16 +12,35 @@ package dungeongame;
 //*                                                  *//
 //* Date: 24/11/2024                                 *//
 //****************************************************//
+import java.nio.ByteBuffer;
+
+import dungeongame.ConsoleSink;
 import dungeongame.Dungeon;
 import dungeongame.Player;
 import dungeongame.GameController;
-import java.util.Scanner;
+import dungeongame.InputSource;
+
+import dungeongame.ConsoleSource;
+import dungeongame.OutputSink;
+import dungeongame.Prompter;
 
 public class LaunchGame {
 
     // This is the main controller for the game. It manages the dungeon and player.
     private final GameController gameController;
 
+    // Where everything the game says goes.
+    private final OutputSink output;
+
+    // Where every answer the player types is read from.
+    private final InputSource input;
+
+    // Asks the player questions and carries the game on when they answer.
+    private final Prompter prompter;
+
+    // The player, kept so the game can be saved as a snapshot.
+    private final Player player;
+
     // The main method is where the program starts.
     public static void main(String[] args) {
         // Create an instance of the LaunchGame class to set up the game.
@@ -30,13 +49,29 @@ public class LaunchGame {
         launchGame.start();
     }
 
-    // This constructor sets up the dungeon and the player for the game.
+    // This constructor sets up a game played on the console.
+    // Every answer the player types is read from the keyboard through one shared reader.
     public LaunchGame() {
+        this(new ConsoleSink(), ConsoleSource.system());
+    }
+
+    // This constructor sets up the dungeon and the player for a game played through any input and output,
+    // such as a network session.
+    // Each game gets a world of its own: the classic 3 levels of 5x5, filled from a new seed.
+    public LaunchGame(OutputSink output, InputSource input) {
+        this(output, input, WorldTemplate.classic(System.nanoTime()));
+    }
 
+    // This constructor sets up a game in a world shared with other games, such as every session on a server.
+    // The game only keeps its own copy of the rooms and tiles it changes.
+    public LaunchGame(OutputSink output, InputSource input, WorldTemplate world) {
+        this.output = output;
+        this.input = input;
 
-        // Create a dungeon with 3 levels and a 5x5 grid size.
+        // Create a dungeon from the world's levels.
         // this instantiates a dungeon object of the dungeon class
-        Dungeon dungeon = new Dungeon(3, 5);
+        Dungeon dungeon = new Dungeon(world);
+        dungeon.setOutput(output); // The dungeon talks through the same output as the game.
         // Set up the dungeon, adding rooms and contents.
         // this calls the initialize method from the dungeon class using the newly instiated ojbect
         dungeon.initialize();
@@ -46,30 +81,93 @@ public class LaunchGame {
         Player player = new Player(100);
         //note this calls the method setDungeon from the player class which is linked to the dungeon class
         player.setDungeon(dungeon); // Link the dungeon to the player.
+        player.setOutput(output);
+        player.setInput(input);
+        // Start at the first level's entrance, whatever the world's layout.
+        int[] entrance = dungeon.getEntrance(1);
+        player.setPosition(entrance[0], entrance[1]);
+        this.player = player;
+        this.prompter = player.getPrompter();
 
         // Link the dungeon and player to the game controller class.
         this.gameController = new GameController(dungeon, player);
     }
 
+    // This constructor sets up a game restored from a snapshot (see SessionSnapshot.read).
+    // The player already talks through the given output; carry the game on with resume().
+    public LaunchGame(OutputSink output, InputSource input, Player restored) {
+        this.output = output;
+        this.input = input;
+        restored.setInput(input);
+        this.player = restored;
+        this.prompter = restored.getPrompter();
+        this.gameController = new GameController(restored.getDungeon(), restored);
+    }
+
     // This method starts the game and interacts with the player.
     public void start() {
-        // Print the title of the game and an introduction message.
-        System.out.println("\n\n\t\t\t\t\tThe Dungeon Game!");
-        System.out.println("\n\t\t   You've entered a perilous labyrinth filled with challenges and rewards. "
-                + "\n\tYour goal is to navigate through three treacherous levels, overcome obstacles, and claim the ultimate prize:"
-                + "\n\t\t\t\t\tTHE LEGENDARY TREASURE!");
-
-        // Ask the player if they are ready to begin.
-        System.out.println("\nAre you ready to start the adventure? (yes/no)");
-        Scanner scanner = new Scanner(System.in);
-        String input = scanner.nextLine().toLowerCase(); // Convert the input to lowercase for consistency using Java's toLowerCase method.
+        welcome();
+        String answer = input.nextLine().toLowerCase(); // Convert the input to lowercase for consistency using Java's toLowerCase method.
 
         // If the player types "yes", start the game loop.
-        if (input.equals("yes")) {
+        if (answer.equals("yes")) {
             gameController.start();
         } else {
             // If the player types anything else, end the game with a goodbye message.
-            System.out.println("Goodbye! Come back when you're ready for the adventure.");
+            output.println("Goodbye! Come back when you're ready for the adventure.");
         }
     }
+
+    // This method starts the game without waiting for input, so one thread can run many games.
+    // The game plays up to its first question and returns; each line the player types is then
+    // passed to answer() and the game carries on to its next question.
+    public void begin() {
+        welcome();
+        prompter.ask(line -> {
+            // If the player types "yes", start the game loop.
+            if (line.toLowerCase().equals("yes")) {
+                gameController.begin();
+            } else {
+                // If the player types anything else, end the game with a goodbye message.
+                output.println("Goodbye! Come back when you're ready for the adventure.");
+            }
+        });
+    }
+
+    // This method carries on a restored game without waiting for input, at the command prompt.
+    public void resume() {
+        gameController.resume();
+    }
+
+    // This method checks whether the game is between turns, waiting for a command, which is when it can be saved.
+    public boolean isAwaitingCommand() {
+        return gameController.isAwaitingCommand();
+    }
+
+    // This method saves the game as a snapshot (see SessionSnapshot), ready to be read from.
+    public ByteBuffer snapshot() {
+        return SessionSnapshot.write(player);
+    }
+
+    // This method passes one line the player typed to a game started with begin() or resume().
+    public void answer(String line) {
+        prompter.answer(line);
+    }
+
+    // This method checks whether a game started with begin() or resume() has ended.
+    public boolean isFinished() {
+        return !prompter.isWaiting();
+    }
+
+    // This method prints the title of the game and asks the player if they are ready.
+    private void welcome() {
+        // Print the title of the game and an introduction message.
+        output.println("\n\n\t\t\t\t\tThe Dungeon Game!");
+        output.println("\n\t\t   You've entered a perilous labyrinth filled with challenges and rewards. "
+                + "\n\tYour goal is to navigate through three treacherous levels, overcome obstacles, and claim the ultimate prize:"
+                + "\n\t\t\t\t\tTHE LEGENDARY TREASURE!");
+
+        // Ask the player if they are ready to begin.
+        output.println("\nAre you ready to start the adventure? (yes/no)");
+    }
 }
@@ -0,0 +1,226 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This class reads and writes the     *//
+//*              binary level file format. A file    *//
+//*              has a header, a directory entry for *//
+//*              each level, the tile plane of every *//
+//*              level and a table of the entities   *//
+//*              placed on it. Files are opened by   *//
+//*              mapping them into memory, so even a *//
+//*              huge world opens straight away.     *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The versioned binary level format (all numbers big-endian):
+ * <pre>
+ * header     magic "DGNL", u16 version, u16 reserved, i32 levelCount, i32 size, i64 seed
+ * directory  per level: i64 planeOffset, i64 entityOffset, i32 entityCount, i32 entranceX, i32 entranceY
+ * planes     per level: size * size tile bytes, row by row, each the tile's map symbol
+ *            (' ' empty, 'W' wall, 'E' entrance, 'X' exit, 'T' treasure)
+ * entities   per level: entityCount entries of i32 x, i32 y, i32 kind
+ * </pre>
+ * Only the header and directory are read when a file is opened; the planes are mapped
+ * and paged in by the operating system as they are used.
+ */
+public final class LevelFile {
+
+    private static final int MAGIC = 0x44474E4C; // "DGNL"
+    private static final short VERSION = 1;
+    private static final int HEADER_BYTES = 24;
+    private static final int DIRECTORY_BYTES = 28;
+    private static final int ENTITY_BYTES = 12;
+
+    /**
+     * Entity kind for the room holding a level's Mad Scientist.
+     */
+    static final int MAD_SCIENTIST = 1;
+
+    private final long seed; // The seed for everything placed in rooms.
+    private final LevelTiles[] levels; // The mapped tile plane of each level.
+    private final int[][] entrances; // The entrance of each level as [x, y].
+    private final int[][] entities; // Each level's entities as x, y, kind triples.
+
+    private LevelFile(long seed, LevelTiles[] levels, int[][] entrances, int[][] entities) {
+        this.seed = seed;
+        this.levels = levels;
+        this.entrances = entrances;
+        this.entities = entities;
+    }
+
+    /**
+     * Opens a level file by mapping it into memory.
+     * The tile planes are not read until they are used.
+     *
+     * @param path the level file to open
+     * @return The opened level file.
+     * @throws IOException If the file can't be read or is not a valid level file.
+     */
+    public static LevelFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // Read and check the header.
+            ByteBuffer header = read(channel, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC) {
+                throw new IOException(path + " is not a level file");
+            }
+            short version = header.getShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported level file version: " + version);
+            }
+            header.getShort(); // Reserved.
+            int levelCount = header.getInt();
+            int size = header.getInt();
+            long seed = header.getLong();
+            if (levelCount < 1 || size < 2 || (long) size * size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid level file shape: " + levelCount + " levels of " + size + "x" + size);
+            }
+
+            // Read the directory, then map each level's tiles and load its (small) entity table.
+            ByteBuffer directory = read(channel, HEADER_BYTES, (long) levelCount * DIRECTORY_BYTES);
+            LevelTiles[] levels = new LevelTiles[levelCount];
+            int[][] entrances = new int[levelCount][];
+            int[][] entities = new int[levelCount][];
+            for (int lvl = 0; lvl < levelCount; lvl++) {
+                long planeOffset = directory.getLong();
+                long entityOffset = directory.getLong();
+                int entityCount = directory.getInt();
+                entrances[lvl] = new int[]{directory.getInt(), directory.getInt()};
+
+                // Map the plane read-only; the operating system pages it in as it is used.
+                if (planeOffset < 0 || planeOffset + (long) size * size > channel.size()) {
+                    throw new IOException("Level file is truncated");
+                }
+                MappedByteBuffer plane = channel.map(FileChannel.MapMode.READ_ONLY, planeOffset, (long) size * size);
+                levels[lvl] = new LevelTiles(size, plane);
+
+                ByteBuffer table = read(channel, entityOffset, (long) entityCount * ENTITY_BYTES);
+                entities[lvl] = new int[entityCount * 3];
+                table.asIntBuffer().get(entities[lvl]);
+            }
+            return new LevelFile(seed, levels, entrances, entities);
+        }
+    }
+
+    /**
+     * Writes a world to a level file.
+     *
+     * @param path      the file to write
+     * @param seed      the seed for everything placed in rooms
+     * @param levels    the tile plane of each level
+     * @param entrances the entrance of each level as [x, y]
+     * @param entities  each level's entities as x, y, kind triples
+     * @throws IOException If the file can't be written.
+     */
+    public static void write(Path path, long seed, LevelTiles[] levels, int[][] entrances, int[][] entities) throws IOException {
+        int levelCount = levels.length;
+        int size = levels[0].getSize();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            // Work out where every plane and entity table will go.
+            long offset = HEADER_BYTES + (long) levelCount * DIRECTORY_BYTES;
+            ByteBuffer head = ByteBuffer.allocate((int) offset).order(ByteOrder.BIG_ENDIAN);
+            head.putInt(MAGIC).putShort(VERSION).putShort((short) 0).putInt(levelCount).putInt(size).putLong(seed);
+            long entityOffset = offset + (long) levelCount * size * size;
+            for (int lvl = 0; lvl < levelCount; lvl++) {
+                head.putLong(offset).putLong(entityOffset).putInt(entities[lvl].length / 3)
+                        .putInt(entrances[lvl][0]).putInt(entrances[lvl][1]);
+                offset += (long) size * size;
+                entityOffset += (long) entities[lvl].length / 3 * ENTITY_BYTES;
+            }
+            writeFully(channel, head.flip());
+
+            // The planes go straight from the tile buffers to the file.
+            for (LevelTiles level : levels) {
+                writeFully(channel, level.buffer().position(0));
+            }
+
+            // Finally the entity tables.
+            for (int[] table : entities) {
+                ByteBuffer buffer = ByteBuffer.allocate(table.length * 4);
+                buffer.asIntBuffer().put(table);
+                writeFully(channel, buffer);
+            }
+        }
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getLevelCount() {
+        return levels.length;
+    }
+
+    public int getSize() {
+        return levels[0].getSize();
+    }
+
+    /**
+     * @param level The level (0-based).
+     * @return The mapped tile plane of the level.
+     */
+    public LevelTiles getLevel(int level) {
+        return levels[level];
+    }
+
+    /**
+     * @param level The level (0-based).
+     * @return A copy of the level's entrance as [x, y].
+     */
+    public int[] getEntrance(int level) {
+        return entrances[level].clone();
+    }
+
+    /**
+     * Finds the first entity of a kind on a level.
+     *
+     * @param level The level (0-based).
+     * @param kind  The entity kind, such as {@link #MAD_SCIENTIST}.
+     * @return The entity's position as [x, y], or null if the level has none.
+     */
+    public int[] findEntity(int level, int kind) {
+        int[] table = entities[level];
+        for (int i = 0; i < table.length; i += 3) {
+            if (table[i + 2] == kind) {
+                return new int[]{table[i], table[i + 1]};
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads a block of the file into a new buffer.
+     */
+    private static ByteBuffer read(FileChannel channel, long position, long length) throws IOException {
+        if (position + length > channel.size()) {
+            throw new IOException("Level file is truncated");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Level file is truncated");
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Writes the whole of a buffer to the channel.
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
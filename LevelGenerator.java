@@ -0,0 +1,110 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This abstract class is the template *//
+//*              for every procedural level          *//
+//*              generator. A generator carves floor *//
+//*              out of a solid grid of walls, then  *//
+//*              this class places the entrance and  *//
+//*              the exit (or treasure) and makes    *//
+//*              sure the two are always connected.  *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * A pluggable generator that fills an N x N level with tiles from a seed.
+ * The same seed and size always give back the same level.
+ */
+public abstract class LevelGenerator {
+
+    /**
+     * Looks up a generator by the name used on command lines.
+     *
+     * @param name "classic", "maze", "rooms" or "cave"
+     * @return The generator, or null for "classic" (the original hand-made layouts).
+     */
+    public static LevelGenerator forName(String name) {
+        switch (name) {
+            case "classic":
+                return null;
+            case "maze":
+                return new MazeGenerator();
+            case "rooms":
+                return new RoomsAndCorridorsGenerator();
+            case "cave":
+                return new CaveGenerator();
+            default:
+                throw new IllegalArgumentException("Unknown generator: " + name);
+        }
+    }
+
+    /**
+     * Builds a complete level of the given size.
+     * The grid starts as solid wall, the subclass carves the floor, and then the
+     * entrance and the exit (or treasure on the final level) are placed and joined.
+     *
+     * @param size       how big the level is (size x size), at least 2
+     * @param seed       the seed that decides the layout
+     * @param finalLevel true if the level holds the treasure instead of an exit
+     * @return The finished level as a 2D grid of tile symbols.
+     */
+    public char[][] generate(int size, long seed, boolean finalLevel) {
+        // A level needs room for at least an entrance and an exit.
+        if (size < 2) {
+            throw new IllegalArgumentException("Invalid level size: " + size);
+        }
+
+        SplittableRandom random = new SplittableRandom(seed);
+
+        // Start with every tile as a wall and let the subclass carve the floor.
+        char[][] tiles = new char[size][size];
+        for (char[] row : tiles) {
+            Arrays.fill(row, Dungeon.WALL);
+        }
+        carve(tiles, random);
+
+        // The entrance sits on the bottom row and the exit on the top row, like the classic levels.
+        int entranceY = random.nextInt(size);
+        int exitY = random.nextInt(size);
+        connect(tiles, size - 1, entranceY, 0, exitY);
+        tiles[size - 1][entranceY] = Dungeon.ENTRANCE;
+        tiles[0][exitY] = finalLevel ? Dungeon.TREASURE : Dungeon.EXIT;
+        return tiles;
+    }
+
+    /**
+     * Carves the walkable floor of the level into a grid that starts as solid wall.
+     *
+     * @param tiles  the level grid to carve into
+     * @param random the random source for this level
+     */
+    protected abstract void carve(char[][] tiles, SplittableRandom random);
+
+    /**
+     * Carves an L-shaped corridor between two tiles: first along the row, then along the column.
+     *
+     * @param tiles the level grid to carve into
+     * @param fromX the starting row
+     * @param fromY the starting column
+     * @param toX   the target row
+     * @param toY   the target column
+     */
+    protected static void connect(char[][] tiles, int fromX, int fromY, int toX, int toY) {
+        // Walk along the starting row until the target column is reached.
+        int step = fromY <= toY ? 1 : -1;
+        for (int y = fromY; y != toY; y += step) {
+            if (tiles[fromX][y] == Dungeon.WALL) tiles[fromX][y] = Dungeon.EMPTY;
+        }
+
+        // Then walk along the target column until the target row is reached.
+        step = fromX <= toX ? 1 : -1;
+        for (int x = fromX; x != toX + step; x += step) {
+            if (tiles[x][toY] == Dungeon.WALL) tiles[x][toY] = Dungeon.EMPTY;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This class holds one level of a     *//
+//*              world exactly as it is first laid   *//
+//*              out: its tiles, its entrance, where *//
+//*              the Mad Scientist lives and what    *//
+//*              every room starts with. It never    *//
+//*              changes once made, so every player  *//
+//*              in the same world can share it and  *//
+//*              only keep their own changes.        *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The immutable starting state of one level, shared by every session playing the same world.
+ * <p>
+ * Room contents are filled chunk by chunk the first time any session looks at them, from a seed of
+ * their own, so the same chunk always gets the same contents. Half the rooms get an item, rolled from
+ * the level's {@link LootTable}. Items are stored as numbers into the
+ * dungeon's item pool and the Mad Scientist as a marker, because each session has its own items and
+ * its own Mad Scientist. Sessions read these chunks directly and copy one only when they change it
+ * (see {@link RoomGrid}). All methods are safe to call from many threads at once.
+ */
+final class LevelTemplate {
+
+    private final int level; // The level number (starts from 1).
+    private final LevelTiles tiles; // The level's layout. Read-only.
+    private final int size; // How big the level is (size x size).
+    private final int chunksPerSide; // How many chunks there are along each side of the level.
+    private final int[] entrance; // Where the player starts, as [x, y].
+    private final int scientistCell; // The cell (x * size + y) holding the Mad Scientist, or -1 for none.
+    private final GameRandom random; // The world's random service.
+    private final LootTable roomLoot; // What a room that gets an item gets.
+    private final int[] poolSlots; // Each item number's place in the dungeon's item pool, for the items roomLoot can give.
+    private final AtomicReferenceArray<RoomGrid.Chunk> chunks; // Filled chunks in row-major order; null until first read.
+    private volatile CellIndex walkableCells; // Every cell that is not a wall; made when first needed.
+
+    /**
+     * Creates the template of one level.
+     *
+     * @param level         the level number (starts from 1)
+     * @param tiles         the level's layout, which must never be changed afterwards
+     * @param entrance      where the player starts, as [x, y]
+     * @param scientistCell the cell (x * size + y) holding the Mad Scientist, or -1 for none
+     * @param random        the world's random service, which seeds each chunk's contents
+     * @param roomLoot      the loot table for rooms that get an item
+     * @throws IllegalArgumentException if the loot table can give an item rooms can't hold, or has guaranteed drops
+     */
+    LevelTemplate(int level, LevelTiles tiles, int[] entrance, int scientistCell, GameRandom random, LootTable roomLoot) {
+        this.level = level;
+        this.tiles = tiles;
+        this.size = tiles.getSize();
+        this.chunksPerSide = (size + RoomGrid.CHUNK - 1) >> RoomGrid.CHUNK_SHIFT;
+        this.entrance = entrance.clone();
+        this.scientistCell = scientistCell;
+        this.random = random;
+        this.chunks = new AtomicReferenceArray<>(chunksPerSide * chunksPerSide);
+
+        // A template room holds one item from the pool, so check the table only gives those, and one at a time.
+        if (roomLoot.getGuaranteed().length > 0) {
+            throw new IllegalArgumentException("Room loot can't have guaranteed drops: a room holds one item");
+        }
+        this.roomLoot = roomLoot;
+        this.poolSlots = new int[ItemRegistry.size()];
+        roomLoot.forEachItem(item -> {
+            int slot = Dungeon.poolSlot(item);
+            if (slot < 0) {
+                throw new IllegalArgumentException("Rooms can't hold " + ItemRegistry.get(item).getName());
+            }
+            poolSlots[item] = slot;
+        });
+    }
+
+    /**
+     * Gets the level's layout as first laid out.
+     *
+     * @return The level's read-only tiles.
+     */
+    LevelTiles getTiles() {
+        return tiles;
+    }
+
+    /**
+     * Gets where the player starts on this level.
+     *
+     * @return A copy of the entrance position as [x, y].
+     */
+    int[] getEntrance() {
+        return entrance.clone();
+    }
+
+    /**
+     * Gets the cell holding the level's Mad Scientist.
+     *
+     * @return The cell (x * size + y), or -1 if the level has no Mad Scientist.
+     */
+    int getScientistCell() {
+        return scientistCell;
+    }
+
+    /**
+     * Gets the index of the cells that are not walls, making it the first time it is asked for.
+     * Two threads may both make it; they make identical indexes, so either one can be kept.
+     *
+     * @return The walkable cells. Callers must not change it.
+     */
+    CellIndex getWalkableCells() {
+        CellIndex index = walkableCells;
+        if (index == null) {
+            index = indexWalkableCells(tiles);
+            walkableCells = index;
+        }
+        return index;
+    }
+
+    /**
+     * Gets how many chunks the level is split into.
+     *
+     * @return The number of chunks.
+     */
+    int getChunkCount() {
+        return chunks.length();
+    }
+
+    /**
+     * Gets how many chunks there are along each side of the level.
+     *
+     * @return The number of chunks per side.
+     */
+    int getChunksPerSide() {
+        return chunksPerSide;
+    }
+
+    /**
+     * Works out which chunk holds a room.
+     *
+     * @param x The row of the room.
+     * @param y The column of the room.
+     * @return The chunk's index, in row-major order.
+     */
+    int chunkIndex(int x, int y) {
+        return (x >> RoomGrid.CHUNK_SHIFT) * chunksPerSide + (y >> RoomGrid.CHUNK_SHIFT);
+    }
+
+    /**
+     * Gets the starting contents of a chunk, filling it the first time it is asked for.
+     * The returned chunk is shared and must never be written to.
+     *
+     * @param index The chunk's index, in row-major order.
+     * @return The chunk's starting contents.
+     */
+    RoomGrid.Chunk getChunk(int index) {
+        RoomGrid.Chunk chunk = chunks.get(index);
+        if (chunk == null) {
+            // Two sessions may fill the same chunk at once; both get the same contents, so keep whichever landed first.
+            chunk = populate(index / chunksPerSide, index % chunksPerSide);
+            if (!chunks.compareAndSet(index, null, chunk)) {
+                chunk = chunks.get(index);
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * Fills one chunk of the level with items, enemies, traps and the Mad Scientist.
+     * Each chunk has its own seed, so it gets the same contents whenever it is first explored.
+     *
+     * @param chunkX The row of the chunk.
+     * @param chunkY The column of the chunk.
+     * @return The chunk's contents, or the shared empty chunk if it holds nothing.
+     */
+    private RoomGrid.Chunk populate(int chunkX, int chunkY) {
+        SplittableRandom random = this.random.stream(GameRandom.CHUNK, (long) level << 32 | (chunkX * chunksPerSide + chunkY));
+        RoomGrid.Chunk chunk = new RoomGrid.Chunk();
+
+        // Loop through the rooms of this chunk, stopping at the edge of the level.
+        int endX = Math.min(size, (chunkX + 1) * RoomGrid.CHUNK);
+        int endY = Math.min(size, (chunkY + 1) * RoomGrid.CHUNK);
+        for (int i = chunkX * RoomGrid.CHUNK; i < endX; i++) {
+            for (int j = chunkY * RoomGrid.CHUNK; j < endY; j++) {
+                // Nobody can walk into a wall, so there is no point filling it.
+                if (tiles.get(i, j) == Dungeon.WALL) {
+                    continue;
+                }
+
+                // The Mad Scientist's room holds nothing else.
+                if (scientistCell == i * size + j) {
+                    chunk.scientists[RoomGrid.cell(i, j)] = -1;
+                    continue;
+                }
+
+                // Randomly decide if the room gets an item from the pool, and roll the level's loot table for which
+                boolean hasItem = random.nextBoolean();
+                if (hasItem) {
+                    int item = roomLoot.roll(random);
+                    hasItem = item != LootTable.NOTHING;
+                    if (hasItem) {
+                        chunk.items[RoomGrid.cell(i, j)] = -1 - poolSlots[item];
+                    }
+                }
+
+                // Randomly decide if the room gets enemies or traps (12.5% chance)
+                if (random.nextInt(8) == 0 && !hasItem) {
+                    RoomGrid.set(chunk.trapped, i, j, true);
+                }
+            }
+        }
+        return chunk.isBlank() ? RoomGrid.EMPTY_CHUNK : chunk;
+    }
+
+    /**
+     * Picks the cell a level's Mad Scientist lives in: a random plain empty tile, so never the
+     * entrance, the exit or the treasure. Nothing the size of the level is made: random tiles are
+     * tried first, and only a level too crowded for those to find one is counted through.
+     *
+     * @param tiles  The level's layout.
+     * @param random The stream to pick with.
+     * @return The cell (x * size + y), or -1 if the level has no empty tile.
+     */
+    static int pickScientistCell(LevelTiles tiles, SplittableRandom random) {
+        int size = tiles.getSize();
+
+        // Levels are mostly open, so a few tries nearly always land on an empty tile.
+        for (int tries = 0; tries < 64; tries++) {
+            int cell = random.nextInt(size * size);
+            if (tiles.get(cell / size, cell % size) == Dungeon.EMPTY) return cell;
+        }
+
+        // A crowded level: count its empty tiles, then find the one picked.
+        int empty = 0;
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                if (tiles.get(x, y) == Dungeon.EMPTY) empty++;
+            }
+        }
+        if (empty == 0) return -1;
+
+        int skip = random.nextInt(empty); // How many empty tiles come before the one picked.
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                if (tiles.get(x, y) == Dungeon.EMPTY && skip-- == 0) return x * size + y;
+            }
+        }
+        throw new IllegalStateException("The level's tiles changed while picking"); // Read-only tiles can't.
+    }
+
+    /**
+     * Indexes every cell of a layout that is not a wall.
+     *
+     * @param tiles The level's layout.
+     * @return A new index of the walkable cells (x * size + y).
+     */
+    static CellIndex indexWalkableCells(LevelTiles tiles) {
+        int size = tiles.getSize();
+        CellIndex index = new CellIndex(size * size);
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                if (tiles.get(x, y) != Dungeon.WALL) index.add(x * size + y);
+            }
+        }
+        return index;
+    }
+}
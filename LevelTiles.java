@@ -0,0 +1,119 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This class holds the tile layout of *//
+//*              one dungeon level. Each tile is one *//
+//*              byte holding its map symbol (for    *//
+//*              example 'W' for a wall). The bytes  *//
+//*              can live on the heap or in a level  *//
+//*              file mapped straight into memory,   *//
+//*              so huge levels are only read in as  *//
+//*              the player reaches them.            *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+import java.nio.ByteBuffer;
+
+/**
+ * The tile plane of a single level, stored as one symbol byte per tile in row-major order.
+ */
+public final class LevelTiles {
+
+    private final int size; // How big the level is (size x size).
+    private final ByteBuffer tiles; // The tile symbols, row by row.
+
+    /**
+     * Wraps a buffer of tile symbols.
+     *
+     * @param size  how big the level is (size x size)
+     * @param tiles the tile symbols in row-major order, starting at position 0
+     */
+    LevelTiles(int size, ByteBuffer tiles) {
+        // The buffer must hold exactly one byte per tile.
+        if ((long) size * size != tiles.capacity()) {
+            throw new IllegalArgumentException("Expected " + (long) size * size + " tiles but got " + tiles.capacity());
+        }
+        this.size = size;
+        this.tiles = tiles;
+    }
+
+    /**
+     * Copies a 2D grid of tile symbols into a new tile plane on the heap.
+     *
+     * @param grid the level layout, grid[x][y]
+     * @return The tile plane holding the same layout.
+     */
+    public static LevelTiles of(char[][] grid) {
+        int size = grid.length;
+        byte[] bytes = new byte[size * size];
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                bytes[x * size + y] = (byte) grid[x][y];
+            }
+        }
+        return new LevelTiles(size, ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Gets how big the level is.
+     *
+     * @return The length of one side of the level.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the symbol of a tile.
+     *
+     * @param x The row of the tile.
+     * @param y The column of the tile.
+     * @return The tile symbol, such as {@link Dungeon#WALL}.
+     */
+    public char get(int x, int y) {
+        return (char) tiles.get(x * size + y);
+    }
+
+    /**
+     * Changes the symbol of a tile.
+     * Tiles mapped from a level file are read-only and can't be changed.
+     *
+     * @param x      The row of the tile.
+     * @param y      The column of the tile.
+     * @param symbol The new tile symbol.
+     */
+    public void set(int x, int y, char symbol) {
+        tiles.put(x * size + y, (byte) symbol);
+    }
+
+    /**
+     * Makes a read-only view of these tiles, for a layout shared between sessions.
+     *
+     * @return A tile plane over the same bytes that can't be changed.
+     */
+    public LevelTiles readOnly() {
+        return new LevelTiles(size, tiles.asReadOnlyBuffer());
+    }
+
+    /**
+     * Copies the tiles into a new, changeable tile plane on the heap.
+     *
+     * @return A copy of these tiles.
+     */
+    public LevelTiles copy() {
+        ByteBuffer copy = ByteBuffer.allocate(tiles.capacity());
+        copy.put(tiles.duplicate().clear()).clear();
+        return new LevelTiles(size, copy);
+    }
+
+    /**
+     * Gives read access to the raw tile bytes, for writing them out to a level file.
+     *
+     * @return A read-only view of the tile bytes.
+     */
+    ByteBuffer buffer() {
+        return tiles.asReadOnlyBuffer();
+    }
+}
@@ -0,0 +1,334 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This class checks that generated    *//
+//*              worlds can be won before they are   *//
+//*              published. For every seed it builds *//
+//*              the dungeon and proves that each    *//
+//*              level's entrance can reach its exit *//
+//*              or treasure, and that some route    *//
+//*              past the traps and Mad Scientists   *//
+//*              leaves the player alive. Seeds are  *//
+//*              checked in parallel on a fork-join  *//
+//*              pool.                               *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Validates that the worlds made from a range of seeds can be won.
+ * A level fails if its exit can't be reached, or if every route to it costs all of the
+ * starting power points (assuming the player has no Hammer or Freeze Spell to help).
+ */
+public class LevelValidator {
+
+    /**
+     * Describes why a seed's world can't be won.
+     */
+    public static final class Failure {
+        private final long seed;
+        private final int level;
+        private final int x;
+        private final int y;
+        private final String reason;
+
+        Failure(long seed, int level, int x, int y, String reason) {
+            this.seed = seed;
+            this.level = level;
+            this.x = x;
+            this.y = y;
+            this.reason = reason;
+        }
+
+        public long getSeed() {
+            return seed;
+        }
+
+        public int getLevel() {
+            return level;
+        }
+
+        /**
+         * @return The cell that blocks progress as [x, y].
+         */
+        public int[] getCell() {
+            return new int[]{x, y};
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return "Seed " + seed + ", level " + level + " at (" + x + ", " + y + "): " + reason;
+        }
+    }
+
+    /**
+     * How many seeds one fork-join task checks before it stops splitting.
+     */
+    private static final int SEEDS_PER_TASK = 64;
+
+    private final int levelCount; // Levels in each world.
+    private final int size; // How big each level is.
+    private final LevelGenerator generator; // Lays out the levels, or null for the classic layouts.
+    private final int startingPower; // The power points a player starts each level with.
+
+    /**
+     * Creates a validator for worlds of one shape.
+     *
+     * @param levelCount    the total number of levels in each world
+     * @param size          how big each level is (size x size)
+     * @param generator     the generator that lays out each level, or null for the classic layouts
+     * @param startingPower the power points the player has when entering a level
+     */
+    public LevelValidator(int levelCount, int size, LevelGenerator generator, int startingPower) {
+        this.levelCount = levelCount;
+        this.size = size;
+        this.generator = generator;
+        this.startingPower = startingPower;
+    }
+
+    /**
+     * Checks every level of the world made from one seed.
+     *
+     * @param seed the world seed
+     * @return The first problem found, or null if every level can be won.
+     */
+    public Failure validate(long seed) {
+        Dungeon dungeon = new Dungeon(levelCount, size, generator, seed);
+        dungeon.setOutput(DiscardSink.INSTANCE); // No one reads the dungeon's messages here.
+        dungeon.initialize();
+        PathFinder pathFinder = dungeon.getPathFinder();
+
+        for (int level = 1; level <= levelCount; level++) {
+            int[] entrance = dungeon.getEntrance(level);
+
+            // The cheap check first: is there any way to the exit at all?
+            if (pathFinder.distanceToGoal(level, entrance[0], entrance[1]) < 0) {
+                int[] blocked = closestReachableToGoal(dungeon, level, entrance);
+                return new Failure(seed, level, blocked[0], blocked[1], "the exit can't be reached from the entrance");
+            }
+
+            // Then make sure some route leaves the player with power points to spare.
+            Failure failure = checkDamage(dungeon, seed, level, entrance);
+            if (failure != null) {
+                return failure;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks a range of seeds in parallel.
+     *
+     * @param firstSeed the first seed to check
+     * @param count     how many consecutive seeds to check
+     * @param pool      the fork-join pool to run on
+     * @return Every seed that failed, with the cell that blocks progress.
+     */
+    public List<Failure> validateSeeds(long firstSeed, int count, ForkJoinPool pool) {
+        ConcurrentLinkedQueue<Failure> failures = new ConcurrentLinkedQueue<>();
+        pool.invoke(new SeedRange(firstSeed, count, failures));
+
+        // Report the bad seeds in order, whichever thread found them.
+        List<Failure> sorted = new ArrayList<>(failures);
+        sorted.sort((a, b) -> Long.compare(a.getSeed(), b.getSeed()));
+        return sorted;
+    }
+
+    /**
+     * A fork-join task that splits a range of seeds in half until it is small enough to check directly.
+     */
+    private final class SeedRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final long first;
+        private final int count;
+        private final ConcurrentLinkedQueue<Failure> failures;
+
+        SeedRange(long first, int count, ConcurrentLinkedQueue<Failure> failures) {
+            this.first = first;
+            this.count = count;
+            this.failures = failures;
+        }
+
+        @Override
+        protected void compute() {
+            if (count > SEEDS_PER_TASK) {
+                int half = count / 2;
+                invokeAll(new SeedRange(first, half, failures), new SeedRange(first + half, count - half, failures));
+                return;
+            }
+            for (long seed = first; seed < first + count; seed++) {
+                Failure failure = validate(seed);
+                if (failure != null) {
+                    failures.add(failure);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the route from the entrance that costs the fewest power points (Dijkstra's algorithm),
+     * and reports the cell where the player would run out if even that route is too costly.
+     */
+    private Failure checkDamage(Dungeon dungeon, long seed, int level, int[] entrance) {
+        LevelTiles tiles = dungeon.getLevelTiles(level);
+        RoomGrid rooms = dungeon.getRoomGrid(level);
+        int[] damage = new int[size * size];
+        int[] previous = new int[size * size];
+        Arrays.fill(damage, Integer.MAX_VALUE);
+
+        // The player already takes the entrance room's damage before the first move.
+        int start = entrance[0] * size + entrance[1];
+        damage[start] = roomDamage(tiles, rooms, entrance[0], entrance[1]);
+        previous[start] = -1;
+        PriorityQueue<Long> queue = new PriorityQueue<>();
+        queue.add(((long) damage[start] << 32) | start);
+
+        int[] dx = {-1, 1, 0, 0};
+        int[] dy = {0, 0, -1, 1};
+        while (!queue.isEmpty()) {
+            long top = queue.poll();
+            int cell = (int) top;
+            if ((int) (top >>> 32) != damage[cell]) continue;
+            int x = cell / size;
+            int y = cell % size;
+
+            // The cheapest goal reached decides the level.
+            char symbol = tiles.get(x, y);
+            if (symbol == Dungeon.EXIT || symbol == Dungeon.TREASURE) {
+                if (damage[cell] < startingPower) return null;
+                return lethalCell(seed, level, previous, damage, cell);
+            }
+
+            for (int d = 0; d < 4; d++) {
+                int nx = x + dx[d];
+                int ny = y + dy[d];
+                if (nx < 0 || nx >= size || ny < 0 || ny >= size || tiles.get(nx, ny) == Dungeon.WALL) continue;
+                int next = nx * size + ny;
+                int cost = damage[cell] + roomDamage(tiles, rooms, nx, ny);
+                if (cost < damage[next]) {
+                    damage[next] = cost;
+                    previous[next] = cell;
+                    queue.add(((long) cost << 32) | next);
+                }
+            }
+        }
+        return null; // Not reached: the distance check has already shown the goal is reachable.
+    }
+
+    /**
+     * Walks the cheapest route back from the goal to find the first cell where the player runs out of power.
+     */
+    private Failure lethalCell(long seed, int level, int[] previous, int[] damage, int goal) {
+        int cell = goal;
+        while (previous[cell] >= 0 && damage[previous[cell]] >= startingPower) {
+            cell = previous[cell];
+        }
+        return new Failure(seed, level, cell / size, cell % size,
+                "every route costs at least " + damage[goal] + " of " + startingPower + " power points");
+    }
+
+    /**
+     * Works out how many power points entering a room costs a player with no Hammer or Freeze Spell.
+     */
+    private static int roomDamage(LevelTiles tiles, RoomGrid rooms, int x, int y) {
+        // Reaching an exit or the treasure ends the level before anything in the room can act.
+        char symbol = tiles.get(x, y);
+        if (symbol == Dungeon.EXIT || symbol == Dungeon.TREASURE) return 0;
+
+        int damage = 0;
+        if (rooms.hasMadScientist(x, y)) damage += MadScientist.ATTACK_DAMAGE;
+        if (rooms.hasEnemiesOrTraps(x, y)) damage += Dungeon.TRAP_DAMAGE;
+        return damage;
+    }
+
+    /**
+     * Finds the tile the player can reach that is nearest (in a straight line) to the level's goal.
+     * This is where the wall that blocks the way starts.
+     */
+    private int[] closestReachableToGoal(Dungeon dungeon, int level, int[] entrance) {
+        LevelTiles tiles = dungeon.getLevelTiles(level);
+
+        // Find the goal tile.
+        int goal = -1;
+        for (int cell = 0; cell < size * size && goal < 0; cell++) {
+            char symbol = tiles.get(cell / size, cell % size);
+            if (symbol == Dungeon.EXIT || symbol == Dungeon.TREASURE) goal = cell;
+        }
+        if (goal < 0) return entrance;
+
+        // Flood out from the entrance and keep the tile nearest the goal.
+        boolean[] seen = new boolean[size * size];
+        int[] queue = new int[size * size];
+        int head = 0;
+        int tail = 0;
+        int start = entrance[0] * size + entrance[1];
+        queue[tail++] = start;
+        seen[start] = true;
+        int best = start;
+        int bestDistance = Integer.MAX_VALUE;
+        int[] dx = {-1, 1, 0, 0};
+        int[] dy = {0, 0, -1, 1};
+        while (head < tail) {
+            int cell = queue[head++];
+            int x = cell / size;
+            int y = cell % size;
+            int distance = Math.abs(x - goal / size) + Math.abs(y - goal % size);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = cell;
+            }
+            for (int d = 0; d < 4; d++) {
+                int nx = x + dx[d];
+                int ny = y + dy[d];
+                if (nx < 0 || nx >= size || ny < 0 || ny >= size) continue;
+                int next = nx * size + ny;
+                if (!seen[next] && tiles.get(nx, ny) != Dungeon.WALL) {
+                    seen[next] = true;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return new int[]{best / size, best % size};
+    }
+
+    /**
+     * Checks a range of seeds from the command line and prints the bad ones.
+     * Arguments: first seed, seed count, level count, level size, and generator
+     * ("classic", "maze", "rooms" or "cave").
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        long firstSeed = args.length > 0 ? Long.parseLong(args[0]) : 0;
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+        int levelCount = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        int size = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+        String kind = args.length > 4 ? args[4] : "classic";
+
+        LevelGenerator generator = LevelGenerator.forName(kind);
+
+        LevelValidator validator = new LevelValidator(levelCount, size, generator, 100);
+        long start = System.nanoTime();
+        List<Failure> failures = validator.validateSeeds(firstSeed, count, ForkJoinPool.commonPool());
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        for (Failure failure : failures) {
+            System.out.println(failure);
+        }
+        System.out.printf("Checked %d seeds in %.2fs (%.0f seeds/s), %d failed.%n", count, seconds, count / seconds, failures.size());
+    }
+}
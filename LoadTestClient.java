@@ -0,0 +1,151 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This class puts a game server under *//
+//*              load. It opens many sessions at     *//
+//*              once, has each one send a stream of *//
+//*              commands, and reports how long the  *//
+//*              server took to answer them.         *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A load-test client for {@link GameServer} and {@link EventLoopServer}, which speak the same protocol.
+ * Each simulated player connects, starts the game, then sends "look around" over and over,
+ * timing each command from the moment it is sent until the server's next "> " prompt arrives.
+ */
+public class LoadTestClient {
+
+    private static final byte[] START = "yes\n".getBytes(StandardCharsets.US_ASCII); // Answers "Are you ready?".
+    private static final byte[] COMMAND = "look around\n".getBytes(StandardCharsets.US_ASCII); // Changes nothing, so it can repeat.
+    private static final byte[] QUIT = "exit\n".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Runs the load test and prints the latency percentiles.
+     * Arguments: host, port, number of sessions, and commands per session.
+     *
+     * @param args the command-line arguments
+     * @throws Exception if the test can't run
+     */
+    public static void main(String[] args) throws Exception {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 4000;
+        int sessions = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+        int commands = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+
+        long[] latencies = run(host, port, sessions, commands);
+        System.out.println(summarise(latencies));
+    }
+
+    /**
+     * Runs every session at once and collects the latency of every command.
+     *
+     * @param host     the server's host
+     * @param port     the server's port
+     * @param sessions how many players to simulate at once
+     * @param commands how many commands each player sends
+     * @return The latency of every command in nanoseconds, sorted.
+     * @throws Exception if a session fails
+     */
+    static long[] run(String host, int port, int sessions, int commands) throws Exception {
+        ExecutorService executor = GameServer.newSessionExecutor();
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int i = 0; i < sessions; i++) {
+            results.add(executor.submit(() -> playSession(host, port, commands)));
+        }
+
+        long[] latencies = new long[sessions * commands];
+        int count = 0;
+        for (Future<long[]> result : results) {
+            long[] session = result.get();
+            System.arraycopy(session, 0, latencies, count, session.length);
+            count += session.length;
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+
+        Arrays.sort(latencies, 0, count);
+        return Arrays.copyOf(latencies, count);
+    }
+
+    /**
+     * Plays one session: start the game, send the commands, then leave.
+     *
+     * @return The latency of each command in nanoseconds.
+     */
+    private static long[] playSession(String host, int port, int commands) throws IOException {
+        try (Socket socket = new Socket(host, port)) {
+            socket.setTcpNoDelay(true);
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+
+            // Wait for the welcome question, then start the game and wait for the first command prompt.
+            readUntil(in, "(yes/no)");
+            out.write(START);
+            out.flush();
+            readUntil(in, "> ");
+
+            long[] latencies = new long[commands];
+            for (int i = 0; i < commands; i++) {
+                long start = System.nanoTime();
+                out.write(COMMAND);
+                out.flush();
+                readUntil(in, "> ");
+                latencies[i] = System.nanoTime() - start;
+            }
+
+            out.write(QUIT);
+            out.flush();
+            return latencies;
+        }
+    }
+
+    /**
+     * Reads from the server until the text it has sent ends with a marker.
+     */
+    private static void readUntil(InputStream in, String marker) throws IOException {
+        byte[] expected = marker.getBytes(StandardCharsets.US_ASCII);
+        byte[] recent = new byte[expected.length]; // The last few bytes read, oldest first.
+        while (true) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("The server closed the connection while waiting for \"" + marker + "\"");
+            }
+            System.arraycopy(recent, 1, recent, 0, recent.length - 1);
+            recent[recent.length - 1] = (byte) b;
+            if (Arrays.equals(recent, expected)) return;
+        }
+    }
+
+    /**
+     * Describes the latencies as percentiles in milliseconds.
+     */
+    static String summarise(long[] sorted) {
+        if (sorted.length == 0) return "No commands were timed.";
+        return String.format("%d commands: p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, max %.2f ms",
+                sorted.length,
+                percentile(sorted, 0.50) / 1e6, percentile(sorted, 0.90) / 1e6,
+                percentile(sorted, 0.99) / 1e6, sorted[sorted.length - 1] / 1e6);
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
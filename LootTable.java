@@ -0,0 +1,312 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This class decides what loot drops  *//
+//*              from a room or a container. Each    *//
+//*              possible drop has a weight, drops   *//
+//*              can be grouped into rarity tiers or *//
+//*              whole other tables, and some can be *//
+//*              guaranteed. The weights are turned  *//
+//*              into alias tables once, so picking  *//
+//*              a drop takes the same short time    *//
+//*              however many drops there are.       *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.IntConsumer;
+
+/**
+ * An immutable weighted table of {@link ItemRegistry} numbers, built with a {@link Builder}.
+ * <p>
+ * An entry is an item, another table (rolled in turn when the entry is picked) or nothing.
+ * Items added with a {@link Rarity} are grouped into one table per tier, and the tier as a whole
+ * gets the tier's weight. Guaranteed items always drop, on top of the one roll.
+ * <p>
+ * Each table is compiled into an alias table (Vose's method): a roll picks a column uniformly,
+ * then keeps it or takes its alias on a biased coin. That costs one or two random numbers whatever
+ * the weights, plus one more roll for each nested table passed through. A column that always keeps
+ * itself skips the coin, so a table of equal weights draws exactly one {@code nextInt(n)}, the
+ * same as a uniform pick from an array. Tables are shared freely between threads.
+ */
+public final class LootTable {
+
+    /**
+     * What {@link #roll} gives when the table drops nothing.
+     */
+    public static final int NOTHING = ItemRegistry.NONE;
+
+    /**
+     * Rarity tiers, each with the weight its whole tier gets in a table.
+     */
+    public enum Rarity {
+        COMMON(100),
+        UNCOMMON(40),
+        RARE(12),
+        LEGENDARY(3);
+
+        private final double weight;
+
+        Rarity(double weight) {
+            this.weight = weight;
+        }
+
+        public double getWeight() {
+            return weight;
+        }
+    }
+
+    // The compiled alias table: column i keeps itself with probability keep[i], otherwise it becomes alias[i].
+    private final double[] keep;
+    private final int[] alias;
+    private final int[] items; // Each column's item number, or NOTHING.
+    private final LootTable[] nested; // Each column's nested table, or null.
+    private final double[] chances; // The chance of each column before compiling, for chanceOf.
+    private final int[] guaranteed; // Item numbers that always drop.
+
+    private LootTable(int[] items, LootTable[] nested, double[] weights, int[] guaranteed) {
+        int n = items.length;
+        this.items = items;
+        this.nested = nested;
+        this.guaranteed = guaranteed;
+        this.keep = new double[n];
+        this.alias = new int[n];
+        this.chances = new double[n];
+
+        double total = 0;
+        for (double weight : weights) total += weight;
+
+        // Scale every weight so the average column holds exactly 1, then split them into the columns
+        // below and above that.
+        double[] scaled = new double[n];
+        int[] small = new int[n], large = new int[n];
+        int smallCount = 0, largeCount = 0;
+        for (int i = 0; i < n; i++) {
+            chances[i] = weights[i] / total;
+            scaled[i] = weights[i] * n / total; // Exactly 1 for every column when the weights are equal whole numbers.
+            if (scaled[i] < 1.0) small[smallCount++] = i; else large[largeCount++] = i;
+        }
+
+        // Top up each small column from a large one, which then has that much less left over.
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount], more = large[--largeCount];
+            keep[less] = scaled[less];
+            alias[less] = more;
+            scaled[more] -= 1.0 - scaled[less];
+            if (scaled[more] < 1.0) small[smallCount++] = more; else large[largeCount++] = more;
+        }
+
+        // Whatever is left is full up to rounding error.
+        while (largeCount > 0) keep[large[--largeCount]] = 1.0;
+        while (smallCount > 0) keep[small[--smallCount]] = 1.0;
+        for (int i = 0; i < n; i++) {
+            if (keep[i] >= 1.0) alias[i] = i;
+        }
+    }
+
+    /**
+     * Picks one drop.
+     *
+     * @param random The stream to draw from.
+     * @return The item number picked, or {@link #NOTHING}. Guaranteed items are not included.
+     */
+    public int roll(SplittableRandom random) {
+        int column = random.nextInt(keep.length);
+        if (keep[column] < 1.0 && random.nextDouble() >= keep[column]) {
+            column = alias[column];
+        }
+        return nested[column] != null ? nested[column].roll(random) : items[column];
+    }
+
+    /**
+     * Drops everything this table gives at once: each guaranteed item, then one roll unless it comes up nothing.
+     *
+     * @param random The stream to draw from.
+     * @param drops  Receives each dropped item number.
+     */
+    public void drop(SplittableRandom random, IntConsumer drops) {
+        for (int item : guaranteed) drops.accept(item);
+        int item = roll(random);
+        if (item != NOTHING) drops.accept(item);
+    }
+
+    /**
+     * Works out the chance that one roll gives an item, through any nested tables.
+     *
+     * @param item The item number, or {@link #NOTHING}.
+     * @return The chance, from 0 to 1.
+     */
+    public double chanceOf(int item) {
+        double chance = 0;
+        for (int i = 0; i < items.length; i++) {
+            chance += chances[i] * (nested[i] != null ? nested[i].chanceOf(item) : items[i] == item ? 1 : 0);
+        }
+        return chance;
+    }
+
+    /**
+     * Tells whether a roll can come up empty.
+     *
+     * @return true if some entry, here or in a nested table, is nothing.
+     */
+    public boolean canRollNothing() {
+        return chanceOf(NOTHING) > 0;
+    }
+
+    /**
+     * Gets the items that always drop.
+     *
+     * @return A copy of the guaranteed item numbers.
+     */
+    public int[] getGuaranteed() {
+        return guaranteed.clone();
+    }
+
+    /**
+     * Passes every item a roll or a guarantee can give, including those in nested tables, to an action.
+     * An item reachable more than one way is passed more than once.
+     *
+     * @param action Receives each item number.
+     */
+    void forEachItem(IntConsumer action) {
+        for (int item : guaranteed) action.accept(item);
+        for (int i = 0; i < items.length; i++) {
+            if (nested[i] != null) nested[i].forEachItem(action);
+            else if (items[i] != NOTHING) action.accept(items[i]);
+        }
+    }
+
+    /**
+     * Makes a table that picks each of some items with equal chance.
+     *
+     * @param items The item numbers.
+     * @return The table.
+     */
+    public static LootTable uniform(int... items) {
+        Builder builder = new Builder();
+        for (int item : items) builder.add(item, 1);
+        return builder.build();
+    }
+
+    /**
+     * Collects the entries of a loot table.
+     */
+    public static final class Builder {
+        private final List<Object> entries = new ArrayList<>(); // Item numbers (Integer) or nested tables.
+        private final List<Double> weights = new ArrayList<>();
+        private final Map<Rarity, Builder> tiers = new EnumMap<>(Rarity.class);
+        private final List<Integer> guaranteed = new ArrayList<>();
+
+        /**
+         * Adds an item.
+         *
+         * @param item   The item's registry number.
+         * @param weight How likely it is compared to the other entries.
+         * @return This builder.
+         */
+        public Builder add(int item, double weight) {
+            ItemRegistry.get(item); // Fails on an unregistered number.
+            return entry(item, weight);
+        }
+
+        /**
+         * Adds a whole table, which is rolled in turn when this entry is picked.
+         *
+         * @param table  The nested table.
+         * @param weight How likely it is compared to the other entries.
+         * @return This builder.
+         */
+        public Builder add(LootTable table, double weight) {
+            if (table.guaranteed.length > 0) {
+                throw new IllegalArgumentException("A nested table can't have guaranteed drops");
+            }
+            return entry(table, weight);
+        }
+
+        /**
+         * Adds an item to a rarity tier. The tier is one entry, weighted by {@link Rarity#getWeight()},
+         * and the items in it share its chance by their own weights.
+         *
+         * @param rarity The item's tier.
+         * @param item   The item's registry number.
+         * @param weight How likely it is compared to the other items of the tier.
+         * @return This builder.
+         */
+        public Builder add(Rarity rarity, int item, double weight) {
+            tiers.computeIfAbsent(rarity, tier -> new Builder()).add(item, weight);
+            return this;
+        }
+
+        /**
+         * Adds a chance of dropping nothing.
+         *
+         * @param weight How likely it is compared to the other entries.
+         * @return This builder.
+         */
+        public Builder nothing(double weight) {
+            return entry(NOTHING, weight);
+        }
+
+        /**
+         * Makes an item drop every time, on top of the roll.
+         *
+         * @param item The item's registry number.
+         * @return This builder.
+         */
+        public Builder guarantee(int item) {
+            ItemRegistry.get(item); // Fails on an unregistered number.
+            guaranteed.add(item);
+            return this;
+        }
+
+        private Builder entry(Object entry, double weight) {
+            if (!(weight > 0) || Double.isInfinite(weight)) {
+                throw new IllegalArgumentException("Invalid weight: " + weight);
+            }
+            entries.add(entry);
+            weights.add(weight);
+            return this;
+        }
+
+        /**
+         * Compiles the table.
+         *
+         * @return The table.
+         * @throws IllegalStateException if nothing can be rolled
+         */
+        public LootTable build() {
+            List<Object> allEntries = new ArrayList<>(entries);
+            List<Double> allWeights = new ArrayList<>(weights);
+            for (Map.Entry<Rarity, Builder> tier : tiers.entrySet()) {
+                allEntries.add(tier.getValue().build());
+                allWeights.add(tier.getKey().getWeight());
+            }
+            if (allEntries.isEmpty()) {
+                throw new IllegalStateException("A loot table needs at least one entry");
+            }
+
+            int n = allEntries.size();
+            int[] items = new int[n];
+            LootTable[] nested = new LootTable[n];
+            double[] weightArray = new double[n];
+            for (int i = 0; i < n; i++) {
+                Object entry = allEntries.get(i);
+                if (entry instanceof LootTable) {
+                    nested[i] = (LootTable) entry;
+                    items[i] = NOTHING;
+                } else {
+                    items[i] = (Integer) entry;
+                }
+                weightArray[i] = allWeights.get(i);
+            }
+            int[] guaranteedArray = guaranteed.stream().mapToInt(Integer::intValue).toArray();
+            return new LootTable(items, nested, weightArray, guaranteedArray);
+        }
+    }
+}
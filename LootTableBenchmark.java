@@ -0,0 +1,66 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This class measures how fast a loot *//
+//*              table rolls, and checks the rates   *//
+//*              each drop comes out at against the  *//
+//*              chances its weights give.           *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+import java.util.SplittableRandom;
+
+/**
+ * Rolls a mixed {@link LootTable} millions of times and compares the observed rates with {@link LootTable#chanceOf}.
+ */
+final class LootTableBenchmark {
+
+    private LootTableBenchmark() {
+    }
+
+    /**
+     * Measures how fast rolls are and checks the rates they come out at against the weights.
+     * Argument: the number of rolls (default 50000000).
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        long rolls = args.length > 0 ? Long.parseLong(args[0]) : 50_000_000L;
+        LootTable table = new LootTable.Builder()
+                .nothing(120)
+                .add(ItemRegistry.CAKE, 30)
+                .add(ItemRegistry.SANDWICH, 20)
+                .add(LootTable.Rarity.COMMON, ItemRegistry.HAMMER, 1)
+                .add(LootTable.Rarity.COMMON, ItemRegistry.SPANNER, 1)
+                .add(LootTable.Rarity.UNCOMMON, ItemRegistry.ALARM_CLOCK, 1)
+                .add(LootTable.Rarity.UNCOMMON, ItemRegistry.BOX, 1)
+                .add(LootTable.Rarity.RARE, ItemRegistry.FREEZE_SPELL, 1)
+                .add(LootTable.Rarity.LEGENDARY, ItemRegistry.TELEPORTATION_SPELL, 1)
+                .build();
+
+        long[] counts = new long[ItemRegistry.size() + 1]; // Shifted by one so LootTable.NOTHING lands in 0.
+        SplittableRandom random = new SplittableRandom(1);
+        long start = System.nanoTime();
+        for (long i = 0; i < rolls; i++) {
+            counts[table.roll(random) + 1]++;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%d rolls in %.2f s: %.0f rolls per second%n", rolls, seconds, rolls / seconds);
+        double worst = 0;
+        for (int item = LootTable.NOTHING; item < ItemRegistry.size(); item++) {
+            double expected = table.chanceOf(item);
+            if (expected == 0 && counts[item + 1] == 0) continue;
+            double observed = (double) counts[item + 1] / rolls;
+            worst = Math.max(worst, Math.abs(observed - expected));
+            System.out.printf("  %-20s expected %.5f, observed %.5f%n",
+                    item == LootTable.NOTHING ? "(nothing)" : ItemRegistry.get(item).getName(), expected, observed);
+        }
+        if (worst > 0.001) {
+            throw new IllegalStateException("Roll rates are off from the weights by up to " + worst);
+        }
+        System.out.println("Rates match the weights.");
+    }
+}
@@ -14,8 +14,7 @@ package dungeongame;
 //*                                                  *//
 //* Date: 24/11/2024                                 *//
 //****************************************************//
-import java.util.Random;
-import java.util.Scanner;
+import java.util.SplittableRandom;
 
 /**
  * Represents a Mad Scientist character in the dungeon.
@@ -32,6 +31,25 @@ public class MadScientist {
             "Chaos is the essence of discovery, young one!"
     };
 
+    /**
+     * How many power points the Mad Scientist's attack takes away.
+     */
+    static final int ATTACK_DAMAGE = 50;
+
+    /**
+     * The Mad Scientist's own random stream, handed out by the game's {@link GameRandom}.
+     */
+    private final SplittableRandom random;
+
+    /**
+     * Creates a Mad Scientist.
+     *
+     * @param random The random stream that picks what the scientist says.
+     */
+    public MadScientist(SplittableRandom random) {
+        this.random = random;
+    }
+
     /**
      * Interacts with the Mad Scientist.
      * If the player has a Freeze Spell, they can stop the attack.
@@ -40,30 +58,32 @@ public class MadScientist {
      * @param player The player interacting with the Mad Scientist.
      */
     public void interact(Player player) {
+        OutputSink output = player.getOutput(); // Messages go to this player's output.
         // The Mad Scientist says something random from the RAMBLES list
-        Random random = new Random(); // Create a Random object
         String ramble = RAMBLES[random.nextInt(RAMBLES.length)]; // Pick a random statement
-        System.out.println("Mad Scientist says: \"" + ramble + "\"");
+        output.printf("Mad Scientist says: \"%s\"%n", ramble);
 
         // Check if the player has a Freeze Spell
-        if (player.hasSpell("Freeze Spell")) { // If the player has the spell
-            System.out.println("You have a Freeze Spell. Would you like to use it to stop the Mad Scientist? (yes/no)");
+        if (player.hasItem(ItemRegistry.FREEZE_SPELL)) { // If the player has the spell
+            output.println("You have a Freeze Spell. Would you like to use it to stop the Mad Scientist? (yes/no)");
 
-            Scanner scanner = new Scanner(System.in); // Create a scanner for user input
-            String response = scanner.nextLine().toLowerCase(); // Read and process the response
+            // Wait for the answer; the rest of the encounter carries on once it arrives.
+            player.getPrompter().ask(answer -> {
+                String response = answer.toLowerCase(); // Process the response
 
-            if (response.equals("yes")) { // If the player chooses to use the spell
-                System.out.println("You use the Freeze Spell. The Mad Scientist is frozen and cannot harm you.");
-                player.removeItem("Freeze Spell"); // Remove the spell from the player's inventory
-            } else { // If the player chooses not to use the spell
-                System.out.println("You chose not to use the Freeze Spell. The Mad Scientist attacks!");
-                player.setPowerPoints(Math.max(0, player.getPowerPoints() - 50)); // Reduce power points by 50, ensuring they don't drop below 0
-                System.out.println("You lost 50 power points. Your remaining power points: " + player.getPowerPoints());
-            }
+                if (response.equals("yes")) { // If the player chooses to use the spell
+                    output.println("You use the Freeze Spell. The Mad Scientist is frozen and cannot harm you.");
+                    player.removeItem(ItemRegistry.FREEZE_SPELL); // Remove the spell from the player's inventory
+                } else { // If the player chooses not to use the spell
+                    output.println("You chose not to use the Freeze Spell. The Mad Scientist attacks!");
+                    player.setPowerPoints(Math.max(0, player.getPowerPoints() - ATTACK_DAMAGE)); // Reduce power points by 50, ensuring they don't drop below 0
+                    output.printf("You lost %s power points. Your remaining power points: %s%n", ATTACK_DAMAGE, player.getPowerPoints());
+                }
+            });
         } else { // If the player does not have a Freeze Spell
-            System.out.println("No Freeze Spell! The Mad Scientist attacks you, and you lose 50 power points.");
-            player.setPowerPoints(Math.max(0, player.getPowerPoints() - 50)); // Reduce power points by 50, ensuring they don't drop below 0
-            System.out.println("Your remaining power points: " + player.getPowerPoints());
+            output.printf("No Freeze Spell! The Mad Scientist attacks you, and you lose %s power points.%n", ATTACK_DAMAGE);
+            player.setPowerPoints(Math.max(0, player.getPowerPoints() - ATTACK_DAMAGE)); // Reduce power points by 50, ensuring they don't drop below 0
+            output.printf("Your remaining power points: %s%n", player.getPowerPoints());
         }
     }
 }
@@ -0,0 +1,180 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This class draws the player's map.  *//
+//*              It builds the whole frame in one    *//
+//*              reusable byte buffer and writes it  *//
+//*              out in a single call. In diff mode  *//
+//*              it only sends the tiles that have   *//
+//*              changed since the last frame, using *//
+//*              ANSI codes to move the cursor to    *//
+//*              each one.                           *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Renders a level's explored map into a reusable buffer and writes each frame with one call.
+ * <p>
+ * In the normal mode every frame is the full map, in the same layout the game has always printed.
+ * In diff mode the first frame clears the screen and draws the full map at the top; after that,
+ * only the tiles that changed are sent, each after an ANSI cursor move. Diff mode is meant for
+ * terminals where the map stays at the top of the screen while the game's messages appear below it.
+ */
+public final class MapRenderer {
+
+    private static final byte[] PLAYER = "∆".getBytes(Charset.defaultCharset()); // How the player is drawn.
+    private static final byte[] NEWLINE = System.lineSeparator().getBytes(Charset.defaultCharset());
+    private static final byte[] FOOTER = "-----------".getBytes(Charset.defaultCharset());
+    private static final byte[] CLEAR_SCREEN = "\u001b[2J\u001b[H".getBytes(Charset.defaultCharset());
+    private static final char PLAYER_SYMBOL = '\0'; // Stands for the player in the last frame.
+
+    private final int size; // How big each level is.
+    private final boolean diff; // Whether to send only the tiles that changed.
+    private byte[] buffer; // The frame being built. Reused from frame to frame; made by the first frame.
+    private int length; // How many bytes of the buffer are in use.
+    private final char[] lastFrame; // The symbol last drawn at each tile, for diff mode.
+    private int lastLevel; // The level the last frame showed, or 0 if nothing has been drawn.
+
+    /**
+     * Creates a renderer for levels of one size.
+     *
+     * @param size how big each level is (size x size)
+     * @param diff true to send only the tiles that changed since the last frame
+     */
+    public MapRenderer(int size, boolean diff) {
+        this.size = size;
+        this.diff = diff;
+        this.lastFrame = diff ? new char[size * size] : null;
+    }
+
+    /**
+     * Makes the next frame a full redraw, for example after the screen has been cleared.
+     */
+    public void invalidate() {
+        lastLevel = 0;
+    }
+
+    /**
+     * Draws the player's map of their current level and writes it out with a single call.
+     *
+     * @param dungeon The dungeon whose map is drawn.
+     * @param player  The player whose map and position are drawn.
+     * @param out     Where the frame is written.
+     */
+    public void render(Dungeon dungeon, Player player, OutputSink out) {
+        int level = player.getLevel();
+        int[] position = player.getPosition();
+        int playerCell = position[0] * size + position[1];
+        FogOfWar levelFog = dungeon.getFog(level);
+
+        // Games that never draw a map (such as headless ones) never pay for the buffer.
+        if (buffer == null) {
+            buffer = new byte[size * size * 2 + (size + 1) * 8 + 32];
+        }
+        length = 0;
+        if (diff && lastLevel == level) {
+            renderChanges(dungeon, levelFog, level, playerCell);
+        } else {
+            renderFull(dungeon, levelFog, level, playerCell);
+        }
+        write(out);
+    }
+
+    /**
+     * Builds the whole map: each tile followed by a space, a '|' at the end of each row and a line underneath.
+     */
+    private void renderFull(Dungeon dungeon, FogOfWar levelFog, int level, int playerCell) {
+        if (diff) {
+            append(CLEAR_SCREEN);
+            lastLevel = level;
+        }
+        int cell = 0;
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++, cell++) {
+                char symbol = cell == playerCell ? PLAYER_SYMBOL : dungeon.mapSymbol(level, levelFog, x, y);
+                appendSymbol(symbol);
+                append((byte) ' ');
+                if (diff) lastFrame[cell] = symbol;
+            }
+            append((byte) '|');
+            append(NEWLINE);
+        }
+        append(FOOTER);
+        append(NEWLINE);
+    }
+
+    /**
+     * Builds only the tiles that changed since the last frame, each after a cursor move to its place,
+     * then leaves the cursor on the line below the map.
+     */
+    private void renderChanges(Dungeon dungeon, FogOfWar levelFog, int level, int playerCell) {
+        int cell = 0;
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++, cell++) {
+                char symbol = cell == playerCell ? PLAYER_SYMBOL : dungeon.mapSymbol(level, levelFog, x, y);
+                if (symbol == lastFrame[cell]) continue;
+                lastFrame[cell] = symbol;
+
+                // Screen rows and columns start from 1, and each tile takes two columns.
+                moveCursor(x + 1, y * 2 + 1);
+                appendSymbol(symbol);
+            }
+        }
+        if (length > 0) {
+            moveCursor(size + 2, 1);
+        }
+    }
+
+    /**
+     * Appends the ANSI code that moves the cursor to a row and column.
+     */
+    private void moveCursor(int row, int column) {
+        append((byte) 0x1b);
+        append((byte) '[');
+        appendNumber(row);
+        append((byte) ';');
+        appendNumber(column);
+        append((byte) 'H');
+    }
+
+    private void appendSymbol(char symbol) {
+        if (symbol == PLAYER_SYMBOL) {
+            append(PLAYER);
+        } else {
+            append((byte) symbol); // Every other map symbol is plain ASCII.
+        }
+    }
+
+    private void appendNumber(int value) {
+        if (value >= 10) appendNumber(value / 10);
+        append((byte) ('0' + value % 10));
+    }
+
+    private void append(byte value) {
+        if (length == buffer.length) grow(1);
+        buffer[length++] = value;
+    }
+
+    private void append(byte[] bytes) {
+        if (length + bytes.length > buffer.length) grow(bytes.length);
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+
+    private void grow(int needed) {
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + needed));
+    }
+
+    /**
+     * Writes the frame with one call. Nothing is written if no tile changed.
+     */
+    private void write(OutputSink out) {
+        if (length == 0) return;
+        out.write(buffer, 0, length);
+    }
+}
@@ -0,0 +1,70 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This class generates maze levels    *//
+//*              using a randomised depth-first      *//
+//*              "recursive backtracker". It uses    *//
+//*              its own stack instead of recursion  *//
+//*              so even very large levels can be    *//
+//*              carved without overflowing.         *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+import java.util.SplittableRandom;
+
+/**
+ * Carves a perfect maze: every floor tile can reach every other floor tile by exactly one path.
+ * Maze cells sit on even rows and columns, with the walls between them knocked out as it goes.
+ */
+public class MazeGenerator extends LevelGenerator {
+
+    // The four directions the maze can grow in, as row and column steps between cells.
+    private static final int[] DX = {-2, 2, 0, 0};
+    private static final int[] DY = {0, 0, -2, 2};
+
+    @Override
+    protected void carve(char[][] tiles, SplittableRandom random) {
+        int size = tiles.length;
+
+        // An explicit stack of cell indices (x * size + y) replaces the recursion.
+        int[] stack = new int[((size + 1) / 2) * ((size + 1) / 2)];
+        int top = 0;
+
+        // Start the maze from the top-left cell.
+        tiles[0][0] = Dungeon.EMPTY;
+        stack[top++] = 0;
+
+        int[] options = new int[4]; // The directions that lead to unvisited cells.
+        while (top > 0) {
+            int cell = stack[top - 1];
+            int x = cell / size;
+            int y = cell % size;
+
+            // Collect every neighbouring cell that is still solid wall.
+            int count = 0;
+            for (int d = 0; d < 4; d++) {
+                int nx = x + DX[d];
+                int ny = y + DY[d];
+                if (nx >= 0 && nx < size && ny >= 0 && ny < size && tiles[nx][ny] == Dungeon.WALL) {
+                    options[count++] = d;
+                }
+            }
+
+            // A dead end: go back to the previous cell.
+            if (count == 0) {
+                top--;
+                continue;
+            }
+
+            // Knock down the wall towards a random unvisited neighbour and move into it.
+            int d = options[random.nextInt(count)];
+            int nx = x + DX[d];
+            int ny = y + DY[d];
+            tiles[x + DX[d] / 2][y + DY[d] / 2] = Dungeon.EMPTY;
+            tiles[nx][ny] = Dungeon.EMPTY;
+            stack[top++] = nx * size + ny;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This interface is where the game    *//
+//*              sends everything it says to the     *//
+//*              player. It can be the console, a    *//
+//*              buffer kept for one network session *//
+//*              or nowhere at all, so the same game *//
+//*              code can run with or without anyone *//
+//*              watching.                           *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+
+/**
+ * Receives the game's text output.
+ * Messages built from values should use {@link #printf}, so that a sink which throws the text
+ * away (see {@link DiscardSink}) never has to format them.
+ */
+public interface OutputSink {
+
+    /**
+     * Writes some text without ending the line.
+     *
+     * @param text The text to write.
+     */
+    void print(String text);
+
+    /**
+     * Writes some text and ends the line.
+     *
+     * @param text The text to write.
+     */
+    void println(String text);
+
+    /**
+     * Ends the current line.
+     */
+    default void println() {
+        println("");
+    }
+
+    /**
+     * Formats a message (as {@link String#format}) and writes it.
+     * The format is only applied if the sink keeps its output.
+     *
+     * @param format The message format, such as "You lost %s power points.%n".
+     * @param args   The values to put into the message.
+     */
+    void printf(String format, Object... args);
+
+    /**
+     * Writes bytes that have already been encoded, such as a frame of the map.
+     *
+     * @param bytes  The bytes to write.
+     * @param offset Where the bytes start.
+     * @param length How many bytes to write.
+     */
+    void write(byte[] bytes, int offset, int length);
+
+    /**
+     * Tells callers whether anything written here will be kept.
+     * Work that only exists to build output, like drawing the map, can be skipped when it won't be.
+     *
+     * @return true if everything written here is thrown away.
+     */
+    default boolean isDiscarding() {
+        return false;
+    }
+}
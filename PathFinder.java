@@ -0,0 +1,424 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This class answers path questions   *//
+//*              about the dungeon, such as "how far *//
+//*              is the exit?" or "can I get from    *//
+//*              here to there?". It keeps a cached  *//
+//*              distance field for each level that  *//
+//*              is repaired, not rebuilt, when a    *//
+//*              tile changes, and uses A* for paths *//
+//*              between any two tiles.              *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.PriorityQueue;
+
+/**
+ * Finds paths over the tile planes of a dungeon. Players move one tile at a time
+ * forward, back, left or right, and can't walk through walls.
+ */
+public class PathFinder {
+
+    /**
+     * Distance used for tiles that can't reach the goal.
+     */
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    // Row and column steps for forward, back, left and right, matching Dungeon.movePlayer.
+    private static final int[] DX = {-1, 1, 0, 0};
+    private static final int[] DY = {0, 0, -1, 1};
+    private static final String[] DIRECTIONS = {"forward", "back", "left", "right"};
+
+    private final Dungeon dungeon; // The dungeon whose levels are searched.
+    private final int size; // How big each level is (size x size).
+
+    // Distance from each cell to the nearest EXIT or TREASURE, per level; null until first asked for.
+    private final int[][] distanceFields;
+
+    // Scratch space for A*, reused between searches. A cell's entries only count if its stamp is current.
+    private int[] stamps;
+    private int[] costs;
+    private int stamp;
+    private long[] heap = new long[64];
+
+    /**
+     * Creates a path finder for a dungeon.
+     *
+     * @param dungeon the dungeon to search
+     */
+    public PathFinder(Dungeon dungeon) {
+        this.dungeon = dungeon;
+        this.size = dungeon.getSize();
+        this.distanceFields = new int[dungeon.getLevelCount()][];
+    }
+
+    /**
+     * Finds how many moves it takes to reach the nearest exit (or treasure) from a tile.
+     * After the first question about a level, this is a single lookup.
+     *
+     * @param level The dungeon level (starts from 1).
+     * @param x     The row of the tile.
+     * @param y     The column of the tile.
+     * @return The number of moves, or -1 if no exit can be reached.
+     */
+    public int distanceToGoal(int level, int x, int y) {
+        int distance = distanceField(level)[x * size + y];
+        return distance == UNREACHABLE ? -1 : distance;
+    }
+
+    /**
+     * Picks the move that takes a player one step closer to the nearest exit (or treasure).
+     *
+     * @param level The dungeon level (starts from 1).
+     * @param x     The row of the player.
+     * @param y     The column of the player.
+     * @return "forward", "back", "left" or "right", or null if the player is on the goal or can't reach it.
+     */
+    public String directionToGoal(int level, int x, int y) {
+        int[] field = distanceField(level);
+        int here = field[x * size + y];
+        if (here == 0 || here == UNREACHABLE) return null;
+
+        // Any neighbour one step closer is on a shortest path.
+        for (int d = 0; d < 4; d++) {
+            int nx = x + DX[d];
+            int ny = y + DY[d];
+            if (inBounds(nx, ny) && field[nx * size + ny] == here - 1) {
+                return DIRECTIONS[d];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks if one tile can be reached from another.
+     *
+     * @param level The dungeon level (starts from 1).
+     * @param from  The starting tile as [x, y].
+     * @param to    The target tile as [x, y].
+     * @return {@code true} if there is a path.
+     */
+    public boolean isReachable(int level, int[] from, int[] to) {
+        return pathLength(level, from, to) >= 0;
+    }
+
+    /**
+     * Finds the length of the shortest path between two tiles using A*.
+     * The Manhattan distance is used as the estimate, which is exact on an open floor.
+     *
+     * @param level The dungeon level (starts from 1).
+     * @param from  The starting tile as [x, y].
+     * @param to    The target tile as [x, y].
+     * @return The number of moves, or -1 if the target can't be reached.
+     */
+    public int pathLength(int level, int[] from, int[] to) {
+        LevelTiles tiles = dungeon.getLevelTiles(level);
+        if (tiles.get(from[0], from[1]) == Dungeon.WALL || tiles.get(to[0], to[1]) == Dungeon.WALL) {
+            return -1;
+        }
+
+        // Start a new search; older stamps make every old cost count as "not seen".
+        if (stamps == null) {
+            stamps = new int[size * size];
+            costs = new int[size * size];
+        }
+        if (++stamp == 0) {
+            Arrays.fill(stamps, 0);
+            stamp = 1;
+        }
+
+        int start = from[0] * size + from[1];
+        int target = to[0] * size + to[1];
+        int heapSize = 0;
+        stamps[start] = stamp;
+        costs[start] = 0;
+        heap[heapSize++] = key(manhattan(from[0], from[1], to[0], to[1]), start);
+
+        while (heapSize > 0) {
+            // Take the cell with the lowest estimated total cost.
+            long top = heap[0];
+            heap[0] = heap[--heapSize];
+            siftDown(heapSize);
+            int cell = (int) top;
+            int x = cell / size;
+            int y = cell % size;
+            int cost = costs[cell];
+            if (cell == target) return cost;
+
+            // Skip stale heap entries left behind when a cheaper route to the cell was found.
+            if ((int) (top >>> 32) > cost + manhattan(x, y, to[0], to[1])) continue;
+
+            for (int d = 0; d < 4; d++) {
+                int nx = x + DX[d];
+                int ny = y + DY[d];
+                if (!inBounds(nx, ny) || tiles.get(nx, ny) == Dungeon.WALL) continue;
+                int next = nx * size + ny;
+                if (stamps[next] == stamp && costs[next] <= cost + 1) continue;
+
+                stamps[next] = stamp;
+                costs[next] = cost + 1;
+                if (heapSize == heap.length) heap = Arrays.copyOf(heap, heapSize * 2);
+                heap[heapSize] = key(cost + 1 + manhattan(nx, ny, to[0], to[1]), next);
+                siftUp(heapSize++);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Repairs the cached distance field after a tile has changed.
+     * Only the tiles whose distance actually changes are visited.
+     *
+     * @param level     The dungeon level (starts from 1).
+     * @param x         The row of the tile.
+     * @param y         The column of the tile.
+     * @param oldSymbol What the tile used to be.
+     */
+    void tileChanged(int level, int x, int y, char oldSymbol) {
+        int[] field = distanceFields[level - 1];
+        if (field == null) return; // Nothing cached yet, so nothing to repair.
+
+        LevelTiles tiles = dungeon.getLevelTiles(level);
+        char newSymbol = tiles.get(x, y);
+        int cell = x * size + y;
+        boolean wasOpen = oldSymbol != Dungeon.WALL;
+        boolean wasGoal = isGoal(oldSymbol);
+
+        // A tile that was a way through (or a goal) and isn't any more can make distances grow.
+        if ((wasOpen && newSymbol == Dungeon.WALL) || (wasGoal && !isGoal(newSymbol))) {
+            raise(field, tiles, cell);
+        }
+
+        // A tile that opens up (or becomes a goal) can only make distances shrink.
+        if (newSymbol != Dungeon.WALL) {
+            int best = isGoal(newSymbol) ? 0 : 1 + (int) Math.min(UNREACHABLE - 1L, minNeighbour(field, cell));
+            if (best < field[cell]) {
+                field[cell] = best;
+                lower(field, tiles, cell);
+            }
+        }
+    }
+
+    // --- Distance fields ---
+
+    /**
+     * Returns a level's distance field, building it with a breadth-first search from every goal the first time.
+     */
+    private int[] distanceField(int level) {
+        int[] field = distanceFields[level - 1];
+        if (field != null) return field;
+
+        LevelTiles tiles = dungeon.getLevelTiles(level);
+        field = new int[size * size];
+        Arrays.fill(field, UNREACHABLE);
+
+        // Every exit and treasure tile starts the search at distance 0.
+        int[] queue = new int[size * size];
+        int head = 0;
+        int tail = 0;
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                if (isGoal(tiles.get(x, y))) {
+                    field[x * size + y] = 0;
+                    queue[tail++] = x * size + y;
+                }
+            }
+        }
+
+        // Spread out one step at a time.
+        while (head < tail) {
+            int cell = queue[head++];
+            int x = cell / size;
+            int y = cell % size;
+            for (int d = 0; d < 4; d++) {
+                int nx = x + DX[d];
+                int ny = y + DY[d];
+                if (!inBounds(nx, ny)) continue;
+                int next = nx * size + ny;
+                if (field[next] == UNREACHABLE && tiles.get(nx, ny) != Dungeon.WALL) {
+                    field[next] = field[cell] + 1;
+                    queue[tail++] = next;
+                }
+            }
+        }
+
+        distanceFields[level - 1] = field;
+        return field;
+    }
+
+    /**
+     * Spreads a shorter distance out from a cell whose distance has just dropped.
+     */
+    private void lower(int[] field, LevelTiles tiles, int start) {
+        int[] queue = new int[16];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        while (head < tail) {
+            int cell = queue[head++];
+            int x = cell / size;
+            int y = cell % size;
+            for (int d = 0; d < 4; d++) {
+                int nx = x + DX[d];
+                int ny = y + DY[d];
+                if (!inBounds(nx, ny) || tiles.get(nx, ny) == Dungeon.WALL) continue;
+                int next = nx * size + ny;
+                if (field[cell] + 1 < field[next]) {
+                    field[next] = field[cell] + 1;
+                    if (tail == queue.length) queue = Arrays.copyOf(queue, tail * 2);
+                    queue[tail++] = next;
+                }
+            }
+        }
+    }
+
+    /**
+     * Handles a cell that can no longer be used on the way to a goal.
+     * First finds every cell whose only shortest route went through it, then works out
+     * those cells' new distances from the unaffected cells around them.
+     */
+    private void raise(int[] field, LevelTiles tiles, int start) {
+        // Find the affected cells in order of distance, so a cell's other routes are already judged.
+        int[] affected = new int[16];
+        int count = 0;
+        BitSet marked = new BitSet();
+        affected[count++] = start;
+        marked.set(start);
+        for (int i = 0; i < count; i++) {
+            int cell = affected[i];
+            if (field[cell] == UNREACHABLE) continue;
+            int x = cell / size;
+            int y = cell % size;
+            for (int d = 0; d < 4; d++) {
+                int nx = x + DX[d];
+                int ny = y + DY[d];
+                if (!inBounds(nx, ny)) continue;
+                int next = nx * size + ny;
+                if (marked.get(next) || field[next] != field[cell] + 1) continue;
+                if (!hasOtherSupport(field, marked, next)) {
+                    if (count == affected.length) affected = Arrays.copyOf(affected, count * 2);
+                    affected[count++] = next;
+                    marked.set(next);
+                }
+            }
+        }
+
+        // Forget the affected distances, then seed each open affected cell from its unaffected neighbours.
+        for (int i = 0; i < count; i++) {
+            field[affected[i]] = UNREACHABLE;
+        }
+        PriorityQueue<Long> queue = new PriorityQueue<>();
+        for (int i = 0; i < count; i++) {
+            int cell = affected[i];
+            char symbol = tiles.get(cell / size, cell % size);
+            if (symbol == Dungeon.WALL) continue;
+            long best = isGoal(symbol) ? 0 : minNeighbour(field, cell) + 1;
+            if (best < UNREACHABLE) {
+                field[cell] = (int) best;
+                queue.add(key((int) best, cell));
+            }
+        }
+
+        // Settle the affected cells in order of distance, like Dijkstra's algorithm.
+        while (!queue.isEmpty()) {
+            long top = queue.poll();
+            int cell = (int) top;
+            if ((int) (top >>> 32) != field[cell]) continue;
+            int x = cell / size;
+            int y = cell % size;
+            for (int d = 0; d < 4; d++) {
+                int nx = x + DX[d];
+                int ny = y + DY[d];
+                if (!inBounds(nx, ny) || tiles.get(nx, ny) == Dungeon.WALL) continue;
+                int next = nx * size + ny;
+                if (field[cell] + 1 < field[next]) {
+                    field[next] = field[cell] + 1;
+                    queue.add(key(field[next], next));
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks if a cell has a neighbour one step closer to a goal that isn't affected by a change.
+     */
+    private boolean hasOtherSupport(int[] field, BitSet marked, int cell) {
+        int x = cell / size;
+        int y = cell % size;
+        for (int d = 0; d < 4; d++) {
+            int nx = x + DX[d];
+            int ny = y + DY[d];
+            if (!inBounds(nx, ny)) continue;
+            int next = nx * size + ny;
+            if (!marked.get(next) && field[next] == field[cell] - 1) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Finds the smallest distance among a cell's neighbours.
+     */
+    private long minNeighbour(int[] field, int cell) {
+        int x = cell / size;
+        int y = cell % size;
+        long best = UNREACHABLE;
+        for (int d = 0; d < 4; d++) {
+            int nx = x + DX[d];
+            int ny = y + DY[d];
+            if (inBounds(nx, ny)) best = Math.min(best, field[nx * size + ny]);
+        }
+        return best;
+    }
+
+    // --- Helpers ---
+
+    private static boolean isGoal(char symbol) {
+        return symbol == Dungeon.EXIT || symbol == Dungeon.TREASURE;
+    }
+
+    private boolean inBounds(int x, int y) {
+        return x >= 0 && x < size && y >= 0 && y < size;
+    }
+
+    private static int manhattan(int x1, int y1, int x2, int y2) {
+        return Math.abs(x1 - x2) + Math.abs(y1 - y2);
+    }
+
+    /**
+     * Packs a priority and a cell into one long, so sorting by the long sorts by priority.
+     */
+    private static long key(int priority, int cell) {
+        return ((long) priority << 32) | cell;
+    }
+
+    private void siftUp(int index) {
+        long value = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent] <= value) break;
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = value;
+    }
+
+    private void siftDown(int heapSize) {
+        if (heapSize == 0) return;
+        long value = heap[0];
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= heapSize) break;
+            if (child + 1 < heapSize && heap[child + 1] < heap[child]) child++;
+            if (heap[child] >= value) break;
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = value;
+    }
+}
@@ -13,10 +13,6 @@ package dungeongame;
 //*                                                  *//
 //* Date: 24/11/2024                                 *//
 //****************************************************//
-import java.util.ArrayList;
-import java.util.Scanner;
-import java.util.List;
-
 /**
  * Represents a player in the game. The player has attributes like power points,
  * level, inventory, and their position on the map. Tracks both current and previous positions.
@@ -34,9 +30,9 @@ public class Player {
     private int level;
 
     /**
-     * A list of items the player has collected during the game.
+     * The items the player has collected during the game, indexed by name and kind.
      */
-    private final List<Item> inventory = new ArrayList<>();
+    private final Inventory inventory = new Inventory();
 
 
     /**
@@ -50,6 +46,26 @@ public class Player {
      */
     private int[] previousPosition = null;
 
+    /**
+     * Whether the player has found the treasure (or finished every level), which ends the game.
+     */
+    private boolean won;
+
+    /**
+     * Where everything the game tells this player is sent. The console unless changed.
+     */
+    private OutputSink output = new ConsoleSink();
+
+    /**
+     * Where the player's answers to the game's prompts are read from. The keyboard unless changed.
+     */
+    private InputSource input = ConsoleSource.system();
+
+    /**
+     * Asks the player questions and carries on with the game when they answer.
+     */
+    private final Prompter prompter = new Prompter();
+
     /**
      * Creates a new player with a given amount of power points.
      * The player's level starts at 1, and their position is set to the default.
@@ -61,6 +77,51 @@ public class Player {
         this.level = 1; // Start the player at level 1.
     }
 
+    /**
+     * Returns where the game's messages to this player are sent.
+     *
+     * @return The player's output sink.
+     */
+    public OutputSink getOutput() {
+        return output;
+    }
+
+    /**
+     * Changes where the game's messages to this player are sent, for example to a network session.
+     *
+     * @param output The new output sink.
+     */
+    public void setOutput(OutputSink output) {
+        this.output = output;
+    }
+
+    /**
+     * Returns where the player's answers to the game's prompts are read from.
+     *
+     * @return The player's input source.
+     */
+    public InputSource getInput() {
+        return input;
+    }
+
+    /**
+     * Changes where the player's answers are read from, for example to a script or a network session.
+     *
+     * @param input The new input source.
+     */
+    public void setInput(InputSource input) {
+        this.input = input;
+    }
+
+    /**
+     * Returns the prompter that asks this player questions and resumes the game with their answers.
+     *
+     * @return The player's prompter.
+     */
+    public Prompter getPrompter() {
+        return prompter;
+    }
+
     /**
      * Returns the player's current power points.
      *
@@ -79,6 +140,24 @@ public class Player {
         this.powerPoints = powerPoints; // Update the player's power points.
     }
 
+    /**
+     * Checks whether the player has won the game.
+     *
+     * @return {@code true} once the player has found the treasure or finished every level.
+     */
+    public boolean hasWon() {
+        return won;
+    }
+
+    /**
+     * Records whether the player has won the game.
+     *
+     * @param won {@code true} if the player has won.
+     */
+    public void setWon(boolean won) {
+        this.won = won;
+    }
+
     /**
      * Returns the player's current level in the game.
      *
@@ -124,7 +203,7 @@ public class Player {
         this.position[1] = y;
 
         // Debugging: Show the new position in the console for verification.
-        System.out.println("Debug: New position set to (" + x + ", " + y + ")");
+        output.printf("Debug: New position set to (%s, %s)%n", x, y);
     }
 
     /**
@@ -147,6 +226,15 @@ public class Player {
         this.previousPosition = previousPosition;
     }
 
+    /**
+     * Gives access to the player's inventory, in the order the items were added.
+     *
+     * @return The inventory itself. Callers must not change it; use the player's methods instead.
+     */
+    Inventory getInventory() {
+        return inventory;
+    }
+
     /**
      * Adds an item to the player's inventory.
      *
@@ -169,21 +257,21 @@ public class Player {
         // Try to take an item from the room.
         Item item = room.takeItem();
         if (item != null) {
-            // Check if an item with the same name already exists in the inventory.
-            boolean itemExists = inventory.stream()
-                    .anyMatch(i -> i.getName().equalsIgnoreCase(item.getName()));
-            if (itemExists) {
-                System.out.println("You already have a " + item.getName() + " in your inventory.");
+            // Check if the same item already exists in the inventory: by number for items the registry knows,
+            // by name for the rest (they all share the registry's unknown item number).
+            boolean alreadyHeld = item.getId() != ItemRegistry.UNKNOWN ? inventory.contains(item.getId()) : inventory.contains(item.getName());
+            if (alreadyHeld) {
+                output.printf("You already have a %s in your inventory.%n", item.getName());
                 // Return the item to the room since the player can't pick it up again.
                 room.addItem(item);
             } else {
                 // If the item is not already in the inventory, add it.
                 inventory.add(item);
-                System.out.println("Picked up: " + item.getName());
+                output.printf("Picked up: %s%n", item.getName());
             }
         } else {
             // If no item is found, notify the player.
-            System.out.println("Nothing to pick up.");
+            output.println("Nothing to pick up.");
         }
     }
 
@@ -195,16 +283,16 @@ public class Player {
         // Check if the player has no items in their inventory.
         if (inventory.isEmpty()) {
             // Let the player know their inventory is empty.
-            System.out.println("Your inventory is empty.");
+            output.println("Your inventory is empty.");
             return; // Stop here since there's nothing to display.
         }
 
         // Display a header for the inventory list.
-        System.out.println("Your inventory:");
+        output.println("Your inventory:");
 
         // Go through each item in the inventory and show its name.
-        for (Item item : inventory) {
-            System.out.println("- " + item.getName()); // Print each item's name.
+        for (int slot = inventory.firstSlot(); slot >= 0; slot = inventory.nextSlot(slot)) {
+            output.printf("- %s%n", inventory.itemAt(slot).getName()); // Print each item's name.
         }
     }
 
@@ -215,15 +303,8 @@ public class Player {
      * @return {@code true} if the tool is found, otherwise {@code false}.
      */
     public boolean hasTool(String toolName) {
-        // Go through each item in the player's inventory.
-        for (Item item : inventory) {
-            // If the item's name matches the tool name (ignoring case), return true.
-            if (item.getName().equalsIgnoreCase(toolName)) {
-                return true; // Tool is found.
-            }
-        }
-        // If no matching tool is found, return false.
-        return false;
+        // Look the name up in the inventory's index (ignoring case).
+        return inventory.contains(toolName);
     }
 
     /**
@@ -233,51 +314,52 @@ public class Player {
      * @return {@code true} if the spell is found, otherwise {@code false}.
      */
     public boolean hasSpell(String spellName) {
-        // Go through each item in the player's inventory.
-        for (Item item : inventory) {
-            // If the item's name matches the spell name (ignoring case), return true.
-            if (item.getName().equalsIgnoreCase(spellName)) {
-                return true; // Spell is found.
-            }
-        }
-        // If no matching spell is found, return false.
-        return false;
+        // Look the name up in the inventory's index (ignoring case).
+        return inventory.contains(spellName);
     }
 
     /**
-     * Checks if the player's inventory contains an item of a specific type.
+     * Checks if the player's inventory contains an item of a specific kind, including items defined as data.
      *
-     * @param itemType The class type of the item to look for.
-     * @return {@code true} if an item of the specified type exists in the inventory, otherwise {@code false}.
-     */
-    public boolean hasItem(Class<?> itemType) {
-        // Go through each item in the inventory.
-        for (Item item : inventory) {
-            // Check if the item matches the specified class type.
-            if (itemType.isInstance(item)) {
-                return true; // Found an item of the specified type.
-            }
-        }
-        // No matching item found, return false.
-        return false;
+     * @param kind The kind of item to look for, such as {@link ItemDefinition.Kind#FOOD}.
+     * @return {@code true} if an item of that kind exists in the inventory, otherwise {@code false}.
+     */
+    public boolean hasItem(ItemDefinition.Kind kind) {
+        // Look the kind up in the inventory's index of item kinds.
+        return inventory.first(kind) != null;
     }
 
     /**
-     * Retrieves the first item of a specific type from the player's inventory.
+     * Checks if the player's inventory contains an item with a specific definition number.
      *
-     * @param itemType The class type of the item to retrieve.
-     * @return The first item of the specified type if found, or {@code null} if none exists.
-     */
-    public Item getItem(Class<?> itemType) {
-        // Go through each item in the inventory.
-        for (Item item : inventory) {
-            // Check if the item matches the specified class type.
-            if (itemType.isInstance(item)) {
-                return item; // Return the first matching item.
-            }
-        }
-        // No matching item found, return null.
-        return null;
+     * @param definitionId The {@link ItemRegistry} number of the item to look for, such as {@link ItemRegistry#HAMMER}.
+     * @return {@code true} if such an item exists in the inventory, otherwise {@code false}.
+     */
+    public boolean hasItem(int definitionId) {
+        // Look the number up in the inventory's index of definition numbers.
+        return inventory.contains(definitionId);
+    }
+
+    /**
+     * Retrieves the first item with a specific definition number from the player's inventory.
+     *
+     * @param definitionId The {@link ItemRegistry} number of the item to retrieve, such as {@link ItemRegistry#BOX}.
+     * @return The first such item if found, or {@code null} if none exists.
+     */
+    public Item getItem(int definitionId) {
+        // Look the number up in the inventory's index of definition numbers.
+        return inventory.first(definitionId);
+    }
+
+    /**
+     * Retrieves the first item of a specific kind from the player's inventory, including items defined as data.
+     *
+     * @param kind The kind of item to retrieve, such as {@link ItemDefinition.Kind#FOOD}.
+     * @return The first item of that kind if found, or {@code null} if none exists.
+     */
+    public Item getItem(ItemDefinition.Kind kind) {
+        // Look the kind up in the inventory's index of item kinds.
+        return inventory.first(kind);
     }
 
     /**
@@ -302,93 +384,90 @@ public class Player {
     public void useItem(String itemName) {
 
 
-        // Go through the player's inventory to search for the item.
-        for (Item item : inventory) {
-            // Check if the item's name matches the given name (ignoring case).
-            if (item.getName().equalsIgnoreCase(itemName)) {
-                // Special handling for Alarm Clock
-                if (item.getName().equalsIgnoreCase("Alarm Clock")) {
-                    System.out.println("Using tool: " + item.getName());
-                    System.out.println("You are already awake. The Alarm Clock remains in your inventory.");
-                    return; // Exit without removing the Alarm Clock
-                }
+        // Look the item up by name (ignoring case).
+        Item item = inventory.find(itemName);
+        if (item != null) {
+            // Special handling for Alarm Clock
+            if (item.getId() == ItemRegistry.ALARM_CLOCK) {
+                output.printf("Using tool: %s%n", item.getName());
+                output.println("You are already awake. The Alarm Clock remains in your inventory.");
+                return; // Exit without removing the Alarm Clock
+            }
 
-                // Special handling for Spanner
-                if (item.getName().equalsIgnoreCase("Spanner")) {
-                    // Check if the player has a Box in their inventory
-                    boolean hasBox = inventory.stream().anyMatch(i -> i instanceof Box);
-                    if (hasBox) {
-                        System.out.println("You use the Spanner to open the Box.");
-                        Box box = (Box) inventory.stream().filter(i -> i instanceof Box).findFirst().get();
-                        box.open(this, dungeon); // Open the Box
+            // Special handling for Spanner
+            if (item.getId() == ItemRegistry.SPANNER) {
+                // Check if the player has a Box in their inventory
+                Item found = inventory.first(ItemRegistry.BOX);
+                if (found instanceof Box) {
+                    Box box = (Box) found;
+                    output.println("You use the Spanner to open the Box.");
+                    box.open(this, dungeon); // Open the Box
+                    prompter.then(() -> {
                         inventory.remove(box); // Remove the Box after opening
                         inventory.remove(item); // Remove the Spanner after use
-                        System.out.println("The Spanner has been used and removed from your inventory.");
-                    } else {
-                        System.out.println("You can only use a Spanner to open a Box, and you don't have one.");
-                    }
-                    return; // Exit after handling the Spanner
+                        output.println("The Spanner has been used and removed from your inventory.");
+                    });
+                } else {
+                    output.println("You can only use a Spanner to open a Box, and you don't have one.");
                 }
+                return; // Exit after handling the Spanner
+            }
 
-                // Handle the box
-                if (item instanceof Box) {
-                    // Check if the player has a Spanner in their inventory.
-                    boolean hasSpanner = inventory.stream()
-                            .anyMatch(i -> i.getName().equalsIgnoreCase("Spanner"));
-                    if (hasSpanner) {
-                        System.out.println("You need a Spanner to open this box. You have one in your inventory.");
-                        System.out.println("Would you like to use the Spanner to open the box? (yes/no)");
+            // Handle the box
+            if (item instanceof Box) {
+                // Check if the player has the tool the box needs (a Spanner) in their inventory.
+                int tool = item.getDefinition().getRequiredTool();
+                String toolName = ItemRegistry.get(tool).getName();
+                if (inventory.contains(tool)) {
+                    output.printf("You need a %s to open this box. You have one in your inventory.%n", toolName);
+                    output.printf("Would you like to use the %s to open the box? (yes/no)%n", toolName);
 
-                        // Ask the player for confirmation.
-                        Scanner scanner = new Scanner(System.in);
-                        String response = scanner.nextLine().toLowerCase();
+                    // Ask the player for confirmation.
+                    prompter.ask(answer -> {
+                        String response = answer.toLowerCase();
 
                         if (response.equals("yes")) {
                             // Open the Box using its logic.
                             Box box = (Box) item;
-                            String boxContent = box.getContent(); // Get the content of the box.
+                            ItemDefinition boxContent = box.getContent(); // Get the content of the box.
                             box.open(this, this.dungeon); // Invoke the `open` logic of the box.
 
-                            // Add the contents of the box to the player's inventory unless it's a potion they drank.
-                            if (!boxContent.equalsIgnoreCase("Sleeping Potion") && !boxContent.equalsIgnoreCase("X-Ray Potion")) {
-                                inventory.add(new Item(boxContent) {
-                                    @Override
-                                    // Define what happens when the player uses the item
-                                    public void use(Player player) {
-                                        // Inform the player about the item they are using
-                                        System.out.println("You used: " + boxContent);
-                                    }
-                                });
-                                // End of the item definition block, now the item is added to the player's inventory
-                                System.out.println(boxContent + " has been added to your inventory.");
-                            }
-
-                            // Remove the Box from the player's inventory.
-                            inventory.remove(box);
-                            //System.out.println("The Box has been opened and removed from your inventory.");
-
-                            // Remove the Spanner from the inventory after use.
-                            inventory.removeIf(i -> i.getName().equalsIgnoreCase("Spanner"));
-                            System.out.println("The Spanner has been used and removed from your inventory.");
+                            // Once the box has been dealt with (the potion may ask more questions), tidy up the inventory.
+                            prompter.then(() -> {
+                                // Add the contents of the box to the player's inventory unless it's a potion they drank.
+                                if (boxContent.getKind() != ItemDefinition.Kind.POTION) {
+                                    // What the item does when used comes from its definition.
+                                    inventory.add(new Item(boxContent));
+                                    output.printf("%s has been added to your inventory.%n", boxContent.getName());
+                                }
+
+                                // Remove the Box from the player's inventory.
+                                inventory.remove(box);
+                                //output.println("The Box has been opened and removed from your inventory.");
+
+                                // Remove the Spanner from the inventory after use.
+                                inventory.removeAll(tool);
+                                output.printf("The %s has been used and removed from your inventory.%n", toolName);
+                            });
                         } else {
-                            System.out.println("You chose not to open the Box.");
+                            output.println("You chose not to open the Box.");
                         }
-                    } else {
-                        System.out.println("You need a Spanner to open this box, but you don't have one.");
-                    }
-                    return; // Exit after handling the Box
+                    });
+                } else {
+                    output.printf("You need a %s to open this box, but you don't have one.%n", toolName);
                 }
-
-                // Default behavior for other items
-                item.use(this); // Use the item
-                inventory.remove(item); // Remove the item from the inventory
-                //System.out.println(itemName + " has been used and removed from your inventory.");
-                return; // Exit after using the item
+                return; // Exit after handling the Box
             }
+
+            // Default behavior for other items
+            item.use(this); // Use the item
+            prompter.then(() -> inventory.remove(item)); // Remove the item from the inventory once it has been used
+            //output.printf("%s has been used and removed from your inventory.%n", itemName);
+            return; // Exit after using the item
         }
 
         // If the item wasn't found, let the player know.
-        System.out.println("Item not found in your inventory.");
+        output.println("Item not found in your inventory.");
     }
 
     /**
@@ -400,7 +479,7 @@ public class Player {
         if (inventory.remove(item)) {
             // check other items are still removed
         } else {
-            System.out.println(item.getName() + " could not be found in your inventory.");
+            output.printf("%s could not be found in your inventory.%n", item.getName());
         }
     }
 
@@ -408,17 +487,30 @@ public class Player {
 
 
 
+    /**
+     * Removes the first item with a specific definition number from the player's inventory.
+     *
+     * @param definitionId The {@link ItemRegistry} number of the item to remove.
+     */
+    public void removeItem(int definitionId) {
+        String itemName = ItemRegistry.get(definitionId).getName();
+        // Remove the first item with that number.
+        if (inventory.remove(definitionId) != null) {
+            output.printf("%s has been removed from your inventory.%n", itemName);
+            return;
+        }
+        // If no matching item is found.
+        output.printf("%s could not be found in your inventory.%n", itemName);
+    }
+
     public void removeItem(String itemName) {
-        // Search for the item in the inventory by name.
-        for (Item item : inventory) {
-            if (item.getName().equalsIgnoreCase(itemName)) {
-                inventory.remove(item);
-                System.out.println(itemName + " has been removed from your inventory.");
-                return;
-            }
+        // Remove the first item with that name (ignoring case).
+        if (inventory.remove(itemName) != null) {
+            output.printf("%s has been removed from your inventory.%n", itemName);
+            return;
         }
         // If no matching item is found.
-        System.out.println(itemName + " could not be found in your inventory.");
+        output.printf("%s could not be found in your inventory.%n", itemName);
     }
 
     /**
@@ -431,50 +523,40 @@ public class Player {
         // Check if the player's inventory is empty.
         if (inventory.isEmpty()) {
             // Notify the player that there are no items to drop.
-            System.out.println("No items to drop.");
+            output.println("No items to drop.");
             return; // Exit the method since there is nothing to drop.
         }
 
         // Ask the player which item they want to drop.
-        System.out.println("Which item would you like to drop? (Type the name or type 'exit' to cancel)");
+        output.println("Which item would you like to drop? (Type the name or type 'exit' to cancel)");
 
         // Show the player's inventory.
-        System.out.println("Inventory:");
-        for (Item item : inventory) {
-            System.out.println("- " + item.getName()); // List each item's name.
+        output.println("Inventory:");
+        for (int slot = inventory.firstSlot(); slot >= 0; slot = inventory.nextSlot(slot)) {
+            output.printf("- %s%n", inventory.itemAt(slot).getName()); // List each item's name.
         }
 
         // Prompt the player for input.
-        System.out.print("> ");
-        Scanner scanner = new Scanner(System.in); // Read input from the player.
-        String itemName = scanner.nextLine(); // Store the player's input.
-
-        // If the player types "exit", cancel the operation.
-        if (itemName.equalsIgnoreCase("exit")) {
-            System.out.println("Exiting item drop...");
-            return; // End the method without dropping an item.
-        }
+        output.print("> ");
+        prompter.ask(itemName -> { // Carry on once the player has typed a name.
+            // If the player types "exit", cancel the operation.
+            if (itemName.equalsIgnoreCase("exit")) {
+                output.println("Exiting item drop...");
+                return; // Stop without dropping an item.
+            }
 
-        // Variable to store the item the player wants to drop.
-        Item itemToDrop = null;
+            // Take the item out of the player's inventory by name (ignoring case).
+            Item itemToDrop = inventory.remove(itemName);
 
-        // Search for the item in the player's inventory.
-        for (Item item : inventory) {
-            if (item.getName().equalsIgnoreCase(itemName)) {
-                itemToDrop = item; // Item found, store it.
-                break; // Stop searching.
+            // If the item is found, drop it into the room.
+            if (itemToDrop != null) {
+                room.addItem(itemToDrop); // Add the item to the room.
+                output.printf("Dropped: %s%n", itemToDrop.getName()); // Notify the player.
+            } else {
+                // If no item matches the player's input, let them know.
+                output.println("Item not found in your inventory.");
             }
-        }
-
-        // If the item is found, drop it into the room.
-        if (itemToDrop != null) {
-            inventory.remove(itemToDrop); // Remove the item from the inventory.
-            room.addItem(itemToDrop); // Add the item to the room.
-            System.out.println("Dropped: " + itemToDrop.getName()); // Notify the player.
-        } else {
-            // If no item matches the player's input, let them know.
-            System.out.println("Item not found in your inventory.");
-        }
+        });
     }
 
     /**
@@ -486,18 +568,21 @@ public class Player {
         int level = this.getLevel() - 1; // Convert level to zero-based index.
 
         // Inform the player about the map reveal.
-        System.out.println("Now you can see the full map of this dungeon level:");
-        System.out.println("Legend: 'W' = Wall, 'E' = Entrance, 'X' = Exit, 'T' = Treasure");
+        output.println("Now you can see the full map of this dungeon level:");
+        output.println("Legend: 'W' = Wall, 'E' = Entrance, 'X' = Exit, 'T' = Treasure");
 
         // Display the entire map of the current level.
-        char[][] levelMap = dungeon.getDungeons()[level]; // Retrieve the map for this level.
+        LevelTiles levelMap = dungeon.getLevelTiles(level + 1); // Retrieve the map for this level.
 
-        for (int i = 0; i < levelMap.length; i++) {
-            for (int j = 0; j < levelMap[i].length; j++) {
-                System.out.print(levelMap[i][j] + " ");
+        for (int i = 0; i < levelMap.getSize(); i++) {
+            for (int j = 0; j < levelMap.getSize(); j++) {
+                output.printf("%s ", levelMap.get(i, j));
             }
-            System.out.println(); // Move to the next line after each row.
+            output.println(); // Move to the next line after each row.
         }
+
+        // The player remembers the whole level on their own map from now on.
+        dungeon.revealLevel(level + 1);
     }
 }
 
@@ -0,0 +1,127 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This class handles every question   *//
+//*              the game asks the player. Instead   *//
+//*              of stopping to wait for an answer,  *//
+//*              the game leaves behind what to do   *//
+//*              with it, and carries on from there  *//
+//*              when the answer arrives. This lets  *//
+//*              one thread run many games at once.  *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+import java.util.ArrayDeque;
+import java.util.function.Consumer;
+
+/**
+ * Turns the game's prompts into resumable continuations.
+ * <p>
+ * Code that needs an answer calls {@link #ask} with what to do with it and returns straight away.
+ * Code that must run after that answer has been dealt with (such as the rest of a turn) is passed to
+ * {@link #then}. Whoever drives the game delivers each line of input with {@link #answer}: on the
+ * console that is a simple read loop ({@link #drive}), on the event-loop server it is the session's
+ * mailbox. Steps queued by a continuation run before steps that were queued earlier, so the game
+ * carries on in exactly the order the old blocking code did.
+ * <p>
+ * A prompter belongs to one session and must only be used by one thread at a time.
+ */
+public final class Prompter {
+
+    private Consumer<String> pending; // What to do with the answer the game is waiting for, or null.
+    private final ArrayDeque<Runnable> steps = new ArrayDeque<>(); // What to do after the current answer, in order.
+    private ArrayDeque<Runnable> queuedByStep; // Steps queued by the step now running, or null outside a step.
+
+    /**
+     * Waits for the player's next line. The question itself should already have been written out.
+     *
+     * @param answer what to do with the line once it arrives
+     * @throws IllegalStateException if the game is already waiting for an answer
+     */
+    public void ask(Consumer<String> answer) {
+        if (pending != null) {
+            throw new IllegalStateException("The game is already waiting for an answer");
+        }
+        pending = answer;
+    }
+
+    /**
+     * Runs a step once the question being asked (if any) has been answered and dealt with.
+     * If the game isn't waiting for anything, the step runs straight away.
+     *
+     * @param step the code to run
+     */
+    public void then(Runnable step) {
+        if (pending == null) {
+            step.run();
+        } else if (queuedByStep != null) {
+            queuedByStep.add(step);
+        } else {
+            steps.add(step);
+        }
+    }
+
+    /**
+     * Checks whether the game is waiting for the player to type something.
+     *
+     * @return true if a question is waiting for an answer.
+     */
+    public boolean isWaiting() {
+        return pending != null;
+    }
+
+    /**
+     * Delivers a line of input to the question being asked, then carries on with the game
+     * until it asks another question or has nothing left to do.
+     *
+     * @param line the player's answer
+     * @throws IllegalStateException if the game isn't waiting for an answer
+     */
+    public void answer(String line) {
+        if (pending == null) {
+            throw new IllegalStateException("The game isn't waiting for an answer");
+        }
+        Consumer<String> answer = pending;
+        pending = null;
+        runStep(() -> answer.accept(line));
+        while (pending == null && !steps.isEmpty()) {
+            runStep(steps.pollFirst());
+        }
+    }
+
+    /**
+     * Answers questions from an input source until the game stops asking or the input runs out.
+     * This is how a game is played on a blocking source such as the console.
+     *
+     * @param input where the answers come from
+     * @return true if the game finished, false if the input ran out while it was still waiting.
+     */
+    public boolean drive(InputSource input) {
+        while (pending != null) {
+            if (!input.hasNextLine()) {
+                return false;
+            }
+            answer(input.nextLine());
+        }
+        return true;
+    }
+
+    /**
+     * Runs one step, then puts any steps it queued in front of the steps that were already waiting.
+     */
+    private void runStep(Runnable step) {
+        ArrayDeque<Runnable> outer = queuedByStep;
+        ArrayDeque<Runnable> queued = new ArrayDeque<>();
+        queuedByStep = queued;
+        try {
+            step.run();
+        } finally {
+            queuedByStep = outer;
+            while (!queued.isEmpty()) {
+                steps.addFirst(queued.pollLast());
+            }
+        }
+    }
+}
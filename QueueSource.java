@@ -0,0 +1,76 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This class lets other code feed the *//
+//*              game its input. Lines are put on a  *//
+//*              queue (for example by a network     *//
+//*              connection or a bot) and each       *//
+//*              prompt waits until one is there.    *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * An input source fed by other code. Reading blocks until a line is submitted or the source is closed.
+ * Lines can be submitted from any thread.
+ */
+public class QueueSource implements InputSource {
+
+    /**
+     * Put on the queue by close() to wake a waiting reader. Compared by identity, so no real line can match it.
+     */
+    private static final String END = new String("");
+
+    private final BlockingQueue<String> queue = new LinkedBlockingQueue<>(); // Lines waiting to be read.
+    private String pending; // A line taken by hasNextLine() but not yet returned.
+    private boolean ended; // Whether the end marker has been reached.
+
+    /**
+     * Adds a line for the game to read.
+     *
+     * @param line the line to add
+     */
+    public void submit(String line) {
+        queue.add(line);
+    }
+
+    /**
+     * Ends the input. Lines already submitted can still be read; after them the source reports no more input.
+     */
+    public void close() {
+        queue.add(END);
+    }
+
+    @Override
+    public synchronized boolean hasNextLine() {
+        if (pending == null && !ended) {
+            try {
+                pending = queue.take();
+            } catch (InterruptedException e) {
+                // Treat an interrupted wait as the end of the input, but keep the interrupt for the caller.
+                Thread.currentThread().interrupt();
+                pending = END;
+            }
+            if (pending == END) {
+                pending = null;
+                ended = true;
+            }
+        }
+        return pending != null;
+    }
+
+    @Override
+    public synchronized String nextLine() {
+        if (!hasNextLine()) {
+            throw new NoSuchElementException("The input has been closed");
+        }
+        String line = pending;
+        pending = null;
+        return line;
+    }
+}
@@ -0,0 +1,57 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This class is a simple simulated    *//
+//*              player. It wanders in random        *//
+//*              directions, picks up what it finds  *//
+//*              and eats when it is running low.    *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+import java.util.SplittableRandom;
+
+/**
+ * A bot that picks up new items, eats when its power is low and otherwise moves in a random direction.
+ */
+public class RandomWalkBot implements BotPolicy {
+
+    /**
+     * The directions a player can move in.
+     */
+    static final String[] DIRECTIONS = {"forward", "back", "left", "right"};
+
+    /**
+     * Below this many power points the bot eats any food it carries.
+     */
+    static final int HUNGRY = 50;
+
+    @Override
+    public void takeTurn(Dungeon dungeon, Player player, SplittableRandom random) {
+        if (pickUpOrEat(dungeon, player)) return;
+        dungeon.movePlayer(player, DIRECTIONS[random.nextInt(DIRECTIONS.length)]);
+    }
+
+    /**
+     * Does the things every bot does before moving: pick up an item it doesn't have yet, or eat if hungry.
+     *
+     * @param dungeon The dungeon being played.
+     * @param player  The simulated player.
+     * @return true if that used up the turn.
+     */
+    static boolean pickUpOrEat(Dungeon dungeon, Player player) {
+        Room room = dungeon.getRoom(player.getLevel(), player.getPosition());
+        for (int handle = room.firstItem(); handle != 0; handle = room.nextItem(handle)) {
+            if (!player.hasItem(room.itemAt(handle).getId())) {
+                player.pickItem(room);
+                return true;
+            }
+        }
+        if (player.getPowerPoints() < HUNGRY && player.hasItem(ItemDefinition.Kind.FOOD)) {
+            player.useItem(player.getItem(ItemDefinition.Kind.FOOD).getName());
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,81 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This class passes everything the    *//
+//*              game says on to another output,     *//
+//*              which can be swapped while the game *//
+//*              is running, for example to stay     *//
+//*              quiet while a game is replayed and  *//
+//*              start talking once it catches up.   *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+
+/**
+ * An output sink that forwards to a target sink chosen at any time.
+ * The game's objects all hold on to the sink they were given, so swapping the target here
+ * redirects every one of them at once. {@link #isDiscarding()} follows the current target.
+ */
+public final class RelaySink implements OutputSink {
+
+    private OutputSink target; // Where output goes right now.
+
+    /**
+     * Creates a relay that starts out forwarding to a sink.
+     *
+     * @param target where output goes until it is changed
+     */
+    public RelaySink(OutputSink target) {
+        this.target = target;
+    }
+
+    /**
+     * Changes where output goes from now on.
+     *
+     * @param target the new sink
+     */
+    public void setTarget(OutputSink target) {
+        this.target = target;
+    }
+
+    /**
+     * Gets where output goes right now.
+     *
+     * @return The current sink.
+     */
+    public OutputSink getTarget() {
+        return target;
+    }
+
+    @Override
+    public void print(String text) {
+        target.print(text);
+    }
+
+    @Override
+    public void println(String text) {
+        target.println(text);
+    }
+
+    @Override
+    public void println() {
+        target.println();
+    }
+
+    @Override
+    public void printf(String format, Object... args) {
+        target.printf(format, args);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+        target.write(bytes, offset, length);
+    }
+
+    @Override
+    public boolean isDiscarding() {
+        return target.isDiscarding();
+    }
+}
@@ -9,92 +9,109 @@ package dungeongame;
 //*              interaction such as adding or       *//
 //*              taking items. The room can also be  *//
 //*              checked for special features like   *//
-//*              containing treasure.                *//
+//*              containing treasure. The room's     *//
+//*              state lives in its level's RoomGrid;*//
+//*              a Room is a light view onto it.     *//
 //*                                                  *//
 //* Date: 24/11/2024                                 *//
 //****************************************************//
-import java.util.ArrayList;
 import java.util.List;
 /**
  * Represents a room in the game.
  * A room can hold items, enemies, or traps and may be frozen to disable traps or enemies.
+ * The room's state is stored in columns by its level's {@link RoomGrid}; this object only points at a position in it.
  */
 
 public class Room {
-    private String description; // A short description of the room (e.g., "Treasure Room" or "Hallway").
-    private boolean frozen; // True if the room is frozen, disabling traps or enemies.
-    private boolean hasEnemiesOrTraps; // True if the room has enemies or traps.
-    private ArrayList<Item> items = new ArrayList<>(); // A list of items currently in the room.
-    private MadScientist madScientist; // A reference to a Mad Scientist character in the room, if any.
+    private final RoomGrid grid; // The level store holding this room's state.
+    private final int x; // The row of the room on its level.
+    private final int y; // The column of the room on its level.
 
     /**
-     * Creates a new Room with a given description.
-     * By default, the room is not frozen and has no enemies or traps.
+     * Creates a view of the room at a position in a level's room store.
      *
-     * @param description A short description of the room (e.g., "Treasure Room").
+     * @param grid The level store holding the room's state.
+     * @param x    The row of the room.
+     * @param y    The column of the room.
      */
-    public Room(String description) {
-        this.description = description; // Set the room's description.
-        this.frozen = false; // The room starts unfrozen.
-        this.hasEnemiesOrTraps = false; // The room starts without enemies or traps.
+    Room(RoomGrid grid, int x, int y) {
+        this.grid = grid; // Remember which level the room is on.
+        this.x = x; // Remember the room's row.
+        this.y = y; // Remember the room's column.
     }
 
-    private boolean interacted; // True if the room interaction has been completed.
-
     // Updates the interaction status of the object or room
     public void setInteracted(boolean interacted) {
-        this.interacted = interacted; // Set the interaction status
+        grid.setInteracted(x, y, interacted); // Set the interaction status
     }
 
 
     // Checks if the player has interacted with the object or room
     public boolean hasInteracted() {
-        return interacted; // Return the current interaction status
+        return grid.hasInteracted(x, y); // Return the current interaction status
     }
 
     // Checks if the room is empty
     public boolean isEmpty() {
         // A room is empty if it has no items, no enemies or traps, and no Mad Scientist
-        return !hasItems() && !hasEnemiesOrTraps() && !hasMadScientist();
+        return grid.isEmpty(x, y);
     }
 
     // --- Getters and Setters ---
 // Retrieves the description of the room
     public String getDescription() {
-        return description; // Return the description of the room
+        return grid.describe(x, y); // Return the description of the room
     }
 
 
     public List<Item> getItems() {
-        return new ArrayList<>(items); // Return a copy of the items list to protect the original.
+        return grid.getItems(x, y); // Return a read-only view of the room's items (nothing is copied).
+    }
+
+    /**
+     * Gets a handle on the room's first item, for walking the items without making a list.
+     * For example: {@code for (int h = room.firstItem(); h != 0; h = room.nextItem(h)) room.itemAt(h)}.
+     *
+     * @return The handle, or 0 if the room has no items.
+     */
+    public int firstItem() {
+        return grid.firstItem(x, y);
+    }
+
+    public int nextItem(int handle) {
+        return grid.nextItem(handle); // The handle of the next item in the room, or 0 after the last.
+    }
+
+    public Item itemAt(int handle) {
+        return grid.itemAt(handle); // The item a handle refers to.
     }
 
     public void addItem(Item item) {
-        items.add(item); // Add an item to the room's item list.
+        grid.addItem(x, y, item); // Add an item to the room's item list.
     }
 
     public boolean isFrozen() {
-        return frozen; // Check if the room is frozen.
+        return grid.isFrozen(x, y); // Check if the room is frozen.
     }
 
     public void setFrozen(boolean frozen) {
-        this.frozen = frozen; // Set the room's frozen state.
+        grid.setFrozen(x, y, frozen); // Set the room's frozen state.
     }
 
     public boolean hasEnemiesOrTraps() {
-        return hasEnemiesOrTraps; // Check if the room has enemies or traps.
+        return grid.hasEnemiesOrTraps(x, y); // Check if the room has enemies or traps.
     }
 
     public void setHasEnemiesOrTraps(boolean hasEnemiesOrTraps) {
-        this.hasEnemiesOrTraps = hasEnemiesOrTraps; // Set whether the room has enemies or traps.
+        grid.setHasEnemiesOrTraps(x, y, hasEnemiesOrTraps); // Set whether the room has enemies or traps.
     }
 
     public Item takeItem() {
-        return items.isEmpty() ? null : items.remove(0); // Remove and return the first item in the room, or null if empty.
+        return grid.takeItem(x, y); // Remove and return the first item in the room, or null if empty.
     }
 
     public boolean hasItems() {
-        return !items.isEmpty(); // Check if the room has any items.
+        return grid.hasItems(x, y); // Check if the room has any items.
     }
 
     /**
@@ -105,15 +122,21 @@ public class Room {
      */
     public String describeContents() {
         // Check if the room has no items.
-        if (items.isEmpty()) {
+        int first = firstItem();
+        if (first == 0) {
             return "No items."; // Return a message if the room is empty.
         }
 
+        // Most rooms hold a single item, whose name is already the whole description.
+        if (nextItem(first) == 0) {
+            return itemAt(first).getName();
+        }
+
         // Create a string to hold the list of item names.
         StringBuilder contents = new StringBuilder();
-        for (Item item : items) {
+        for (int handle = first; handle != 0; handle = nextItem(handle)) {
             // Add each item's name to the string, followed by a comma.
-            contents.append(item.getName()).append(", ");
+            contents.append(itemAt(handle).getName()).append(", ");
         }
 
         // Remove the trailing comma and space, then return the result.
@@ -121,25 +144,25 @@ public class Room {
     }
 
     public boolean hasMadScientist() {
-        return madScientist != null; // Check if there is a Mad Scientist in the room.
+        return grid.hasMadScientist(x, y); // Check if there is a Mad Scientist in the room.
     }
 
     public void setMadScientist(MadScientist madScientist) {
-        this.madScientist = madScientist; // Set the Mad Scientist for the room.
+        grid.setMadScientist(x, y, madScientist); // Set the Mad Scientist for the room.
     }
 
     public MadScientist getMadScientist() {
-        return madScientist; // Get the Mad Scientist in the room, if any.
+        return grid.getMadScientist(x, y); // Get the Mad Scientist in the room, if any.
     }
 
     @Override
     public String toString() {
         // Return the room's description with "(Frozen)" added if the room is frozen.
-        return description + (frozen ? " (Frozen)" : "");
+        return getDescription() + (isFrozen() ? " (Frozen)" : "");
     }
 
     public boolean isTreasureRoom() {
-        return description.equalsIgnoreCase("Treasure"); // Check if the room is a "Treasure" room.
+        return getDescription().equalsIgnoreCase("Treasure"); // Check if the room is a "Treasure" room.
     }
 
     /**
@@ -149,20 +172,21 @@ public class Room {
      * @param player The player interacting with the room.
      */
     public void interact(Player player) {
+        OutputSink output = player.getOutput(); // Messages go to this player's output.
         // Check if the room has a Mad Scientist.
         if (hasMadScientist()) {
-            System.out.println("You encounter a Mad Scientist!");
-            madScientist.interact(player); // Pass the Player object to the Mad Scientist's interaction method.
+            output.println("You encounter a Mad Scientist!");
+            getMadScientist().interact(player); // Pass the Player object to the Mad Scientist's interaction method.
         }
 
         // Check if the room has enemies or traps.
         if (hasEnemiesOrTraps()) {
-            System.out.println("There are enemies or traps here!");
+            output.println("There are enemies or traps here!");
         }
 
         // Check if the room contains items.
         if (hasItems()) {
-            System.out.println("This room contains items: " + describeContents());
+            output.printf("This room contains items: %s%n", describeContents());
         }
     }
 }
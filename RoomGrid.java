@@ -0,0 +1,751 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This class stores one player's view *//
+//*              of the rooms of one dungeon level.  *//
+//*              The rooms start out exactly as the  *//
+//*              level's shared template lays them   *//
+//*              out, and a chunk of rooms is only   *//
+//*              copied for this player the first    *//
+//*              time they change something in it,   *//
+//*              so memory grows with what the       *//
+//*              player has changed rather than with *//
+//*              the map size. Inside a chunk the    *//
+//*              room state is kept in columns:      *//
+//*              bitsets for the flags and int       *//
+//*              arrays of handles for the Mad       *//
+//*              Scientist and the items. It also    *//
+//*              keeps an index of the cells that    *//
+//*              can be walked on, for random picks. *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+
+/**
+ * A copy-on-write, column-oriented store for one session's rooms on a single level.
+ * {@link Room} objects are thin views over a position in this store.
+ * Until a chunk is changed, reads go straight to the chunk held by the level's shared
+ * {@link LevelTemplate}; the first change copies that chunk into this grid.
+ */
+class RoomGrid {
+
+    /**
+     * Makes the level's own Mad Scientist the first time this session meets them.
+     */
+    interface ScientistFactory {
+        MadScientist create(int x, int y);
+    }
+
+    /**
+     * Hears about each room an area effect acts on (see {@link AreaEffect#targets}).
+     */
+    interface TargetedRooms {
+        void targeted(int x, int y);
+    }
+
+    static final int CHUNK_SHIFT = 5; // Chunks are 32x32 rooms.
+    static final int CHUNK = 1 << CHUNK_SHIFT; // The width and height of one chunk.
+    private static final int MASK = CHUNK - 1; // Picks out a room's position inside its chunk.
+    private static final int CELLS = CHUNK * CHUNK; // Rooms in one chunk.
+
+    private static final Item[] NO_ITEMS = new Item[0]; // The node columns before the first item is added.
+    private static final int[] NO_NODES = new int[0];
+
+    /**
+     * The state of the rooms in one chunk, stored column by column.
+     * Bit i of a flag column belongs to room i of the chunk; a handle of 0 means "none".
+     * Negative handles point into the level template rather than this grid: an item handle of
+     * -1 - k is item k of the dungeon's item pool, stored in the room itself when it is alone there
+     * (so most rooms never need an item node), and a negative Mad Scientist handle is the level's
+     * own Mad Scientist.
+     */
+    static final class Chunk {
+        final long[] frozen = new long[CELLS / 64]; // Rooms whose traps and enemies are frozen.
+        final long[] trapped = new long[CELLS / 64]; // Rooms with enemies or traps.
+        final long[] interacted = new long[CELLS / 64]; // Rooms the player has already dealt with.
+        final int[] scientists = new int[CELLS]; // Handle of each room's Mad Scientist.
+        final int[] items = new int[CELLS]; // Handle of the first item node in each room.
+
+        /**
+         * Copies this chunk, so a session can change its own copy of a template chunk.
+         *
+         * @return A new chunk with the same contents.
+         */
+        Chunk copy() {
+            Chunk copy = new Chunk();
+            System.arraycopy(frozen, 0, copy.frozen, 0, frozen.length);
+            System.arraycopy(trapped, 0, copy.trapped, 0, trapped.length);
+            System.arraycopy(interacted, 0, copy.interacted, 0, interacted.length);
+            System.arraycopy(scientists, 0, copy.scientists, 0, CELLS);
+            System.arraycopy(items, 0, copy.items, 0, CELLS);
+            return copy;
+        }
+
+        /**
+         * Checks if no room in the chunk holds anything.
+         *
+         * @return true if every flag is clear and every handle is 0.
+         */
+        boolean isBlank() {
+            for (int i = 0; i < CELLS / 64; i++) {
+                if ((frozen[i] | trapped[i] | interacted[i]) != 0) return false;
+            }
+            for (int i = 0; i < CELLS; i++) {
+                if ((scientists[i] | items[i]) != 0) return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * The shared chunk used by every template chunk with no contents. It is never written to.
+     */
+    static final Chunk EMPTY_CHUNK = new Chunk();
+
+    private final LevelTemplate template; // The shared layout and contents this grid starts from.
+    private final Item[] itemPool; // This session's items, which the template's item handles refer to.
+    private final ScientistFactory scientistFactory; // Makes the level's own Mad Scientist.
+    private Chunk[] chunks; // This session's changed chunks in row-major order; null where nothing has changed.
+    private LevelTiles tiles; // The level's layout: the template's until this session changes a tile.
+    private MadScientist templateScientist; // The level's own Mad Scientist, once met.
+
+    // Mad Scientists added by this session; handle h refers to scientists.get(h - 1).
+    private final List<MadScientist> scientists = new ArrayList<>();
+
+    // Item nodes for the rooms this session has changed; handle h refers to slot h - 1.
+    // Each node holds an item and the handle of the next item in the same room.
+    private Item[] nodeItems = NO_ITEMS;
+    private int[] nodeNext = NO_NODES;
+    private int nodeCount; // How many node slots have ever been used.
+    private int freeNodes; // Handle of the first reusable node, or 0.
+
+    // This session's own index of walkable cells (x * size + y), only made once it has changed a tile.
+    private CellIndex walkableCells;
+
+    /**
+     * Creates a grid for one session on a level. Nothing is copied until the session changes something.
+     *
+     * @param template         the level's shared layout and contents
+     * @param itemPool         the dungeon's items, which the template's rooms refer to by number
+     * @param scientistFactory makes the level's own Mad Scientist when the session first meets them
+     */
+    RoomGrid(LevelTemplate template, Item[] itemPool, ScientistFactory scientistFactory) {
+        this.template = template;
+        this.tiles = template.getTiles();
+        this.itemPool = itemPool;
+        this.scientistFactory = scientistFactory;
+    }
+
+    /**
+     * Gets a view of the room at a position.
+     *
+     * @param x The row of the room.
+     * @param y The column of the room.
+     * @return The room at that position.
+     */
+    Room getRoom(int x, int y) {
+        return new Room(this, x, y);
+    }
+
+    /**
+     * Gets the level's current layout, including any tiles this session has changed.
+     *
+     * @return The level's tiles.
+     */
+    LevelTiles getTiles() {
+        return tiles;
+    }
+
+    /**
+     * Describes a room by the kind of tile it sits on.
+     *
+     * @param x The row of the room.
+     * @param y The column of the room.
+     * @return "Treasure" for the treasure room, otherwise an empty description.
+     */
+    String describe(int x, int y) {
+        return tiles.get(x, y) == Dungeon.TREASURE ? "Treasure" : "";
+    }
+
+    // --- Flags ---
+
+    boolean isFrozen(int x, int y) {
+        return get(read(x, y).frozen, x, y);
+    }
+
+    void setFrozen(int x, int y, boolean frozen) {
+        // Setting a flag to the value it already has changes nothing, so don't copy the chunk for it.
+        if (frozen == isFrozen(x, y)) return;
+        set(write(x, y).frozen, x, y, frozen);
+    }
+
+    /**
+     * Applies an area effect to a run of rooms in one row, a chunk word at a time.
+     * A chunk is only copied for this session if the effect changes something in it.
+     *
+     * @param effect The effect.
+     * @param x      The row.
+     * @param fromY  The first column.
+     * @param toY    The last column.
+     * @return How many rooms changed.
+     */
+    int applyToSpan(AreaEffect effect, int x, int fromY, int toY) {
+        return applyToSpan(effect, x, fromY, toY, null);
+    }
+
+    /**
+     * Applies an area effect to a run of rooms in one row, and says which rooms it acted on.
+     *
+     * @param effect   The effect.
+     * @param x        The row.
+     * @param fromY    The first column.
+     * @param toY      The last column.
+     * @param targeted Hears about each room the effect acted on, changed or not, or null.
+     * @return How many rooms changed.
+     */
+    int applyToSpan(AreaEffect effect, int x, int fromY, int toY, TargetedRooms targeted) {
+        int count = 0;
+        for (int y = fromY; y <= toY; ) {
+            // The part of the span inside this chunk lies in one word: a chunk row is 32 rooms and a word holds two rows.
+            int end = Math.min(toY, y | MASK);
+            int cell = cell(x, y);
+            long covered = (-1L >>> (63 - (end - y))) << cell; // end - y + 1 bits, starting at the span's first room.
+            Chunk chunk = read(x, y);
+            long changes = effect.changes(chunk, cell >> 6, covered);
+            long targets = targeted == null ? 0 : effect.targets(chunk, cell >> 6, covered);
+            if (changes != 0) {
+                effect.apply(write(x, y), cell >> 6, changes);
+                count += Long.bitCount(changes);
+            }
+
+            // A word's low 5 bits of bit number are the column within the chunk row.
+            for (long left = targets; left != 0; left &= left - 1) {
+                targeted.targeted(x, (y & ~MASK) | (Long.numberOfTrailingZeros(left) & MASK));
+            }
+            y = end + 1;
+        }
+        return count;
+    }
+
+    boolean hasEnemiesOrTraps(int x, int y) {
+        return get(read(x, y).trapped, x, y);
+    }
+
+    void setHasEnemiesOrTraps(int x, int y, boolean trapped) {
+        if (trapped == hasEnemiesOrTraps(x, y)) return;
+        set(write(x, y).trapped, x, y, trapped);
+    }
+
+    boolean hasInteracted(int x, int y) {
+        return get(read(x, y).interacted, x, y);
+    }
+
+    void setInteracted(int x, int y, boolean interacted) {
+        if (interacted == hasInteracted(x, y)) return;
+        set(write(x, y).interacted, x, y, interacted);
+    }
+
+    /**
+     * Checks if the room at a position is empty.
+     *
+     * @param x The row of the room.
+     * @param y The column of the room.
+     * @return {@code true} if the room has no items, enemies, traps, or Mad Scientist.
+     */
+    boolean isEmpty(int x, int y) {
+        Chunk chunk = read(x, y);
+        int cell = cell(x, y);
+        return chunk.items[cell] == 0 && chunk.scientists[cell] == 0 && !get(chunk.trapped, x, y);
+    }
+
+    // --- Mad Scientist ---
+
+    boolean hasMadScientist(int x, int y) {
+        return read(x, y).scientists[cell(x, y)] != 0;
+    }
+
+    MadScientist getMadScientist(int x, int y) {
+        int handle = read(x, y).scientists[cell(x, y)];
+        if (handle == 0) return null;
+        if (handle > 0) return scientists.get(handle - 1);
+
+        // The template's Mad Scientist is only made once this session meets them.
+        if (templateScientist == null) {
+            templateScientist = scientistFactory.create(x, y);
+        }
+        return templateScientist;
+    }
+
+    void setMadScientist(int x, int y, MadScientist madScientist) {
+        int handle = 0;
+        if (madScientist != null) {
+            scientists.add(madScientist);
+            handle = scientists.size();
+        }
+        write(x, y).scientists[cell(x, y)] = handle;
+    }
+
+    // --- Items ---
+
+    boolean hasItems(int x, int y) {
+        return read(x, y).items[cell(x, y)] != 0;
+    }
+
+    /**
+     * Gets a read-only view of the items in a room, in the order they were added.
+     * Nothing is copied: the view reads the room as it is at the time, so it sees later changes.
+     *
+     * @param x The row of the room.
+     * @param y The column of the room.
+     * @return The room's items.
+     */
+    List<Item> getItems(int x, int y) {
+        return new ItemView(x, y);
+    }
+
+    /**
+     * Gets the handle of the first item in a room, for walking its items without making anything.
+     * Walk on with {@link #nextItem} and read each item with {@link #itemAt}.
+     *
+     * @param x The row of the room.
+     * @param y The column of the room.
+     * @return The handle, or 0 if the room has no items.
+     */
+    int firstItem(int x, int y) {
+        return read(x, y).items[cell(x, y)];
+    }
+
+    /**
+     * Gets the handle of the item after another in the same room.
+     *
+     * @param handle The handle of an item in the room.
+     * @return The next item's handle, or 0 after the last item.
+     */
+    int nextItem(int handle) {
+        return handle < 0 ? 0 : nodeNext[handle - 1]; // The template's item is always alone in its room.
+    }
+
+    Item itemAt(int handle) {
+        return handle < 0 ? itemPool[-1 - handle] : nodeItems[handle - 1];
+    }
+
+    /**
+     * Adds an item to the end of a room's item list.
+     *
+     * @param x    The row of the room.
+     * @param y    The column of the room.
+     * @param item The item to add.
+     */
+    void addItem(int x, int y, Item item) {
+        int[] heads = write(x, y).items;
+        int cell = cell(x, y);
+
+        // An item from the pool going into an empty room is stored in the room itself, like the template's items.
+        if (heads[cell] == 0) {
+            int kind = SessionSnapshot.poolIndex(item, itemPool);
+            if (kind >= 0) {
+                heads[cell] = -1 - kind;
+                return;
+            }
+        }
+
+        // The template's item can't be linked to, so it becomes this session's own first node.
+        if (heads[cell] < 0) {
+            heads[cell] = allocateNode(itemPool[-1 - heads[cell]]);
+        }
+        appendNode(heads, cell, allocateNode(item));
+    }
+
+    /**
+     * Removes and returns the first item in a room.
+     *
+     * @param x The row of the room.
+     * @param y The column of the room.
+     * @return The first item, or null if the room has none.
+     */
+    Item takeItem(int x, int y) {
+        if (!hasItems(x, y)) return null;
+        int[] heads = write(x, y).items;
+        int cell = cell(x, y);
+
+        // The template's item just leaves the room.
+        int node = heads[cell];
+        if (node < 0) {
+            heads[cell] = 0;
+            return itemPool[-1 - node];
+        }
+
+        // Unlink the first node and put it on the free list.
+        Item item = nodeItems[node - 1];
+        heads[cell] = nodeNext[node - 1];
+        nodeItems[node - 1] = null;
+        nodeNext[node - 1] = freeNodes;
+        freeNodes = node;
+        return item;
+    }
+
+    // --- Cell indexes ---
+
+    /**
+     * Picks a random cell that is not a wall.
+     *
+     * @param random The random stream to draw from.
+     * @return A random walkable cell (x * size + y), or -1 if the level has none.
+     */
+    int randomWalkableCell(SplittableRandom random) {
+        return walkableCells().sample(random);
+    }
+
+    /**
+     * Counts the cells that are not walls.
+     *
+     * @return How many walkable cells the level has.
+     */
+    int countWalkableCells() {
+        return walkableCells().size();
+    }
+
+    /**
+     * Changes a tile of the level and keeps the walkable index in step with it.
+     * The first change takes a private copy of the template's tiles; other sessions still see the original.
+     *
+     * @param x      The row of the tile.
+     * @param y      The column of the tile.
+     * @param symbol The new tile symbol.
+     */
+    void setTile(int x, int y, char symbol) {
+        if (tiles == template.getTiles()) {
+            tiles = tiles.copy();
+        }
+        tiles.set(x, y, symbol);
+        if (walkableCells == null) return; // Built from the changed tiles when next needed.
+
+        int cell = x * tiles.getSize() + y;
+        if (symbol == Dungeon.WALL) {
+            walkableCells.remove(cell);
+        } else {
+            walkableCells.add(cell);
+        }
+    }
+
+    /**
+     * Gets the index of walkable cells: the template's, until this session changes a tile.
+     */
+    private CellIndex walkableCells() {
+        if (tiles == template.getTiles()) return template.getWalkableCells();
+        if (walkableCells == null) {
+            walkableCells = LevelTemplate.indexWalkableCells(tiles);
+        }
+        return walkableCells;
+    }
+
+    // --- Snapshots ---
+
+    /**
+     * Writes this session's changes to the level's rooms to a session snapshot: the chunks it has
+     * copied, and in each one only the rooms that differ from the template. Chunk and room numbers
+     * are written as the gap since the previous one, so nearby changes cost a byte each.
+     *
+     * @param out Where to write.
+     */
+    void writeChanges(ByteBuffer out) {
+        int count = 0;
+        if (chunks != null) {
+            for (Chunk chunk : chunks) {
+                if (chunk != null) count++;
+            }
+        }
+        SessionSnapshot.putVarint(out, count);
+
+        int previous = -1;
+        for (int index = 0; count > 0 && index < chunks.length; index++) {
+            Chunk chunk = chunks[index];
+            if (chunk == null) continue;
+            SessionSnapshot.putVarint(out, index - previous - 1);
+            previous = index;
+            writeChunkChanges(chunk, template.getChunk(index), out);
+        }
+    }
+
+    /**
+     * Writes the rooms of one chunk that differ from the template.
+     * Each room is written as its gap, a byte of flags, and its items.
+     */
+    private void writeChunkChanges(Chunk chunk, Chunk base, ByteBuffer out) {
+        // Find the changed rooms a word of 64 at a time.
+        long[] changed = new long[CELLS / 64];
+        for (int word = 0; word < changed.length; word++) {
+            changed[word] = (chunk.frozen[word] ^ base.frozen[word])
+                    | (chunk.trapped[word] ^ base.trapped[word])
+                    | (chunk.interacted[word] ^ base.interacted[word]);
+        }
+        markMismatches(chunk.scientists, base.scientists, changed);
+        markMismatches(chunk.items, base.items, changed);
+
+        int count = 0;
+        for (long word : changed) {
+            count += Long.bitCount(word);
+        }
+        SessionSnapshot.putVarint(out, count);
+
+        int previous = -1;
+        for (int word = 0; word < changed.length; word++) {
+            for (long bits = changed[word]; bits != 0; bits &= bits - 1) {
+                int cell = (word << 6) | Long.numberOfTrailingZeros(bits);
+                SessionSnapshot.putVarint(out, cell - previous - 1);
+                previous = cell;
+                writeRoom(chunk, cell, out);
+            }
+        }
+    }
+
+    /**
+     * Writes one room's flags and items.
+     */
+    private void writeRoom(Chunk chunk, int cell, ByteBuffer out) {
+        int scientist = chunk.scientists[cell];
+        int flags = (getBit(chunk.frozen, cell) ? 1 : 0)
+                | (getBit(chunk.trapped, cell) ? 2 : 0)
+                | (getBit(chunk.interacted, cell) ? 4 : 0)
+                | (scientist < 0 ? 8 : scientist > 0 ? 16 : 0);
+        out.put((byte) flags);
+
+        // The room's items, in order.
+        int node = chunk.items[cell];
+        if (node < 0) {
+            SessionSnapshot.putVarint(out, 1);
+            SessionSnapshot.putItem(out, itemPool[-1 - node], itemPool);
+            return;
+        }
+        int items = 0;
+        for (int n = node; n != 0; n = nodeNext[n - 1]) items++;
+        SessionSnapshot.putVarint(out, items);
+        for (int n = node; n != 0; n = nodeNext[n - 1]) {
+            SessionSnapshot.putItem(out, nodeItems[n - 1], itemPool);
+        }
+    }
+
+    /**
+     * Sets the bit of every cell where two handle columns differ, skipping equal stretches quickly.
+     */
+    private static void markMismatches(int[] handles, int[] base, long[] changed) {
+        int from = 0;
+        while (from < CELLS) {
+            int offset = Arrays.mismatch(handles, from, CELLS, base, from, CELLS);
+            if (offset < 0) return;
+            from += offset;
+            changed[from >> 6] |= 1L << from;
+            from++;
+        }
+    }
+
+    /**
+     * Reads changes written by {@link #writeChanges} into this grid, which must not have been changed yet.
+     *
+     * @param in Where to read from.
+     * @throws IllegalArgumentException if the snapshot was taken on a bigger level.
+     */
+    void readChanges(ByteBuffer in) {
+        int count = SessionSnapshot.getVarint(in);
+        int index = -1;
+        for (int i = 0; i < count; i++) {
+            index += SessionSnapshot.getVarint(in) + 1;
+            if (index >= template.getChunkCount()) {
+                throw new IllegalArgumentException("The snapshot's rooms don't fit this level");
+            }
+            Chunk chunk = writeChunk(index);
+            int baseX = index / template.getChunksPerSide() << CHUNK_SHIFT;
+            int baseY = index % template.getChunksPerSide() << CHUNK_SHIFT;
+
+            int rooms = SessionSnapshot.getVarint(in);
+            int cell = -1;
+            for (int r = 0; r < rooms; r++) {
+                cell += SessionSnapshot.getVarint(in) + 1;
+                if (cell >= CELLS) {
+                    throw new IllegalArgumentException("The snapshot's rooms don't fit this level");
+                }
+                int flags = in.get();
+                setBit(chunk.frozen, cell, (flags & 1) != 0);
+                setBit(chunk.trapped, cell, (flags & 2) != 0);
+                setBit(chunk.interacted, cell, (flags & 4) != 0);
+                if ((flags & 8) != 0) {
+                    chunk.scientists[cell] = -1;
+                } else if ((flags & 16) != 0) {
+                    scientists.add(scientistFactory.create(baseX + (cell >> CHUNK_SHIFT), baseY + (cell & MASK)));
+                    chunk.scientists[cell] = scientists.size();
+                } else {
+                    chunk.scientists[cell] = 0;
+                }
+
+                // A lone item from the pool goes back to being the template's kind of handle.
+                chunk.items[cell] = 0;
+                int items = SessionSnapshot.getVarint(in);
+                for (int n = 0; n < items; n++) {
+                    Item item = SessionSnapshot.getItem(in, itemPool);
+                    int kind = SessionSnapshot.poolIndex(item, itemPool);
+                    if (items == 1 && kind >= 0) {
+                        chunk.items[cell] = -1 - kind;
+                    } else {
+                        appendNode(chunk.items, cell, allocateNode(item));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A read-only list of one room's items that reads the grid directly.
+     */
+    private final class ItemView extends AbstractList<Item> {
+        private final int x, y;
+
+        ItemView(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public Item get(int index) {
+            if (index >= 0) {
+                int handle = firstItem(x, y);
+                for (int i = 0; handle != 0; handle = nextItem(handle), i++) {
+                    if (i == index) return itemAt(handle);
+                }
+            }
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for " + size() + " items");
+        }
+
+        @Override
+        public int size() {
+            int size = 0;
+            for (int handle = firstItem(x, y); handle != 0; handle = nextItem(handle)) size++;
+            return size;
+        }
+
+        @Override
+        public Iterator<Item> iterator() {
+            return new Iterator<>() {
+                private int handle = firstItem(x, y);
+
+                @Override
+                public boolean hasNext() {
+                    return handle != 0;
+                }
+
+                @Override
+                public Item next() {
+                    if (handle == 0) throw new NoSuchElementException();
+                    Item item = itemAt(handle);
+                    handle = nextItem(handle);
+                    return item;
+                }
+            };
+        }
+    }
+
+    // --- Storage helpers ---
+
+    /**
+     * Links a node after the last item in a room.
+     */
+    private void appendNode(int[] heads, int cell, int node) {
+        if (heads[cell] == 0) {
+            heads[cell] = node;
+        } else {
+            int last = heads[cell];
+            while (nodeNext[last - 1] != 0) last = nodeNext[last - 1];
+            nodeNext[last - 1] = node;
+        }
+    }
+
+    /**
+     * Takes a node for a new item, reusing a freed one if there is one.
+     *
+     * @param item The item the node will hold.
+     * @return The handle of the node.
+     */
+    private int allocateNode(Item item) {
+        int node = freeNodes;
+        if (node != 0) {
+            freeNodes = nodeNext[node - 1];
+        } else {
+            // Grow the node columns when they are full.
+            if (nodeCount == nodeItems.length) {
+                int capacity = Math.max(16, nodeCount * 2);
+                nodeItems = Arrays.copyOf(nodeItems, capacity);
+                nodeNext = Arrays.copyOf(nodeNext, capacity);
+            }
+            node = ++nodeCount;
+        }
+        nodeItems[node - 1] = item;
+        nodeNext[node - 1] = 0;
+        return node;
+    }
+
+    /**
+     * Returns the chunk holding a room for reading: this session's copy if it has one, otherwise the template's.
+     */
+    private Chunk read(int x, int y) {
+        if (chunks != null) {
+            Chunk chunk = chunks[template.chunkIndex(x, y)];
+            if (chunk != null) return chunk;
+        }
+        return template.getChunk(template.chunkIndex(x, y));
+    }
+
+    /**
+     * Returns the chunk holding a room for writing, copying the template's chunk the first time.
+     */
+    private Chunk write(int x, int y) {
+        return writeChunk(template.chunkIndex(x, y));
+    }
+
+    /**
+     * Returns a chunk for writing by its index, copying the template's chunk the first time.
+     */
+    private Chunk writeChunk(int index) {
+        if (chunks == null) {
+            chunks = new Chunk[template.getChunkCount()];
+        }
+        Chunk chunk = chunks[index];
+        if (chunk == null) {
+            chunk = template.getChunk(index).copy();
+            chunks[index] = chunk;
+        }
+        return chunk;
+    }
+
+    static int cell(int x, int y) {
+        return ((x & MASK) << CHUNK_SHIFT) | (y & MASK);
+    }
+
+    static boolean get(long[] bits, int x, int y) {
+        return getBit(bits, cell(x, y));
+    }
+
+    static void set(long[] bits, int x, int y, boolean value) {
+        setBit(bits, cell(x, y), value);
+    }
+
+    private static boolean getBit(long[] bits, int cell) {
+        return (bits[cell >> 6] & (1L << cell)) != 0;
+    }
+
+    private static void setBit(long[] bits, int cell, boolean value) {
+        if (value) {
+            bits[cell >> 6] |= 1L << cell;
+        } else {
+            bits[cell >> 6] &= ~(1L << cell);
+        }
+    }
+}
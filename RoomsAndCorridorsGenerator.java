@@ -0,0 +1,64 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This class generates levels made of *//
+//*              rectangular rooms joined by         *//
+//*              corridors. The level is split into  *//
+//*              square sectors, each sector may get *//
+//*              a room, and neighbouring sectors    *//
+//*              are joined so the work grows only   *//
+//*              with the area of the level.         *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+import java.util.SplittableRandom;
+
+/**
+ * Carves a classic "rooms and corridors" level.
+ * Every sector is joined to the sector on its left and the sector above it, so the whole level is connected.
+ */
+public class RoomsAndCorridorsGenerator extends LevelGenerator {
+
+    /**
+     * The width and height of one sector of the level.
+     */
+    private static final int SECTOR = 8;
+
+    @Override
+    protected void carve(char[][] tiles, SplittableRandom random) {
+        int size = tiles.length;
+        int sectors = (size + SECTOR - 1) / SECTOR; // Sectors along each side, including a partial last one.
+
+        for (int sx = 0; sx < sectors; sx++) {
+            for (int sy = 0; sy < sectors; sy++) {
+                // Work out the tiles this sector covers (the last sector may be cut short).
+                int top = sx * SECTOR;
+                int left = sy * SECTOR;
+                int height = Math.min(SECTOR, size - top);
+                int width = Math.min(SECTOR, size - left);
+
+                // Most sectors get a room of random size somewhere inside them.
+                if (random.nextInt(4) != 0) {
+                    int roomHeight = 1 + random.nextInt(height);
+                    int roomWidth = 1 + random.nextInt(width);
+                    int roomX = top + random.nextInt(height - roomHeight + 1);
+                    int roomY = left + random.nextInt(width - roomWidth + 1);
+                    for (int x = roomX; x < roomX + roomHeight; x++) {
+                        for (int y = roomY; y < roomY + roomWidth; y++) {
+                            tiles[x][y] = Dungeon.EMPTY;
+                        }
+                    }
+                }
+
+                // Join the centre of this sector to the centres of the sectors to the left and above.
+                int centreX = top + height / 2;
+                int centreY = left + width / 2;
+                tiles[centreX][centreY] = Dungeon.EMPTY;
+                if (sy > 0) connect(tiles, centreX, centreY, centreX, centreY - SECTOR);
+                if (sx > 0) connect(tiles, centreX, centreY, centreX - SECTOR, centreY);
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This class plays back a script of   *//
+//*              pre-recorded answers, one line per  *//
+//*              prompt, so a game can be run again  *//
+//*              without anyone at the keyboard.     *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * An input source that returns a fixed list of lines in order, then ends.
+ */
+public class ScriptSource implements InputSource {
+
+    private final List<String> lines; // The recorded answers.
+    private int next; // The index of the next answer to give.
+
+    /**
+     * Creates a source that plays back a list of lines.
+     *
+     * @param lines the answers, in the order the prompts will ask for them
+     */
+    public ScriptSource(List<String> lines) {
+        this.lines = List.copyOf(lines);
+    }
+
+    /**
+     * Creates a source that plays back some lines.
+     *
+     * @param lines the answers, in the order the prompts will ask for them
+     */
+    public ScriptSource(String... lines) {
+        this(Arrays.asList(lines));
+    }
+
+    /**
+     * Creates a source that plays back the lines of a text file.
+     *
+     * @param file the script file, one answer per line
+     * @return The script source.
+     * @throws IOException if the file can't be read
+     */
+    public static ScriptSource fromFile(Path file) throws IOException {
+        return new ScriptSource(Files.readAllLines(file));
+    }
+
+    @Override
+    public boolean hasNextLine() {
+        return next < lines.size();
+    }
+
+    @Override
+    public String nextLine() {
+        if (next >= lines.size()) {
+            throw new NoSuchElementException("The script has no more lines");
+        }
+        return lines.get(next++);
+    }
+}
@@ -0,0 +1,309 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This class saves a game in progress *//
+//*              as a few hundred bytes and loads it *//
+//*              back. Only what the player has      *//
+//*              changed is saved: everything else   *//
+//*              comes from the world the game was   *//
+//*              started from. Numbers are written   *//
+//*              in as few bytes as they need, so a  *//
+//*              snapshot is small and quick enough  *//
+//*              to take after every turn.           *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes and reads compact binary snapshots of a game session through NIO buffers.
+ * <p>
+ * A snapshot holds the player (power points, level, position, inventory) and, for each level, only
+ * what differs from the session's {@link WorldTemplate}: changed tiles, the fog of war, and the rooms
+ * in every chunk the session has copied. Counts and numbers are unsigned LEB128 varints, and cell,
+ * chunk and word numbers are written as the gap since the previous one. Items from the dungeon's
+ * item pool are written as their number in the pool; any other item is written by name.
+ * <p>
+ * Layout:
+ * <pre>
+ *   int     magic "DGS" and format version
+ *   long    world seed, then varint level count and level size
+ *   varint  power points (zigzag), level, x, y; byte flags (won, has previous position) [, x, y]
+ *   varint  inventory size, then each item; varint teleports so far
+ *   varlong turn, varint waiting timed effects, then (varlong turns left, varint kind, varlong target) for each
+ *   per level:
+ *     varint  changed tiles, then (cell gap, symbol byte) for each
+ *     byte    whether the level has fog, then its seen, visited and marked words
+ *     varint  changed chunks, then for each: chunk gap, changed rooms, and (room gap, flags, items)
+ * </pre>
+ * Snapshots should be taken between turns, while the game is waiting for a command. The question
+ * being asked isn't saved: a restored game carries on from the command prompt. Teleports draw from
+ * streams keyed by how many came before, and that count is saved, so a restored game's state plays
+ * on exactly as the original would have. The Mad Scientist's rambles are not saved and may differ.
+ */
+public final class SessionSnapshot {
+
+    private static final int MAGIC = 0x44475303; // "DGS" followed by format version 3.
+
+    private SessionSnapshot() {
+    }
+
+    /**
+     * Writes a snapshot of a player's game into a buffer, starting at its position.
+     *
+     * @param player the player, who must be linked to their dungeon
+     * @param out    where to write
+     * @throws BufferOverflowException if the buffer runs out of room; its position is then undefined
+     */
+    public static void write(Player player, ByteBuffer out) {
+        Dungeon dungeon = player.getDungeon();
+        WorldTemplate world = dungeon.getTemplate();
+        Item[] pool = dungeon.getItemPool();
+
+        // Which world this game is in.
+        out.putInt(MAGIC);
+        out.putLong(world.getSeed());
+        putVarint(out, world.getLevelCount());
+        putVarint(out, world.getSize());
+
+        // The player.
+        int power = player.getPowerPoints();
+        putVarint(out, (power << 1) ^ (power >> 31)); // Zigzag, in case points ever go below zero.
+        putVarint(out, player.getLevel());
+        int[] position = player.getPosition();
+        putVarint(out, position[0]);
+        putVarint(out, position[1]);
+        int[] previous = player.getPreviousPosition();
+        out.put((byte) ((player.hasWon() ? 1 : 0) | (previous != null ? 2 : 0)));
+        if (previous != null) {
+            putVarint(out, previous[0]);
+            putVarint(out, previous[1]);
+        }
+        putVarint(out, player.getInventory().size());
+        for (Item item : player.getInventory()) {
+            putItem(out, item, pool);
+        }
+        putVarint(out, dungeon.getTeleports());
+        dungeon.writeTimedEffects(out);
+
+        // What the player has changed on each level.
+        for (int level = 1; level <= world.getLevelCount(); level++) {
+            writeTiles(dungeon.getLevelTiles(level), world.getLevel(level).getTiles(), out);
+
+            FogOfWar fog = dungeon.peekFog(level);
+            out.put((byte) (fog == null ? 0 : 1));
+            if (fog != null) {
+                fog.writeTo(out);
+            }
+
+            dungeon.getRoomGrid(level).writeChanges(out);
+        }
+    }
+
+    /**
+     * Writes a snapshot of a player's game into a new buffer just big enough for it.
+     *
+     * @param player the player, who must be linked to their dungeon
+     * @return A buffer holding the snapshot, ready to be read or written out.
+     */
+    public static ByteBuffer write(Player player) {
+        ByteBuffer buffer = ByteBuffer.allocate(512);
+        while (true) {
+            try {
+                write(player, buffer);
+                return buffer.flip();
+            } catch (BufferOverflowException e) {
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+            }
+        }
+    }
+
+    /**
+     * Reads a snapshot and rebuilds the game it was taken from.
+     * The returned player is linked to a new dungeon made from the world; both talk through the given output.
+     * Carry the game on with {@link GameController#resume()}.
+     *
+     * @param in     where to read from, starting at its position
+     * @param world  the world the game was played in
+     * @param output where the restored game's messages go
+     * @return The restored player.
+     * @throws IllegalArgumentException if the buffer doesn't hold a snapshot of this world
+     * @throws java.nio.BufferUnderflowException if the snapshot is cut short
+     */
+    public static Player read(ByteBuffer in, WorldTemplate world, OutputSink output) {
+        if (in.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a session snapshot, or one from another version");
+        }
+        long seed = in.getLong();
+        int levelCount = getVarint(in);
+        int size = getVarint(in);
+        if (seed != world.getSeed() || levelCount != world.getLevelCount() || size != world.getSize()) {
+            throw new IllegalArgumentException("The snapshot was taken in a different world (seed " + seed + ")");
+        }
+
+        // Build the game quietly, then let it talk once it is back where it was.
+        Dungeon dungeon = new Dungeon(world);
+        dungeon.setOutput(DiscardSink.INSTANCE);
+        dungeon.initialize();
+        Item[] pool = dungeon.getItemPool();
+
+        int zigzag = getVarint(in);
+        Player player = new Player((zigzag >>> 1) ^ -(zigzag & 1));
+        player.setOutput(DiscardSink.INSTANCE);
+        player.setDungeon(dungeon);
+        player.setLevel(getVarint(in));
+        player.setPosition(getVarint(in), getVarint(in));
+        int flags = in.get();
+        player.setWon((flags & 1) != 0);
+        player.setPreviousPosition((flags & 2) != 0 ? new int[]{getVarint(in), getVarint(in)} : null);
+        int items = getVarint(in);
+        for (int i = 0; i < items; i++) {
+            player.addItem(getItem(in, pool));
+        }
+        dungeon.setTeleports(getVarint(in));
+        dungeon.readTimedEffects(in);
+
+        for (int level = 1; level <= levelCount; level++) {
+            readTiles(dungeon, level, in);
+            if (in.get() != 0) {
+                dungeon.getFog(level).readFrom(in);
+            }
+            dungeon.getRoomGrid(level).readChanges(in);
+        }
+
+        dungeon.setOutput(output);
+        player.setOutput(output);
+        return player;
+    }
+
+    /**
+     * Writes the tiles of a level that differ from its template, as (cell gap, symbol) pairs.
+     */
+    private static void writeTiles(LevelTiles tiles, LevelTiles base, ByteBuffer out) {
+        if (tiles == base) {
+            putVarint(out, 0); // Nothing on this level has been changed.
+            return;
+        }
+        int size = tiles.getSize();
+        int count = 0;
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                if (tiles.get(x, y) != base.get(x, y)) count++;
+            }
+        }
+        putVarint(out, count);
+
+        int previous = -1;
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                char symbol = tiles.get(x, y);
+                if (symbol == base.get(x, y)) continue;
+                int cell = x * size + y;
+                putVarint(out, cell - previous - 1);
+                out.put((byte) symbol);
+                previous = cell;
+            }
+        }
+    }
+
+    /**
+     * Reads changed tiles written by {@link #writeTiles} back into a level.
+     */
+    private static void readTiles(Dungeon dungeon, int level, ByteBuffer in) {
+        int size = dungeon.getSize();
+        int count = getVarint(in);
+        int cell = -1;
+        for (int i = 0; i < count; i++) {
+            cell += getVarint(in) + 1;
+            if (cell >= size * size) {
+                throw new IllegalArgumentException("The snapshot's tiles don't fit this level");
+            }
+            dungeon.setTile(level, cell / size, cell % size, (char) (in.get() & 0xFF));
+        }
+    }
+
+    // --- Encoding helpers, shared with the classes that write their own part of a snapshot ---
+
+    /**
+     * Writes an int as an unsigned varint: seven bits per byte, lowest first, high bit set on all but the last.
+     */
+    static void putVarint(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static int getVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+        throw new IllegalArgumentException("Malformed varint in snapshot");
+    }
+
+    static void putVarlong(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static long getVarlong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+        throw new IllegalArgumentException("Malformed varint in snapshot");
+    }
+
+    /**
+     * Writes an item: its number in the pool plus one, or 0 followed by its name.
+     */
+    static void putItem(ByteBuffer out, Item item, Item[] pool) {
+        int kind = poolIndex(item, pool);
+        putVarint(out, kind + 1);
+        if (kind < 0) {
+            byte[] name = item.getName().getBytes(StandardCharsets.UTF_8);
+            putVarint(out, name.length);
+            out.put(name);
+        }
+    }
+
+    /**
+     * Reads an item written by {@link #putItem}. Items that aren't in the pool come back as plain named items.
+     */
+    static Item getItem(ByteBuffer in, Item[] pool) {
+        int kind = getVarint(in) - 1;
+        if (kind >= pool.length) {
+            throw new IllegalArgumentException("Unknown item number in snapshot: " + kind);
+        }
+        if (kind >= 0) return pool[kind];
+
+        byte[] name = new byte[getVarint(in)];
+        in.get(name);
+        return new Item(new String(name, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Finds an item in the pool by identity.
+     *
+     * @return Its number in the pool, or -1 if it isn't one of the pool's items.
+     */
+    static int poolIndex(Item item, Item[] pool) {
+        for (int i = 0; i < pool.length; i++) {
+            if (pool[i] == item) return i;
+        }
+        return -1;
+    }
+}
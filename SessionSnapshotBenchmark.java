@@ -0,0 +1,91 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This class measures how big session *//
+//*              snapshots are and how quickly they  *//
+//*              are written and read, over          *//
+//*              bot-played classic games, and       *//
+//*              checks every snapshot restores to   *//
+//*              the same bytes.                     *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+
+/**
+ * Measures {@link SessionSnapshot} over bot-played games, snapshotting after every turn.
+ */
+final class SessionSnapshotBenchmark {
+
+    private SessionSnapshotBenchmark() {
+    }
+
+    /**
+     * Measures snapshot size and speed over bot-played classic games, snapshotting after every turn.
+     * Every snapshot is restored and written again to check it comes back the same.
+     * Argument: the number of games (default 10000).
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        BotPolicy bot = new GoalSeekingBot();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+        ByteBuffer check = ByteBuffer.allocateDirect(64 * 1024);
+        long snapshots = 0, bytes = 0, maxBytes = 0, writeNanos = 0, readNanos = 0;
+
+        for (int game = 0; game < games; game++) {
+            WorldTemplate world = WorldTemplate.classic(game);
+            Dungeon dungeon = new Dungeon(world);
+            dungeon.setOutput(DiscardSink.INSTANCE);
+            dungeon.initialize();
+            Player player = new Player(100);
+            player.setOutput(DiscardSink.INSTANCE);
+            player.setDungeon(dungeon);
+            int[] entrance = dungeon.getEntrance(1);
+            player.setPosition(entrance[0], entrance[1]);
+            SplittableRandom random = world.getRandom().stream(GameRandom.BOT, 0);
+
+            for (int turn = 0; turn < 200 && !player.hasWon() && player.getPowerPoints() > 0; turn++) {
+                dungeon.interactWithRoom(player);
+                answer(bot, player);
+                if (!dungeon.isPlayerAsleep()) {
+                    bot.takeTurn(dungeon, player, random);
+                    answer(bot, player);
+                }
+                dungeon.advanceTurn(player);
+
+                long start = System.nanoTime();
+                buffer.clear();
+                SessionSnapshot.write(player, buffer);
+                long written = System.nanoTime();
+                buffer.flip();
+                Player restored = SessionSnapshot.read(buffer, world, DiscardSink.INSTANCE);
+                long restoredAt = System.nanoTime();
+
+                snapshots++;
+                bytes += buffer.limit();
+                maxBytes = Math.max(maxBytes, buffer.limit());
+                writeNanos += written - start;
+                readNanos += restoredAt - written;
+
+                check.clear();
+                SessionSnapshot.write(restored, check);
+                if (!check.flip().equals(buffer.rewind())) {
+                    throw new IllegalStateException("Game " + game + " turn " + turn + " didn't restore to the same snapshot");
+                }
+            }
+        }
+        System.out.printf("%d snapshots: %.0f bytes on average (max %d), write %.2f µs, read %.2f µs%n",
+                snapshots, (double) bytes / snapshots, maxBytes, writeNanos / 1e3 / snapshots, readNanos / 1e3 / snapshots);
+    }
+
+    private static void answer(BotPolicy bot, Player player) {
+        while (player.getPrompter().isWaiting()) {
+            player.getPrompter().answer(bot.answer(player));
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This class plays whole games with   *//
+//*              no one watching, using a bot in     *//
+//*              place of the player. Games run in   *//
+//*              parallel on every core, and the     *//
+//*              results show how fast games are     *//
+//*              played, how often the bot wins and  *//
+//*              how many power points it ends with. *//
+//*              It is used to tune the game's       *//
+//*              balance.                            *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Runs batches of headless games driven by a {@link BotPolicy}.
+ * Nothing is printed during a game (every game uses a {@link DiscardSink}), and winning no longer
+ * ends the program, so millions of games can be played in one run.
+ */
+public class Simulation {
+
+    /**
+     * How a single game ended.
+     */
+    public enum Outcome {
+        WON, // Found the treasure.
+        DIED, // Ran out of power points.
+        TIMED_OUT // Still playing after the turn limit.
+    }
+
+    /**
+     * The totals for a batch of games. Batches played on different threads are merged together.
+     */
+    public static final class Report {
+        private long games;
+        private long wins;
+        private long deaths;
+        private long timeouts;
+        private long turns; // Turns played across every game.
+        private long finalPower; // Power points left at the end of every game.
+        private long winnerPower; // Power points left at the end of the games that were won.
+        private int minPower = Integer.MAX_VALUE;
+        private int maxPower = Integer.MIN_VALUE;
+        private double seconds; // How long the whole batch took.
+
+        private void add(Outcome outcome, int turnsPlayed, int power) {
+            games++;
+            turns += turnsPlayed;
+            finalPower += power;
+            minPower = Math.min(minPower, power);
+            maxPower = Math.max(maxPower, power);
+            switch (outcome) {
+                case WON:
+                    wins++;
+                    winnerPower += power;
+                    break;
+                case DIED:
+                    deaths++;
+                    break;
+                default:
+                    timeouts++;
+            }
+        }
+
+        private Report merge(Report other) {
+            games += other.games;
+            wins += other.wins;
+            deaths += other.deaths;
+            timeouts += other.timeouts;
+            turns += other.turns;
+            finalPower += other.finalPower;
+            winnerPower += other.winnerPower;
+            minPower = Math.min(minPower, other.minPower);
+            maxPower = Math.max(maxPower, other.maxPower);
+            return this;
+        }
+
+        public long getGames() {
+            return games;
+        }
+
+        public long getWins() {
+            return wins;
+        }
+
+        public long getDeaths() {
+            return deaths;
+        }
+
+        public long getTimeouts() {
+            return timeouts;
+        }
+
+        /**
+         * @return The share of games won, from 0 to 1.
+         */
+        public double getWinRate() {
+            return games == 0 ? 0 : (double) wins / games;
+        }
+
+        /**
+         * @return The average number of turns a game lasted.
+         */
+        public double getAverageTurns() {
+            return games == 0 ? 0 : (double) turns / games;
+        }
+
+        /**
+         * @return The average power points left at the end of a game.
+         */
+        public double getAveragePower() {
+            return games == 0 ? 0 : (double) finalPower / games;
+        }
+
+        /**
+         * @return The average power points left at the end of a game that was won.
+         */
+        public double getAverageWinnerPower() {
+            return wins == 0 ? 0 : (double) winnerPower / wins;
+        }
+
+        /**
+         * @return How many games were played per second.
+         */
+        public double getGamesPerSecond() {
+            return seconds == 0 ? 0 : games / seconds;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d games in %.2fs (%.0f games/s)%n"
+                            + "  won %d (%.1f%%), died %d, timed out %d%n"
+                            + "  turns per game: %.1f%n"
+                            + "  final power: average %.1f, min %d, max %d, average when won %.1f",
+                    games, seconds, getGamesPerSecond(),
+                    wins, getWinRate() * 100, deaths, timeouts,
+                    getAverageTurns(),
+                    getAveragePower(), games == 0 ? 0 : minPower, games == 0 ? 0 : maxPower, getAverageWinnerPower());
+        }
+    }
+
+    /**
+     * How many games one fork-join task plays before it stops splitting.
+     */
+    private static final int GAMES_PER_TASK = 64;
+
+    private final int levelCount; // Levels in each world.
+    private final int size; // How big each level is.
+    private final LevelGenerator generator; // Lays out the levels, or null for the classic layouts.
+    private final BotPolicy policy; // Plays every game.
+    private final int startingPower; // The power points each game starts with.
+    private final int maxTurns; // Games still going after this many turns are stopped.
+
+    /**
+     * Creates a simulation of games of one shape, played by one bot.
+     *
+     * @param levelCount    the total number of levels in each world
+     * @param size          how big each level is (size x size)
+     * @param generator     the generator that lays out each level, or null for the classic layouts
+     * @param policy        the bot that plays every game
+     * @param startingPower the power points the player starts with
+     * @param maxTurns      the number of turns after which a game is stopped
+     */
+    public Simulation(int levelCount, int size, LevelGenerator generator, BotPolicy policy, int startingPower, int maxTurns) {
+        if (maxTurns <= 0) {
+            throw new IllegalArgumentException("maxTurns must be positive, not " + maxTurns);
+        }
+        this.levelCount = levelCount;
+        this.size = size;
+        this.generator = generator;
+        this.policy = policy;
+        this.startingPower = startingPower;
+        this.maxTurns = maxTurns;
+    }
+
+    /**
+     * Plays one whole game. The same seed always plays out the same way.
+     *
+     * @param seed the world seed, which also drives the bot's choices
+     * @param report where to add the game's result
+     */
+    void play(long seed, Report report) {
+        Dungeon dungeon = new Dungeon(levelCount, size, generator, seed);
+        dungeon.setOutput(DiscardSink.INSTANCE);
+        dungeon.initialize();
+
+        Player player = new Player(startingPower);
+        player.setOutput(DiscardSink.INSTANCE);
+        player.setDungeon(dungeon);
+
+        // Start at the first level's entrance, whatever the world's layout.
+        int[] entrance = dungeon.getEntrance(1);
+        player.setPosition(entrance[0], entrance[1]);
+        SplittableRandom random = dungeon.getRandom().stream(GameRandom.BOT, 0);
+
+        // The same order of events as GameController.start(), with the bot choosing each command.
+        for (int turn = 1; turn <= maxTurns; turn++) {
+            dungeon.interactWithRoom(player);
+            answerQuestions(player);
+            if (player.hasWon()) {
+                report.add(Outcome.WON, turn, player.getPowerPoints());
+                return;
+            }
+            if (player.getPowerPoints() <= 0) {
+                report.add(Outcome.DIED, turn, 0);
+                return;
+            }
+
+            // A sleeping player's turn passes without a command.
+            if (!dungeon.isPlayerAsleep()) {
+                policy.takeTurn(dungeon, player, random);
+                answerQuestions(player);
+            }
+            dungeon.advanceTurn(player);
+            if (player.getPowerPoints() <= 0) {
+                report.add(Outcome.DIED, turn, 0);
+                return;
+            }
+        }
+        report.add(Outcome.TIMED_OUT, maxTurns, player.getPowerPoints());
+    }
+
+    /**
+     * Lets the bot answer every question the game asks part way through a turn.
+     */
+    private void answerQuestions(Player player) {
+        Prompter prompter = player.getPrompter();
+        while (prompter.isWaiting()) {
+            prompter.answer(policy.answer(player));
+        }
+    }
+
+    /**
+     * Plays a batch of games in parallel, one for each seed in a range.
+     *
+     * @param firstSeed the seed of the first game
+     * @param games     how many games to play
+     * @param pool      the fork-join pool to play them on
+     * @return The totals for the batch.
+     */
+    public Report run(long firstSeed, int games, ForkJoinPool pool) {
+        long start = System.nanoTime();
+        Report report = pool.invoke(new GameRange(firstSeed, games));
+        report.seconds = (System.nanoTime() - start) / 1e9;
+        return report;
+    }
+
+    /**
+     * A fork-join task that splits a range of games in half until it is small enough to play directly.
+     */
+    private final class GameRange extends RecursiveTask<Report> {
+        private static final long serialVersionUID = 1L;
+
+        private final long first;
+        private final int count;
+
+        GameRange(long first, int count) {
+            this.first = first;
+            this.count = count;
+        }
+
+        @Override
+        protected Report compute() {
+            if (count > GAMES_PER_TASK) {
+                int half = count / 2;
+                GameRange left = new GameRange(first, half);
+                left.fork();
+                Report right = new GameRange(first + half, count - half).compute();
+                return left.join().merge(right);
+            }
+            Report report = new Report();
+            for (long seed = first; seed < first + count; seed++) {
+                play(seed, report);
+            }
+            return report;
+        }
+    }
+
+    /**
+     * Runs a batch of games from the command line and prints the totals.
+     * Arguments: game count, bot ("goal" or "random"), level count, level size,
+     * generator ("classic", "maze", "rooms" or "cave") and first seed.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        String bot = args.length > 1 ? args[1] : "goal";
+        int levelCount = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        int size = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+        String kind = args.length > 4 ? args[4] : "classic";
+        long firstSeed = args.length > 5 ? Long.parseLong(args[5]) : 0;
+
+        BotPolicy policy;
+        switch (bot) {
+            case "goal":
+                policy = new GoalSeekingBot();
+                break;
+            case "random":
+                policy = new RandomWalkBot();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown bot: " + bot);
+        }
+
+        LevelGenerator generator = LevelGenerator.forName(kind);
+
+        Simulation simulation = new Simulation(levelCount, size, generator, policy, 100, size * size * levelCount * 4);
+        System.out.println(simulation.run(firstSeed, games, ForkJoinPool.commonPool()));
+    }
+}
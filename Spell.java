@@ -19,41 +19,48 @@ package dungeongame;
 public class Spell extends Item {
 
     /**
-     * Instatiate a dungeon object. The dungeon in which the spell is used provides context for spell effects.
-     */
-    private Dungeon dungeon;
-
-    /**
-     * Creates a new {@code Spell} with the specified name and associated dungeon.
+     * Creates a new {@code Spell} with the specified name.
+     * The spell works on whichever dungeon the player casting it is in.
      *
-     * @param name    The name of the spell.
-     * @param dungeon The dungeon where the spell can be used.
+     * @param name The name of the spell.
      */
-    public Spell(String name, Dungeon dungeon) {
+    public Spell(String name) {
         super(name); // Set the name of the spell using the parent 'Item' constructor.
-        this.dungeon = dungeon; // Assign the dungeon to this spell.
     }
 
     /**
      * Activates the spell's effect when used by the player.
-     * Effects are determined based on the spell's name.
+     * The effect is looked up from the spell's definition in the {@link ItemRegistry}.
      *
      * @param player The player using the spell.
      */
     @Override
     public void use(Player player) {
-        System.out.println("Casting spell: " + getName());
+        player.getOutput().printf("Casting spell: %s%n", getName());
+        super.use(player);
+    }
 
-        // Determine the effect of the spell based on its name.
-        if (getName().equalsIgnoreCase("Teleportation Spell")) {
-            System.out.println("You are teleported to a random location!");
-            dungeon.teleportPlayer(player); // Teleport the player using the dungeon's method.
-        } else if (getName().equalsIgnoreCase("Freeze Spell")) {
-            System.out.println("You freeze your surroundings! All traps and enemies in adjacent rooms are neutralized.");
-            freezeSurroundings(player); // Freeze the rooms around the player.
-        } else {
-            System.out.println("This spell has no defined effect.");
-        }
+    /**
+     * The Teleportation Spell's effect.
+     */
+    static void teleport(Player player, Item spell) {
+        player.getOutput().println("You are teleported to a random location!");
+        player.getDungeon().teleportPlayer(player); // Teleport the player using the dungeon's method.
+    }
+
+    /**
+     * The Freeze Spell's effect.
+     */
+    static void freeze(Player player, Item spell) {
+        player.getOutput().println("You freeze your surroundings! All traps and enemies in adjacent rooms are neutralized.");
+        freezeSurroundings(player); // Freeze the rooms around the player.
+    }
+
+    /**
+     * The effect of a spell with nothing special to do.
+     */
+    static void noEffect(Player player, Item spell) {
+        player.getOutput().println("This spell has no defined effect.");
     }
 
     /**
@@ -62,46 +69,49 @@ public class Spell extends Item {
      *
      * @param player The player using the freeze spell.
      */
-    private void freezeSurroundings(Player player) {
-        int level = player.getLevel() - 1; // Convert level to zero-based indexing.
+    private static void freezeSurroundings(Player player) {
+        Dungeon dungeon = player.getDungeon(); // The dungeon the player is casting the spell in.
+        OutputSink output = player.getOutput(); // Messages go to this player's output.
+        int level = player.getLevel(); // The level the player is on (starts from 1).
         int[] position = player.getPosition(); // Get player's current position [x, y].
         int x = position[0];
         int y = position[1];
 
-        System.out.println("Freezing surroundings...");
+        output.println("Freezing surroundings...");
 
-        // Check and freeze adjacent rooms, ensuring the position is within bounds.
-        if (x > 0) freezeRoom(level, x - 1, y); // Freeze the room above the player.
-        if (x < dungeon.getSize() - 1) freezeRoom(level, x + 1, y); // Freeze the room below the player.
-        if (y > 0) freezeRoom(level, x, y - 1); // Freeze the room to the left.
-        //if (y < dungeon.getSize() - 1) freezeRoom(level, x, y + 1); // Freeze the room to the right.
-        if (y > 0) freezeRoom(level, x, y + 1); // Freeze the room to the right.
+        // Report on each adjacent room inside the dungeon (above, left, right, below), then freeze them all at once
+        // for a number of turns.
+        AreaShape shape = AreaShape.adjacent();
+        shape.cover(dungeon.getLevelTiles(level), x, y, (row, fromY, toY) -> {
+            for (int column = fromY; column <= toY; column++) {
+                reportFreeze(dungeon, level, row, column);
+            }
+        });
+        dungeon.freezeArea(level, x, y, shape, Dungeon.FREEZE_TURNS);
     }
 
     /**
-     * Freezes a specific room in the dungeon if it contains enemies or traps.
+     * Says what freezing will do to a specific room in the dungeon: freeze it if it contains enemies or traps.
      *
-     * @param level The level of the dungeon where the room is located.
-     * @param x     The x-coordinate of the room.
-     * @param y     The y-coordinate of the room.
+     * @param dungeon The dungeon the spell is cast in.
+     * @param level   The level of the dungeon where the room is located (starts from 1).
+     * @param x       The x-coordinate of the room.
+     * @param y       The y-coordinate of the room.
      */
-    private void freezeRoom(int level, int x, int y) {
+    private static void reportFreeze(Dungeon dungeon, int level, int x, int y) {
+        OutputSink output = dungeon.getOutput(); // Messages go to the dungeon's output.
         // Get the room at the specified level and position.
-        Room room = dungeon.getRoom(level + 1, new int[]{x, y});
+        Room room = dungeon.getRoom(level, new int[]{x, y});
 
-        // Apply freezing if the room has enemies or traps and isn't already frozen.
-        if (room != null && room.hasEnemiesOrTraps() && !room.isFrozen()) {
-            room.setFrozen(true); // Mark the room as frozen.
-            System.out.println("Room at (" + x + ", " + y + ") is now frozen.");
-        } else if (room != null && room.isFrozen()) {
-            System.out.println("Room at (" + x + ", " + y + ") is already frozen.");
+        // Freezing applies if the room has enemies or traps; a frozen one stays frozen for longer.
+        if (room.hasEnemiesOrTraps() && !room.isFrozen()) {
+            output.printf("Room at (%s, %s) is now frozen for %s turns.%n", x, y, Dungeon.FREEZE_TURNS);
+        } else if (room.hasEnemiesOrTraps()) {
+            output.printf("Room at (%s, %s) was already frozen, and now stays frozen for %s turns.%n", x, y, Dungeon.FREEZE_TURNS);
+        } else if (room.isFrozen()) {
+            output.printf("Room at (%s, %s) is already frozen.%n", x, y);
         } else {
-            System.out.println("Room at (" + x + ", " + y + ") is safe or empty.");
+            output.printf("Room at (%s, %s) is safe or empty.%n", x, y);
         }
     }
 }
-
-
-
-
-
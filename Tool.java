@@ -1,5 +1,4 @@
 package dungeongame;
-import java.util.Scanner;
 //****************************************************//
 //* Author:1717859                                   *//
 //* Week:9                                           *//
@@ -15,7 +14,7 @@ import java.util.Scanner;
 /**
  * Represents a tool that a player can use in the game.
  * Inherits properties and methods from the {@code Item} class.
- * Each tool has a specific effect depending on its name.
+ * Each tool's effect comes from its definition in the {@link ItemRegistry}.
  */
 public class Tool extends Item {
 
@@ -30,54 +29,68 @@ public class Tool extends Item {
 
     /**
      * Activates the tool's effect when used by the player.
-     * The effect depends on the tool's name (e.g., Hammer, Spanner, Alarm Clock).
+     * The effect is looked up from the tool's definition (e.g., Hammer, Spanner, Alarm Clock).
      *
      * @param player The player using the tool.
      */
     @Override
     public void use(Player player) {
-        System.out.println("Using tool: " + getName());
+        player.getOutput().printf("Using tool: %s%n", getName());
+        super.use(player);
+    }
 
-        // Specific effect for the Hammer tool.
-        if (getName().equalsIgnoreCase("Hammer")) {
-            System.out.println("You break a trap with the Hammer!");
-        }
-        // Specific effect for the Spanner tool.
-        else if (getName().equalsIgnoreCase("Spanner")) {
-            System.out.println("You have a Spanner.");
+    /**
+     * The Hammer's effect.
+     */
+    static void breakTrap(Player player, Item tool) {
+        player.getOutput().println("You break a trap with the Hammer!");
+    }
 
-            // Check if the player has a Box in their inventory.
-            // pass the box class using java's inbuilt java.lang.class to check if the box object has been created, if not box is not in inventory
-            if (player.hasItem(Box.class)) {
-                Box box = (Box) player.getItem(Box.class); // Retrieve the Box.
-                System.out.println("You also have a Box. Would you like to open it? (yes/no)");
-                Scanner scanner = new Scanner(System.in);
-                String response = scanner.nextLine().toLowerCase();
+    /**
+     * The Spanner's effect: offers to open a Box if the player has one.
+     */
+    static void openBox(Player player, Item tool) {
+        OutputSink output = player.getOutput(); // Messages go to this player's output.
+        output.println("You have a Spanner.");
+        // Check if the player has a Box in their inventory.
+        // Look the Box up by its registry number; only a real Box holds something to open.
+        Item found = player.getItem(ItemRegistry.BOX);
+        if (found instanceof Box) {
+            Box box = (Box) found; // Retrieve the Box.
+            output.println("You also have a Box. Would you like to open it? (yes/no)");
+            player.getPrompter().ask(answer -> {
+                String response = answer.toLowerCase();
 
                 if (response.equals("yes")) {
                     Dungeon dungeon = player.getDungeon(); // Retrieve the Dungeon instance.
                     if (dungeon != null) {
                         box.open(player, dungeon); // Pass the Dungeon to the Box's open method.
                     } else {
-                        System.out.println("Error: Dungeon instance is not available.");
+                        output.println("Error: Dungeon instance is not available.");
                     }
                 } else {
-                    System.out.println("You chose not to open the Box.");
+                    output.println("You chose not to open the Box.");
                 }
-            } else {
-                System.out.println("You don't have a Box to open.");
-            }
-        }
-        // Specific effect for the Alarm Clock tool.
-        else if (getName().equalsIgnoreCase("Alarm Clock")) {
-            // Check if the player is already awake (not under the effect of a Sleeping Potion).
-            System.out.println("You are already awake. The Alarm Clock remains in your inventory.");
-        }
-        // Default message for tools with no specific effect.
-        else {
-            System.out.println("This tool has no specific use.");
+            });
+        } else {
+            output.println("You don't have a Box to open.");
         }
     }
+
+    /**
+     * The Alarm Clock's effect.
+     */
+    static void ringAlarm(Player player, Item tool) {
+        // Check if the player is already awake (not under the effect of a Sleeping Potion).
+        player.getOutput().println("You are already awake. The Alarm Clock remains in your inventory.");
+    }
+
+    /**
+     * The effect of a tool with nothing special to do.
+     */
+    static void noUse(Player player, Item tool) {
+        player.getOutput().println("This tool has no specific use.");
+    }
 }
 
 
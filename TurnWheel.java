@@ -0,0 +1,269 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This class keeps track of effects   *//
+//*              that end after a number of game     *//
+//*              turns, such as a frozen room        *//
+//*              thawing or a sleeping player waking *//
+//*              up. Effects are sorted into rings   *//
+//*              of slots by how soon they are due,  *//
+//*              so moving on a turn only looks at   *//
+//*              the effects due then, however many  *//
+//*              are waiting.                        *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+import java.util.Arrays;
+
+/**
+ * A hierarchical timing wheel keyed on game turns.
+ * <p>
+ * There are {@link #LEVELS} wheels of 64 slots. Wheel 0 has one slot per turn for the next 64 turns,
+ * wheel 1 one slot per 64 turns for the next 4096, and so on; timers further off than the last
+ * wheel reaches wait in an overflow list. Each time a wheel's slot pointer wraps round, the next
+ * wheel up's current slot is emptied into the wheels below (a cascade). A timer is cascaded at most
+ * once per wheel, so {@link #advance} costs the timers due that turn plus, amortised, a constant
+ * per timer, never a pass over every timer.
+ * <p>
+ * Timers are int handles into parallel arrays (no object per timer). Each holds a kind and a long
+ * target for the owner to interpret. A slot is a doubly linked list, so cancelling is O(1). Timers
+ * due on the same turn fire in the order they reached their slot.
+ */
+final class TurnWheel {
+
+    /**
+     * Receives each timer as it comes due.
+     */
+    @FunctionalInterface
+    interface Expiry {
+        /**
+         * Handles a timer that has come due. It has already been removed, so it may schedule new ones.
+         *
+         * @param kind   The kind the timer was scheduled with.
+         * @param target The target the timer was scheduled with.
+         */
+        void expire(int kind, long target);
+    }
+
+    /**
+     * Receives each waiting timer, for saving them.
+     */
+    @FunctionalInterface
+    interface Visitor {
+        void visit(int handle, long turnsLeft, int kind, long target);
+    }
+
+    static final int NONE = -1; // The handle of no timer.
+
+    static final int LEVELS = 4; // Wheels; together they reach 2^24 turns ahead.
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS; // Slots per wheel.
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int OVERFLOW = LEVELS * SLOTS; // The list of timers beyond the last wheel.
+    private static final int FREE = -2; // The list number of a free timer.
+
+    // Lists, one per slot of every wheel plus the overflow list.
+    private final int[] head = filled(OVERFLOW + 1), tail = filled(OVERFLOW + 1);
+
+    // Timer columns.
+    private long[] deadline = new long[16];
+    private long[] target = new long[16];
+    private int[] kind = new int[16];
+    private int[] next = new int[16], previous = new int[16];
+    private int[] list = new int[16]; // Which list the timer is on, or FREE.
+    private int used; // Handles given out so far; handles from here up have never been used.
+    private int freeHandle = NONE; // The first free handle below used, or NONE.
+    private int size; // Timers waiting.
+
+    private long turn; // The current turn.
+
+    private static int[] filled(int length) {
+        int[] array = new int[length];
+        Arrays.fill(array, NONE);
+        return array;
+    }
+
+    long getTurn() {
+        return turn;
+    }
+
+    /**
+     * Sets the current turn, when restoring a game. Only allowed while no timers are waiting.
+     *
+     * @param turn The turn.
+     * @throws IllegalStateException if timers are waiting
+     */
+    void setTurn(long turn) {
+        if (size > 0) {
+            throw new IllegalStateException("Can't move the clock with " + size + " timers waiting");
+        }
+        this.turn = turn;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isWaiting(int handle) {
+        return handle >= 0 && handle < used && list[handle] != FREE;
+    }
+
+    /**
+     * Starts a timer.
+     *
+     * @param turns  How many turns from now it comes due, at least 1.
+     * @param kind   What sort of timer it is, for the owner.
+     * @param target What it applies to, for the owner.
+     * @return The timer's handle, for cancelling it.
+     * @throws IllegalArgumentException if turns is less than 1
+     */
+    int schedule(long turns, int kind, long target) {
+        if (turns < 1) {
+            throw new IllegalArgumentException("A timer must be due at least one turn ahead, not " + turns);
+        }
+        int handle = allocate();
+        this.deadline[handle] = turn + turns;
+        this.kind[handle] = kind;
+        this.target[handle] = target;
+        place(handle);
+        size++;
+        return handle;
+    }
+
+    /**
+     * Stops a timer before it comes due.
+     *
+     * @param handle The timer's handle.
+     * @return true if it was waiting.
+     */
+    boolean cancel(int handle) {
+        if (!isWaiting(handle)) return false;
+        unlink(handle);
+        release(handle);
+        return true;
+    }
+
+    long turnsLeft(int handle) {
+        return deadline[handle] - turn;
+    }
+
+    int kindOf(int handle) {
+        return kind[handle];
+    }
+
+    long targetOf(int handle) {
+        return target[handle];
+    }
+
+    /**
+     * Moves on one turn and fires every timer due on the new turn.
+     *
+     * @param expiry Receives each timer that comes due.
+     */
+    void advance(Expiry expiry) {
+        turn++;
+
+        // Count the wheels whose pointer has just wrapped round (wheel 0's does every 64 turns, wheel 1's
+        // every 4096, ...), and cascade from the highest one down, so nothing skips past a lower wheel.
+        int wrapped = 0;
+        while (wrapped < LEVELS && (turn & ((1L << (SLOT_BITS * (wrapped + 1))) - 1)) == 0) {
+            wrapped++;
+        }
+        if (wrapped == LEVELS) {
+            cascade(OVERFLOW);
+        }
+        for (int level = Math.min(wrapped, LEVELS - 1); level >= 1; level--) {
+            cascade(level * SLOTS + (int) ((turn >>> (SLOT_BITS * level)) & SLOT_MASK));
+        }
+
+        // Fire the turn's slot. Detach it first, so timers the callbacks start can't join it.
+        int slot = (int) (turn & SLOT_MASK);
+        int handle = head[slot];
+        head[slot] = tail[slot] = NONE;
+        while (handle != NONE) {
+            int following = next[handle];
+            int timerKind = kind[handle];
+            long timerTarget = target[handle];
+            release(handle);
+            expiry.expire(timerKind, timerTarget);
+            handle = following;
+        }
+    }
+
+    /**
+     * Passes every waiting timer to a visitor, in handle order.
+     *
+     * @param visitor Receives each timer.
+     */
+    void forEach(Visitor visitor) {
+        for (int handle = 0; handle < used; handle++) {
+            if (list[handle] != FREE) {
+                visitor.visit(handle, deadline[handle] - turn, kind[handle], target[handle]);
+            }
+        }
+    }
+
+    /**
+     * Puts a timer on the list for its deadline: the lowest wheel that reaches it, or the overflow list.
+     */
+    private void place(int handle) {
+        long due = deadline[handle];
+        long ahead = due - turn;
+        int level = 0;
+        while (level < LEVELS && ahead >= 1L << (SLOT_BITS * (level + 1))) level++;
+        int number = level == LEVELS ? OVERFLOW : level * SLOTS + (int) ((due >>> (SLOT_BITS * level)) & SLOT_MASK);
+
+        // Append, so timers due together fire in the order they arrived.
+        list[handle] = number;
+        next[handle] = NONE;
+        previous[handle] = tail[number];
+        if (tail[number] == NONE) head[number] = handle; else next[tail[number]] = handle;
+        tail[number] = handle;
+    }
+
+    /**
+     * Empties a list and places each of its timers again, now that they are closer.
+     */
+    private void cascade(int number) {
+        int handle = head[number];
+        head[number] = tail[number] = NONE;
+        while (handle != NONE) {
+            int following = next[handle];
+            place(handle);
+            handle = following;
+        }
+    }
+
+    private void unlink(int handle) {
+        int number = list[handle];
+        if (previous[handle] == NONE) head[number] = next[handle]; else next[previous[handle]] = next[handle];
+        if (next[handle] == NONE) tail[number] = previous[handle]; else previous[next[handle]] = previous[handle];
+    }
+
+    private int allocate() {
+        if (freeHandle != NONE) {
+            int handle = freeHandle;
+            freeHandle = next[handle];
+            return handle;
+        }
+        if (used == list.length) {
+            int capacity = used * 2;
+            deadline = Arrays.copyOf(deadline, capacity);
+            target = Arrays.copyOf(target, capacity);
+            kind = Arrays.copyOf(kind, capacity);
+            next = Arrays.copyOf(next, capacity);
+            previous = Arrays.copyOf(previous, capacity);
+            list = Arrays.copyOf(list, capacity);
+        }
+        return used++;
+    }
+
+    private void release(int handle) {
+        list[handle] = FREE;
+        next[handle] = freeHandle;
+        freeHandle = handle;
+        size--;
+    }
+}
@@ -0,0 +1,65 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This class fills the turn wheel     *//
+//*              with millions of timers, times how  *//
+//*              long the turns take to fire them    *//
+//*              all, and checks each one fired on   *//
+//*              its own turn.                       *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+import java.util.SplittableRandom;
+
+/**
+ * Schedules timers at random delays on a {@link TurnWheel} and advances until all have fired.
+ */
+final class TurnWheelBenchmark {
+
+    private TurnWheelBenchmark() {
+    }
+
+    /**
+     * Measures the wheel with millions of timers waiting and checks every one fires on its turn.
+     * Arguments: the number of timers (default 5000000) and the furthest delay in turns (default 100000).
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        int timers = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        int furthest = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        TurnWheel wheel = new TurnWheel();
+        SplittableRandom random = new SplittableRandom(1);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < timers; i++) {
+            long turns = 1 + random.nextInt(furthest);
+            wheel.schedule(turns, 0, turns); // The target is the turn it should fire on.
+        }
+        long scheduled = System.nanoTime();
+
+        long[] fired = new long[1];
+        long[] lateOrEarly = new long[1];
+        long slowestTurn = 0;
+        while (wheel.size() > 0) {
+            long before = System.nanoTime();
+            long now = wheel.getTurn() + 1;
+            wheel.advance((kind, due) -> {
+                fired[0]++;
+                if (due != now) lateOrEarly[0]++;
+            });
+            slowestTurn = Math.max(slowestTurn, System.nanoTime() - before);
+        }
+        long finished = System.nanoTime();
+
+        System.out.printf("%d timers: scheduled in %.0f ns each, %d turns advanced in %.2f s (%.0f ns per timer fired, slowest turn %.0f µs)%n",
+                timers, (scheduled - start) / (double) timers, wheel.getTurn(), (finished - scheduled) / 1e9,
+                (finished - scheduled) / (double) fired[0], slowestTurn / 1e3);
+        if (fired[0] != timers || lateOrEarly[0] != 0) {
+            throw new IllegalStateException(fired[0] + " of " + timers + " timers fired, " + lateOrEarly[0] + " on the wrong turn");
+        }
+        System.out.println("Every timer fired on its turn.");
+    }
+}
@@ -0,0 +1,183 @@
+package dungeongame;
+//****************************************************//
+//* Author:1717859                                   *//
+//* Week:12                                          *//
+//*                                                  *//
+//* Description: This class holds a whole world as   *//
+//*              it is first laid out, level by      *//
+//*              level. It is made once for a seed   *//
+//*              (or a level file) and can then be   *//
+//*              shared by any number of players, so *//
+//*              a server hosting thousands of games *//
+//*              of the same world keeps one copy of *//
+//*              the levels instead of thousands.    *//
+//*                                                  *//
+//* Date: 15/12/2024                                 *//
+//****************************************************//
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * The immutable starting state of a world: its seed and one {@link LevelTemplate} per level.
+ * Each {@link Dungeon} made from a template only stores what its own player changes.
+ */
+public final class WorldTemplate {
+
+    private final GameRandom random; // The world's random service. It holds nothing but the seed.
+    private final int size; // How big each level is (size x size).
+    private final LevelTemplate[] levels; // The levels, first level first.
+
+    private WorldTemplate(GameRandom random, int size, LevelTemplate[] levels) {
+        this.random = random;
+        this.size = size;
+        this.levels = levels;
+    }
+
+    /**
+     * Makes the classic world: the three hand-made 5x5 levels, filled from a seed.
+     *
+     * @param seed the master seed that decides every level's contents
+     * @return The world's template.
+     */
+    public static WorldTemplate classic(long seed) {
+        return generate(3, 5, null, seed);
+    }
+
+    /**
+     * Makes a world whose levels are laid out by a level generator from a seed.
+     * Each level is generated on its own core, and the same seed always gives the same world.
+     *
+     * @param levelCount the total number of levels in the world
+     * @param size       how big each level is (size x size)
+     * @param generator  the generator that lays out each level, or null for the classic 3-level layouts
+     * @param seed       the master seed that decides every level's layout and contents
+     * @return The world's template.
+     */
+    public static WorldTemplate generate(int levelCount, int size, LevelGenerator generator, long seed) {
+        return generate(levelCount, size, generator, seed, level -> Dungeon.CLASSIC_ROOM_LOOT);
+    }
+
+    /**
+     * Makes a world whose levels are laid out by a level generator from a seed, with each level's own room loot.
+     *
+     * @param levelCount the total number of levels in the world
+     * @param size       how big each level is (size x size)
+     * @param generator  the generator that lays out each level, or null for the classic 3-level layouts
+     * @param seed       the master seed that decides every level's layout and contents
+     * @param roomLoot   gives the loot table for rooms on a level (starting from 1) that get an item
+     * @return The world's template.
+     * @throws IllegalArgumentException if a loot table can give an item rooms can't hold
+     */
+    public static WorldTemplate generate(int levelCount, int size, LevelGenerator generator, long seed, IntFunction<LootTable> roomLoot) {
+        // Check the world has a sensible shape before building anything.
+        if (levelCount < 1) {
+            throw new IllegalArgumentException("Invalid level count: " + levelCount);
+        }
+        if (generator == null && (levelCount != 3 || size != 5)) {
+            throw new IllegalArgumentException("The classic layouts are 3 levels of 5x5, not " + levelCount + " of " + size + "x" + size);
+        }
+        GameRandom random = new GameRandom(seed);
+
+        // Set up the tile layouts for each level.
+        LevelTiles[] tiles = new LevelTiles[levelCount];
+        if (generator == null) {
+            char[][][] classic = Dungeon.classicLayouts();
+            for (int lvl = 0; lvl < levelCount; lvl++) {
+                tiles[lvl] = LevelTiles.of(classic[lvl]).readOnly();
+            }
+        } else {
+            // Every level gets its own seed, so the levels can be generated in parallel.
+            IntStream.range(0, levelCount).parallel().forEach(lvl ->
+                    tiles[lvl] = LevelTiles.of(generator.generate(size, random.seedFor(GameRandom.LAYOUT, lvl + 1), lvl == levelCount - 1)).readOnly());
+        }
+
+        // Find each entrance and pick the room each level's Mad Scientist will live in.
+        LevelTemplate[] levels = new LevelTemplate[levelCount];
+        for (int lvl = 0; lvl < levelCount; lvl++) {
+            int[] entrance = Dungeon.findTile(tiles[lvl], Dungeon.ENTRANCE);
+            int scientistCell = LevelTemplate.pickScientistCell(tiles[lvl], random.stream(GameRandom.SCIENTIST, lvl + 1));
+            levels[lvl] = new LevelTemplate(lvl + 1, tiles[lvl], entrance, scientistCell, random, roomLoot.apply(lvl + 1));
+        }
+        return new WorldTemplate(random, size, levels);
+    }
+
+    /**
+     * Makes a world from a binary level file.
+     * The file's tile planes stay mapped in memory and are only read as players reach them,
+     * so even a huge world opens straight away.
+     *
+     * @param levelFile the opened level file
+     * @return The world's template.
+     */
+    public static WorldTemplate load(LevelFile levelFile) {
+        return load(levelFile, level -> Dungeon.CLASSIC_ROOM_LOOT);
+    }
+
+    /**
+     * Makes a world from a binary level file, with each level's own room loot.
+     *
+     * @param levelFile the opened level file
+     * @param roomLoot  gives the loot table for rooms on a level (starting from 1) that get an item
+     * @return The world's template.
+     * @throws IllegalArgumentException if a loot table can give an item rooms can't hold
+     */
+    public static WorldTemplate load(LevelFile levelFile, IntFunction<LootTable> roomLoot) {
+        GameRandom random = new GameRandom(levelFile.getSeed());
+        int size = levelFile.getSize();
+
+        // Use the file's tile planes, entrances and Mad Scientists directly.
+        LevelTemplate[] levels = new LevelTemplate[levelFile.getLevelCount()];
+        for (int lvl = 0; lvl < levels.length; lvl++) {
+            int[] scientist = levelFile.findEntity(lvl, LevelFile.MAD_SCIENTIST);
+            int scientistCell = scientist == null ? -1 : scientist[0] * size + scientist[1];
+            levels[lvl] = new LevelTemplate(lvl + 1, levelFile.getLevel(lvl), levelFile.getEntrance(lvl), scientistCell, random, roomLoot.apply(lvl + 1));
+        }
+        return new WorldTemplate(random, size, levels);
+    }
+
+    /**
+     * Gets the seed every random choice in this world comes from.
+     *
+     * @return The master seed.
+     */
+    public long getSeed() {
+        return random.getSeed();
+    }
+
+    /**
+     * Gets the number of levels in the world.
+     *
+     * @return The total number of levels.
+     */
+    public int getLevelCount() {
+        return levels.length;
+    }
+
+    /**
+     * Gets how big each level is.
+     *
+     * @return The length of one side of a level.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the world's random service. It is immutable, so every session can use it.
+     *
+     * @return The random service.
+     */
+    GameRandom getRandom() {
+        return random;
+    }
+
+    /**
+     * Gets the template of one level.
+     *
+     * @param level The level number (starts from 1).
+     * @return The level's template.
+     */
+    LevelTemplate getLevel(int level) {
+        return levels[level - 1];
+    }
+}